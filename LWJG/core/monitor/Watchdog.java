@@ -1,24 +1,63 @@
 package LWJG.core.monitor;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Process watchdog, runs a action once {@link #kick()} was not called for the interval
+ * <br>Sleeps until the current deadline instead of polling. For the liveness of connections use
+ * {@link LWJG.net.Dispatcher#setHeartbeat(long, long, long)}, which closes just the dead connection
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
 public class Watchdog extends Thread {
-    private volatile long last;
-    private final int msInterval;
+    private volatile long last = System.nanoTime();
+    private final long interval;
+    private final Runnable onTimeout;
+
+    /**
+     * Watchdog that exits the process on timeout
+     * @param seconds Interval in seconds
+     */
+    public Watchdog(int seconds) {
+        this(seconds, () -> {
+            System.err.println("Watchdog timeout!");
+            System.exit(1);
+        });
+    }
 
-    public Watchdog(int msInterval) {
-        super();
-        this.msInterval = msInterval*1000;
+    /**
+     * @param seconds Interval in seconds
+     * @param onTimeout Action on timeout, the watchdog stops afterwards
+     */
+    public Watchdog(int seconds, Runnable onTimeout) {
+        super("lwjg-watchdog");
+        if(seconds < 1) throw new IllegalArgumentException("Interval cannot be below 1.");
+        this.interval = TimeUnit.SECONDS.toNanos(seconds);
+        this.onTimeout = onTimeout;
+    }
+
+    /**
+     * Start watching as a daemon thread, it does not keep the process alive on its own
+     */
+    @Override
+    public void start() {
+        setDaemon(true);
+        super.start();
     }
 
     public void kick() {
-        this.last = System.currentTimeMillis();
+        this.last = System.nanoTime();
     }
 
     @Override
     public void run() {
-        while(true)
-            if(System.currentTimeMillis() - last > msInterval) {
-                System.err.println("Watchdog timeout!");
-                System.exit(1);
-            }
+        kick();
+        long left;
+        while ((left = last + interval - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(left);
+            if (isInterrupted()) return;
+        }
+        onTimeout.run();
     }
-}
\ No newline at end of file
+}
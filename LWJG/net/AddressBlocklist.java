@@ -0,0 +1,150 @@
+package LWJG.net;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Blocklist of IP addresses and CIDR ranges, kept as a binary prefix trie per address family
+ * <br>A lookup walks at most 32 (IPv4) or 128 (IPv6) nodes no matter how many entries there are, and does not lock
+ * @author Marius Baumgartner
+ * @version 2026-10-18T18:40
+ */
+public class AddressBlocklist {
+    private static final class Node {
+        private volatile Node zero;
+        private volatile Node one;
+        private volatile boolean blocked;
+    }
+
+    private final Node v4 = new Node();
+    private final Node v6 = new Node();
+    private int size;
+
+    /**
+     * Block a address or range
+     * @param cidr e.g. 192.168.178.1, 10.0.0.0/8 or 2001:db8::/32
+     * @return False if exactly this entry was already blocked
+     */
+    public synchronized boolean block(String cidr) {
+        Entry e = parse(cidr);
+        Node n = root(e.address);
+        for (int i = 0; i < e.prefix; i++) {
+            Node next = bit(e.address, i) ? n.one : n.zero;
+            if (next == null) {
+                next = new Node();
+                if (bit(e.address, i)) n.one = next;
+                else n.zero = next;
+            }
+            n = next;
+        }
+        if (n.blocked) return false;
+        n.blocked = true;
+        size++;
+        return true;
+    }
+
+    /**
+     * Unblock a address or range, only removes the exact entry, not narrower or wider ones
+     * @param cidr e.g. 192.168.178.1, 10.0.0.0/8 or 2001:db8::/32
+     * @return If the entry was blocked
+     */
+    public synchronized boolean unblock(String cidr) {
+        Entry e = parse(cidr);
+        Node n = root(e.address);
+        for (int i = 0; i < e.prefix && n != null; i++) n = bit(e.address, i) ? n.one : n.zero;
+        if (n == null || !n.blocked) return false;
+        n.blocked = false; /* empty nodes are left in place, readers may be walking them */
+        size--;
+        return true;
+    }
+
+    /**
+     * Check if a address falls into any blocked entry
+     * @param address Address
+     * @return Is blocked
+     */
+    public boolean isBlocked(InetAddress address) {
+        byte[] a = address.getAddress();
+        Node n = root(a);
+        for (int i = 0; n != null; i++) {
+            if (n.blocked) return true;
+            if (i == a.length * 8) return false;
+            n = bit(a, i) ? n.one : n.zero;
+        }
+        return false;
+    }
+
+    /**
+     * Check if a address falls into any blocked entry
+     * @param ip IP literal, e.g. 192.168.178.1
+     * @return Is blocked, false for anything that is not a IP literal
+     */
+    public boolean isBlocked(String ip) {
+        try {
+            return isBlocked(literal(ip));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the amount of blocked entries
+     * @return Entries
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private Node root(byte[] address) {
+        return address.length == 4 ? v4 : v6;
+    }
+
+    private static boolean bit(byte[] address, int i) {
+        return (address[i >>> 3] & (0x80 >>> (i & 7))) != 0;
+    }
+
+    private static final class Entry {
+        private final byte[] address;
+        private final int prefix;
+
+        private Entry(byte[] address, int prefix) {
+            this.address = address;
+            this.prefix = prefix;
+        }
+    }
+
+    private static Entry parse(String cidr) {
+        int slash = cidr.indexOf('/');
+        byte[] a = literal(slash < 0 ? cidr : cidr.substring(0, slash)).getAddress();
+        int prefix = a.length * 8;
+        if (slash >= 0) {
+            try {
+                prefix = Integer.parseInt(cidr.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid prefix length in " + cidr + ".");
+            }
+            if(prefix < 0 || prefix > a.length * 8) throw new IllegalArgumentException("Prefix length of " + cidr + " must be 0-" + a.length * 8 + ".");
+        }
+        return new Entry(a, prefix);
+    }
+
+    /**
+     * Parse a IP literal without ever resolving a host name
+     */
+    private static InetAddress literal(String ip) {
+        try {
+            if (ip.indexOf(':') >= 0) return InetAddress.getByName(ip); /* treated as IPv6 literal, never looked up */
+            String[] parts = ip.split("\\.", -1);
+            if (parts.length != 4) throw new IllegalArgumentException(ip + " is not a IP literal.");
+            byte[] a = new byte[4];
+            for (int i = 0; i < 4; i++) {
+                int v = parts[i].isEmpty() || parts[i].length() > 3 ? -1 : Integer.parseInt(parts[i]);
+                if (v < 0 || v > 255) throw new IllegalArgumentException(ip + " is not a IP literal.");
+                a[i] = (byte) v;
+            }
+            return InetAddress.getByAddress(a);
+        } catch (UnknownHostException | NumberFormatException e) {
+            throw new IllegalArgumentException(ip + " is not a IP literal.");
+        }
+    }
+}
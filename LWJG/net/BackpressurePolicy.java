@@ -0,0 +1,27 @@
+package LWJG.net;
+
+/**
+ * What a {@link OutboundQueue} does when a frame would exceed its capacity
+ * @author Marius Baumgartner
+ * @version 2026-10-18T16:05
+ */
+public enum BackpressurePolicy {
+    /**
+     * The sending thread waits until there is room again.
+     * Callers that must not block (broadcasts, the selector thread) disconnect the Client instead
+     */
+    BLOCK,
+    /**
+     * The oldest queued frames are dropped to make room
+     */
+    DROP_OLDEST,
+    /**
+     * Once past the high watermark, frames of coalesced opcodes replace older queued frames of the same opcode,
+     * so only the latest state update is kept. If that does not free enough room the Client is disconnected
+     */
+    COALESCE,
+    /**
+     * The Client is disconnected
+     */
+    DISCONNECT,
+}
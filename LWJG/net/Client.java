@@ -2,22 +2,37 @@ package LWJG.net;
 
 import javax.net.ssl.SSLSocket;
 
+import LWJG.net.nio.NioConnection;
+import LWJG.net.transport.StreamConnection;
+
 /**
  * Server Client Object, abstracts client sockets for easier handling
- * {@link #listeners} Includes a basic listener Map that lets utilities easiely interface with Client requests to the Server
- * <br><b>WARNING: Only 256 Possible Opcodes for now!</b>
+ * {@link #listeners} Includes a basic listener table that lets utilities easiely interface with Client requests to the Server
  * @author Marius Baumgartner
- * @version 2025-05-03T1:28
+ * @version 2026-10-18T21:00
  * @side Server
  */
 public class Client extends Dispatcher {
     private ClientPermission permission;
+    private ClientManager manager;
+    private long id;
+    private String host;
 
     public Client(SSLSocket socket, ClientPermission perm, int bufsize) {
         super(socket, bufsize);
         this.permission = perm;
     }
 
+    public Client(StreamConnection stream, ClientPermission perm, int bufsize) {
+        super(stream, bufsize);
+        this.permission = perm;
+    }
+
+    public Client(NioConnection connection, ClientPermission perm) {
+        super(connection);
+        this.permission = perm;
+    }
+
     /**
      * Get Permissions
      * @return Permissions
@@ -33,4 +48,32 @@ public class Client extends Dispatcher {
     public void setPermission(ClientPermission permission) {
         this.permission = permission;
     }
-}
\ No newline at end of file
+
+    void register(ClientManager manager, long id, String host) {
+        this.manager = manager;
+        this.id = id;
+        this.host = host;
+    }
+
+    /**
+     * Get the connection id, unique per ClientManager
+     * @return Connection id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Get the remote host
+     * @return IP, e.g. 192.168.178.1, or the transport address for non IP transports
+     */
+    public String getHost() {
+        return host;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (manager != null) manager.remove(this);
+    }
+}
@@ -1,30 +1,55 @@
 package LWJG.net;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.SSLSocket;
 
+import LWJG.net.codec.MessageCodec;
+import LWJG.net.nio.NioConnection;
+import LWJG.net.transport.SocketConnection;
+import LWJG.net.transport.StreamConnection;
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
+import LWJG.net.util.metrics.NetMetrics;
+
 /**
  * Client Manager Class to manage all current Clients connected to the Server
- * {@link #clients} All currently connected clients
- * {@link #blacklist} All currently blacklisted clients (aborted upon connection attempt)
+ * {@link #clients} All currently connected clients, indexed by connection id
+ * {@link #hosts} All currently connected clients, indexed by remote address
+ * {@link #blocklist} All currently blocked addresses and ranges (aborted upon connection attempt)
  * {@link #defaultPerm} The default permission all clients should recieve
  * {@link #clientConnectedListeners} All Event Listeners that will be invoked once a new client has connected
+ * <br>Safe to use from any thread, Clients remove themselves once their connection closes
+ * <br>With a {@link Compression} set, new Clients negotiate compression and broadcasts are compressed once for all of them
+ * <br>With a heartbeat set, dead Clients are closed by their idle timeouts instead of lingering until a write fails
  * @author Marius Baumgartner
- * @version 2025-05-03T3:58
+ * @version 2026-10-18T23:59
  * @side Server
  */
 public class ClientManager {
-    private List<Client> clients;
-    private List<String> blacklist;
+    private final Map<Long, Client> clients = new ConcurrentHashMap<>();
+    private final Map<String, Set<Client>> hosts = new ConcurrentHashMap<>();
+    private final AddressBlocklist blocklist = new AddressBlocklist();
+    private final AtomicLong ids = new AtomicLong();
     private ClientPermission defaultPerm;
+    private volatile Compression compression;
+    private volatile long[] heartbeat = { 0, 0, 0 }; /* interval, read timeout, write timeout */
+    private volatile NetMetrics metrics = NetMetrics.getDefault();
 
-    private final List<ClientConnectedListener> clientConnectedListeners = new ArrayList<>();
+    private final List<ClientConnectedListener> clientConnectedListeners = new CopyOnWriteArrayList<>();
 
     public ClientManager(ClientPermission permission) {
-        this.clients = new ArrayList<>();
-        this.blacklist = new ArrayList<>();
         this.defaultPerm = permission;
     }
 
@@ -46,87 +71,298 @@ public class ClientManager {
 
     /**
      * Get current Clients
-     * @return List<Client> clients
+     * @return List<Client> snapshot of the clients
      */
     public List<Client> getClients() {
-        return clients;
+        return new ArrayList<>(clients.values());
+    }
+
+    /**
+     * Get amount of current Clients
+     * @return Clients
+     */
+    public int size() {
+        return clients.size();
     }
 
     public Client add(SSLSocket c) {
-        if(true || !clients.stream().anyMatch(client -> client.getSocket().getInetAddress().getHostAddress().equals(c.getInetAddress().getHostAddress()))) {
-            Client client = new Client(c, defaultPerm, 1024);
-            clients.add(client);
-            for (ClientConnectedListener listener : clientConnectedListeners) {
-                listener.onClientConnected(client);
-            }
-            return client;
+        return add(new SocketConnection(c));
+    }
+
+    /**
+     * Adds a Client in blocking mode
+     * @param c Accepted connection
+     * @return Client
+     */
+    public Client add(StreamConnection c) {
+        return register(new Client(c, defaultPerm, 1024));
+    }
+
+    /**
+     * Adds a Client served by a selector pool
+     * @param c Accepted connection
+     * @return Client
+     */
+    public Client add(NioConnection c) {
+        return register(new Client(c, defaultPerm));
+    }
+
+    private Client register(Client client) {
+        long id = ids.incrementAndGet();
+        String host = host(client.getRemoteAddress());
+        client.register(this, id, host);
+        client.setCompression(compression);
+        long[] h = heartbeat;
+        client.setHeartbeat(h[0], h[1], h[2]);
+        NetMetrics m = metrics;
+        client.setMetrics(m);
+        if (m != null) m.recordConnect();
+        clients.put(id, client);
+        hosts.computeIfAbsent(host, k -> ConcurrentHashMap.newKeySet()).add(client);
+        for (ClientConnectedListener listener : clientConnectedListeners) {
+            listener.onClientConnected(client);
         }
-        return null;
+        return client;
+    }
+
+    private static String host(SocketAddress address) {
+        if (address instanceof InetSocketAddress) {
+            InetSocketAddress a = (InetSocketAddress) address;
+            return a.getAddress() != null ? a.getAddress().getHostAddress() : a.getHostString();
+        }
+        return String.valueOf(address);
+    }
+
+    /**
+     * Drop a Client from the indices, called by the Client once it is closed
+     * @param client Client
+     */
+    void remove(Client client) {
+        if (!clients.remove(client.getId(), client)) return;
+        NetMetrics m = client.getMetrics();
+        if (m != null) m.recordDisconnect();
+        hosts.computeIfPresent(client.getHost(), (k, set) -> {
+            set.remove(client);
+            return set.isEmpty() ? null : set;
+        });
     }
 
     /**
      * Broadcast raw bytes to all Clients
+     * The frame is encoded once and shared by all Clients, writes happen on each Clients own writer
+     * so a slow Client does not delay the others
      * @param opcode Listener Opcode
      * @param b Bytes
      */
     public void broadcast(byte opcode, byte[] b) {
-        for (Client c : clients) {
-            c.send(opcode, b);
+        broadcast(opcode & 0xFF, ByteBuffer.wrap(b));
+    }
+
+    /**
+     * Broadcast raw bytes to all Clients
+     * @param opcode Listener Opcode 0-65535
+     * @param b Bytes
+     */
+    public void broadcast(int opcode, byte[] b) {
+        broadcast(opcode, ByteBuffer.wrap(b));
+    }
+
+    /**
+     * Broadcast a pooled payload to all Clients
+     * @param opcode Listener Opcode
+     * @param b Payload in read mode, the callers reference is released
+     */
+    public void broadcast(byte opcode, PooledBuffer b) {
+        broadcast(opcode & 0xFF, b);
+    }
+
+    /**
+     * Broadcast a pooled payload to all Clients
+     * @param opcode Listener Opcode 0-65535
+     * @param b Payload in read mode, the callers reference is released
+     */
+    public void broadcast(int opcode, PooledBuffer b) {
+        try {
+            broadcast(opcode, b.buffer());
+        } finally {
+            b.release();
         }
     }
 
     /**
-     * Get Client by String ip representation
+     * Encode a message once with its generated codec and broadcast it to all Clients
+     * @param codec Codec, see {@link LWJG.net.codec.Message}
+     * @param message Message
+     */
+    public <T> void broadcast(MessageCodec<T> codec, T message) {
+        if(codec.getOpcode() < 0) throw new IllegalArgumentException("Message has no opcode.");
+        broadcast(codec.getOpcode(), codec.encode(message));
+    }
+
+    private void broadcast(int opcode, ByteBuffer payload) {
+        PooledBuffer packed = null;
+        int dictionary = 0;
+        Compression comp = compression;
+        if (comp != null && payload.remaining() >= comp.getThreshold()) {
+            dictionary = comp.dictionaryFor(opcode);
+            PooledBuffer c = comp.deflate(payload, dictionary);
+            if (c != null) {
+                packed = encode(opcode, c.buffer(), true);
+                c.release();
+            }
+        }
+        PooledBuffer plain = null; /* only encoded if some Client did not negotiate compression */
+        try {
+            for (Client c : clients.values()) {
+                if (packed != null && c.acceptsCompressed(dictionary)) {
+                    c.enqueue(OutboundFrame.encoded(opcode, packed.retain()));
+                } else {
+                    if (plain == null) plain = encode(opcode, payload, false);
+                    c.enqueue(OutboundFrame.encoded(opcode, plain.retain()));
+                }
+            }
+        } finally {
+            if (packed != null) packed.release();
+            if (plain != null) plain.release();
+        }
+    }
+
+    private static PooledBuffer encode(int opcode, ByteBuffer payload, boolean compressed) {
+        PooledBuffer frame = BufferPool.getDefault().heap(OutboundFrame.headerLength(opcode) + payload.remaining());
+        OutboundFrame.putHeader(frame.buffer(), opcode, payload.remaining(), compressed).put(payload.duplicate()).flip();
+        return frame;
+    }
+
+    /**
+     * Set the compression of new Clients, Clients already connected keep theirs
+     * @param compression Settings and dictionaries, null to disable
+     */
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Set the heartbeat and idle timeouts of new Clients, see {@link Dispatcher#setHeartbeat(long, long, long)}
+     * @param interval Time between pings in ms, 0 sends none
+     * @param readTimeout Close after nothing was read for this long in ms, 0 disables
+     * @param writeTimeout Close after queued data made no progress for this long in ms, 0 disables
+     */
+    public void setHeartbeat(long interval, long readTimeout, long writeTimeout) {
+        if(interval < 0 || readTimeout < 0 || writeTimeout < 0) throw new IllegalArgumentException("Heartbeat interval and timeouts cannot be below 0.");
+        this.heartbeat = new long[] { interval, readTimeout, writeTimeout };
+    }
+
+    public long getHeartbeatInterval() {
+        return heartbeat[0];
+    }
+
+    public long getReadTimeout() {
+        return heartbeat[1];
+    }
+
+    public long getWriteTimeout() {
+        return heartbeat[2];
+    }
+
+    /**
+     * Set where new Clients record their traffic, connects and disconnects, see {@link Dispatcher#setMetrics(NetMetrics)}
+     * @param metrics Metrics or null to record nothing
+     */
+    public void setMetrics(NetMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public NetMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get Client by connection id
+     * @param id Connection id, see {@link Client#getId()}
+     * @return Client or null
+     */
+    public Client get(long id) {
+        return clients.get(id);
+    }
+
+    /**
+     * Get Client by String ip representation, if several Clients share the address any one of them is returned
      * @param ip IP, e.g. 192.168.178.1
-     * @return Client
+     * @return Client or null
      */
     public Client get(String ip) {
-        for(Client c : clients)
-            if(c.getSocket().getInetAddress().getHostAddress().equals(ip)) {
-                return c;
-            }
+        for (Client c : getAll(ip)) return c;
         return null;
     }
 
     /**
-     * Close Client by IP
+     * Get all Clients connected from a address
+     * @param ip IP, e.g. 192.168.178.1
+     * @return Clients, empty if none
+     */
+    public Set<Client> getAll(String ip) {
+        Set<Client> set = hosts.get(ip);
+        return set == null ? Collections.emptySet() : Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * Close all Clients connected from a IP
      * @param ip IP, e.g. 192.168.178.1
      * @return Closing Sucessful
      */
     public boolean close(String ip) {
-        Client c = get(ip);
-        if(c != null) { c.close(); clients.remove(c); return true; } return false;
+        Set<Client> set = hosts.get(ip);
+        if (set == null) return false;
+        for (Client c : set) c.close(); /* removes itself */
+        return true;
     }
 
     /**
-     * Checks if a client is blacklisted
+     * Checks if a client is blocked
      * @param ip Client ip
      * @return Is blocked
      */
     public boolean isBlocked(String ip) {
-        return blacklist.contains(ip);
+        return blocklist.isBlocked(ip);
     }
 
     /**
-     * Add Client to blacklist
-     * @param ip
+     * Checks if a client is blocked, used on every connection attempt
+     * @param address Client address
+     * @return Is blocked
+     */
+    public boolean isBlocked(InetAddress address) {
+        return blocklist.isBlocked(address);
+    }
+
+    /**
+     * Add Client or range to blocklist, already connected Clients are not closed
+     * @param ip IP or CIDR range, e.g. 192.168.178.1 or 10.0.0.0/8
      */
     public void block(String ip) {
-        if(!blacklist.contains(ip)) blacklist.add(ip);
+        blocklist.block(ip);
     }
 
     /**
-     * Remove Client from blacklist
-     * @param ip
+     * Remove Client or range from blocklist
+     * @param ip IP or CIDR range, exactly as blocked
      */
     public void unblock(String ip) {
-        if(blacklist.contains(ip)) blacklist.remove(ip);
+        blocklist.unblock(ip);
+    }
+
+    public AddressBlocklist getBlocklist() {
+        return blocklist;
     }
 
     /**
      * Close all clients
      */
     public void closeAllClients() {
-        for(Client c : clients) c.close();
+        for(Client c : clients.values()) c.close();
     }
 }
\ No newline at end of file
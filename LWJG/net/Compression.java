@@ -0,0 +1,301 @@
+package LWJG.net;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
+
+/**
+ * Per-frame payload compression, negotiated per connection with {@link LWJG.net.util.Opcodes#COMPRESSION}
+ * <br>Only payloads of at least {@link #getThreshold()} bytes are compressed, and only if the result is smaller.
+ * Compressed frames carry {@link FrameDecoder#COMPRESSED_FLAG} in their length and the payload
+ * <code>[uint16 dictionary][int32 raw length][raw deflate]</code>
+ * <br>Small, repetitive messages compress well with a shared dictionary: a sample of typical payloads
+ * that both sides {@link #addDictionary(int, byte[]) add} under the same id and {@link #setDictionary(int, int) assign} to opcodes.
+ * A dictionary is only used once the peer announced it, so both sides may roll out new ones independently
+ * <br>One instance may be shared by many Dispatchers, deflaters and inflaters are pooled
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:30
+ */
+public class Compression {
+    public static final int DEFAULT_THRESHOLD = 256;
+
+    /**
+     * Version of the negotiation message
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Length of the compressed payload header, dictionary id + raw length
+     */
+    static final int HEADER_LENGTH = 6;
+
+    private static final int MAX_POOLED = 64;
+
+    private final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> opcodeDictionaries = new ConcurrentHashMap<>();
+    private volatile int[] dictionaryIds = new int[0]; /* sorted, copy on write */
+
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledDeflaters = new AtomicInteger();
+    private final AtomicInteger pooledInflaters = new AtomicInteger();
+
+    private volatile int threshold = DEFAULT_THRESHOLD;
+    private volatile int level = Deflater.BEST_SPEED;
+
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong incompressible = new AtomicLong();
+
+    /**
+     * Add a shared dictionary, the peer needs the same bytes under the same id
+     * @param id Dictionary id 1-65535
+     * @param dictionary Sample of typical payloads, the most common content last
+     */
+    public synchronized void addDictionary(int id, byte[] dictionary) {
+        if(id < 1 || id > 0xFFFF) throw new IllegalArgumentException("Dictionary id must be 1-65535.");
+        if(dictionary == null || dictionary.length == 0) throw new IllegalArgumentException("Dictionary cannot be empty.");
+        dictionaries.put(id, dictionary.clone());
+        updateIds();
+    }
+
+    /**
+     * Remove a shared dictionary, opcodes assigned to it are sent without dictionary
+     * @param id Dictionary id
+     */
+    public synchronized void removeDictionary(int id) {
+        dictionaries.remove(id);
+        updateIds();
+    }
+
+    private void updateIds() {
+        dictionaryIds = dictionaries.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    /**
+     * Compress a opcode with a shared dictionary
+     * @param opcode Opcode 0-65535
+     * @param id Dictionary id, 0 for none
+     */
+    public void setDictionary(int opcode, int id) {
+        if(opcode < 0 || opcode > FrameDecoder.MAX_OPCODE) throw new IllegalArgumentException("Opcode must be 0-" + FrameDecoder.MAX_OPCODE + ".");
+        if(id < 0 || id > 0xFFFF) throw new IllegalArgumentException("Dictionary id must be 0-65535.");
+        if (id == 0) opcodeDictionaries.remove(opcode);
+        else opcodeDictionaries.put(opcode, id);
+    }
+
+    /**
+     * Get the ids of all dictionaries, announced to the peer
+     * @return Sorted ids
+     */
+    public int[] getDictionaryIds() {
+        return dictionaryIds.clone();
+    }
+
+    /**
+     * Set the minimum payload size to compress
+     * @param threshold Threshold in bytes
+     */
+    public void setThreshold(int threshold) {
+        if(threshold < 1) throw new IllegalArgumentException("Threshold cannot be below 1.");
+        this.threshold = threshold;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Set the deflate level, {@link Deflater#BEST_SPEED} by default
+     * @param level Level 0-9
+     */
+    public void setLevel(int level) {
+        if(level < 0 || level > 9) throw new IllegalArgumentException("Level must be 0-9.");
+        this.level = level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Encode the negotiation message <code>[uint8 version][uint16 count][uint16 dictionary]...</code>
+     * @return Payload
+     */
+    byte[] hello() {
+        int[] ids = dictionaryIds;
+        ByteBuffer b = ByteBuffer.allocate(3 + ids.length * 2).put((byte) VERSION).putShort((short) ids.length);
+        for (int id : ids) b.putShort((short) id);
+        return b.array();
+    }
+
+    /**
+     * Decode the negotiation message of the peer
+     * @param hello Payload
+     * @return Sorted dictionary ids the peer knows, null if the peer speaks a unknown version
+     * @throws ProtocolException If the message is malformed
+     */
+    static int[] parseHello(ByteBuffer hello) throws ProtocolException {
+        if (hello.remaining() < 3) throw new ProtocolException("Malformed compression negotiation");
+        if ((hello.get(hello.position()) & 0xFF) != VERSION) return null;
+        int count = hello.getShort(hello.position() + 1) & 0xFFFF;
+        if (hello.remaining() < 3 + count * 2) throw new ProtocolException("Malformed compression negotiation");
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) ids[i] = hello.getShort(hello.position() + 3 + i * 2) & 0xFFFF;
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Get the dictionary assigned to a opcode
+     * @param opcode Opcode
+     * @return Dictionary id, 0 for none
+     */
+    int dictionaryFor(int opcode) {
+        Integer id = opcodeDictionaries.get(opcode);
+        return id != null && dictionaries.containsKey(id) ? id : 0;
+    }
+
+    /**
+     * Compress a payload if it is worth it
+     * @param payload Payload in read mode, not consumed
+     * @param id Dictionary id, 0 for none
+     * @return Compressed payload in read mode, or null if the payload is below the threshold or does not get smaller
+     */
+    PooledBuffer deflate(ByteBuffer payload, int id) {
+        int raw = payload.remaining();
+        if (raw < threshold || raw <= HEADER_LENGTH) return null;
+        byte[] dictionary = id != 0 ? dictionaries.get(id) : null;
+        if (dictionary == null) id = 0; /* removed meanwhile */
+        PooledBuffer out = BufferPool.getDefault().heap(raw); /* only worth it if the result is smaller */
+        ByteBuffer o = out.buffer();
+        Deflater d = borrowDeflater();
+        try {
+            if (dictionary != null) d.setDictionary(dictionary);
+            d.setInput(payload.duplicate());
+            d.finish();
+            o.putShort((short) id).putInt(raw);
+            while (!d.finished() && o.hasRemaining()) d.deflate(o);
+            if (!d.finished()) {
+                incompressible.incrementAndGet();
+                out.release();
+                return null;
+            }
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        } finally {
+            returnDeflater(d);
+        }
+        o.flip();
+        rawBytes.addAndGet(raw);
+        compressedBytes.addAndGet(o.remaining());
+        return out;
+    }
+
+    /**
+     * Decompress a payload
+     * @param compressed Compressed payload in read mode
+     * @param maxSize Maximum raw length
+     * @return Raw payload in read mode
+     * @throws ProtocolException If the payload is malformed, too large or needs a unknown dictionary
+     */
+    PooledBuffer inflate(ByteBuffer compressed, int maxSize) throws ProtocolException {
+        if (compressed.remaining() < HEADER_LENGTH) throw new ProtocolException("Compressed frame without header");
+        int id = compressed.getShort(compressed.position()) & 0xFFFF;
+        int raw = compressed.getInt(compressed.position() + 2);
+        if (raw < 0 || raw > maxSize) throw new ProtocolException("Compressed frame length " + raw + " outside of 0-" + maxSize);
+        byte[] dictionary = null;
+        if (id != 0 && (dictionary = dictionaries.get(id)) == null) throw new ProtocolException("Unknown compression dictionary " + id);
+        PooledBuffer out = BufferPool.getDefault().heap(raw);
+        ByteBuffer o = out.buffer();
+        Inflater inf = borrowInflater();
+        try {
+            if (dictionary != null) inf.setDictionary(dictionary);
+            inf.setInput(compressed.slice(compressed.position() + HEADER_LENGTH, compressed.remaining() - HEADER_LENGTH));
+            while (!inf.finished() && o.hasRemaining()) {
+                if (inf.inflate(o) == 0 && (inf.needsInput() || inf.needsDictionary())) break;
+            }
+            if (o.hasRemaining() || (!inf.finished() && !inf.needsInput())) throw new ProtocolException("Compressed frame does not match its length " + raw);
+        } catch (DataFormatException e) {
+            out.release();
+            throw new ProtocolException("Corrupt compressed frame: " + e.getMessage());
+        } catch (ProtocolException | RuntimeException e) {
+            out.release();
+            throw e;
+        } finally {
+            returnInflater(inf);
+        }
+        o.flip();
+        return out;
+    }
+
+    private Deflater borrowDeflater() {
+        Deflater d = deflaters.poll();
+        if (d == null) return new Deflater(level, true);
+        pooledDeflaters.decrementAndGet();
+        d.setLevel(level);
+        return d;
+    }
+
+    private void returnDeflater(Deflater d) {
+        d.reset();
+        if (pooledDeflaters.incrementAndGet() <= MAX_POOLED) deflaters.add(d);
+        else {
+            pooledDeflaters.decrementAndGet();
+            d.end();
+        }
+    }
+
+    private Inflater borrowInflater() {
+        Inflater inf = inflaters.poll();
+        if (inf == null) return new Inflater(true);
+        pooledInflaters.decrementAndGet();
+        return inf;
+    }
+
+    private void returnInflater(Inflater inf) {
+        inf.reset();
+        if (pooledInflaters.incrementAndGet() <= MAX_POOLED) inflaters.add(inf);
+        else {
+            pooledInflaters.decrementAndGet();
+            inf.end();
+        }
+    }
+
+    /**
+     * Get the raw size of all compressed payloads
+     * @return Bytes
+     */
+    public long getRawBytes() {
+        return rawBytes.get();
+    }
+
+    /**
+     * Get the compressed size of all compressed payloads, including their header
+     * @return Bytes
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * Get the amount of payloads above the threshold that did not get smaller and were sent raw
+     * @return Payloads
+     */
+    public long getIncompressible() {
+        return incompressible.get();
+    }
+}
@@ -0,0 +1,87 @@
+package LWJG.net;
+
+import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per address token bucket for connection attempts
+ * <br>Every address may connect {@link #getBurst()} times at once and then {@link #getRate()} times per second,
+ * buckets of addresses that stayed away long enough to be full again are pruned
+ * @author Marius Baumgartner
+ * @version 2026-10-18T19:30
+ */
+public class ConnectRateLimiter {
+    private static final int PRUNE_INTERVAL = 4096; /* attempts between pruning idle buckets */
+
+    private static final class Bucket {
+        private double tokens;
+        private long last;
+
+        private Bucket(double tokens, long last) {
+            this.tokens = tokens;
+            this.last = last;
+        }
+    }
+
+    private final Map<InetAddress, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final double rate;
+    private final int burst;
+
+    /**
+     * @param rate Connections per second and address
+     * @param burst Connections an address may open at once
+     */
+    public ConnectRateLimiter(double rate, int burst) {
+        if(rate <= 0 || burst < 1) throw new IllegalArgumentException("Rate must be above 0 and burst at least 1.");
+        this.rate = rate;
+        this.burst = burst;
+    }
+
+    /**
+     * Take a token for a connection attempt
+     * @param address Remote address
+     * @return False if the address is over its rate
+     */
+    public boolean tryAcquire(InetAddress address) {
+        long now = System.nanoTime();
+        if (attempts.incrementAndGet() % PRUNE_INTERVAL == 0) prune(now);
+        Bucket b = buckets.computeIfAbsent(address, k -> new Bucket(burst, now));
+        synchronized (b) {
+            b.tokens = Math.min(burst, b.tokens + (now - b.last) * rate / 1e9);
+            b.last = now;
+            if (b.tokens < 1) return false;
+            b.tokens--;
+            return true;
+        }
+    }
+
+    private void prune(long now) {
+        long full = (long) (burst / rate * 1e9);
+        for (Iterator<Bucket> it = buckets.values().iterator(); it.hasNext();) {
+            Bucket b = it.next();
+            synchronized (b) {
+                if (now - b.last >= full) it.remove(); /* a new bucket would start full anyway */
+            }
+        }
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Get the amount of addresses currently tracked
+     * @return Addresses
+     */
+    public int size() {
+        return buckets.size();
+    }
+}
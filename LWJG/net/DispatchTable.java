@@ -0,0 +1,89 @@
+package LWJG.net;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Opcode to listener table, looked up by plain array indexing
+ * The 16-bit opcode space is split into 256 pages of 256 slots, pages are only allocated once a listener is added to them.
+ * Slots hold copy-on-write arrays, so dispatching never locks, boxes or allocates
+ * @author Marius Baumgartner
+ * @version 2026-10-18T20:10
+ */
+public class DispatchTable {
+    private static final IOEventListener[] NONE = new IOEventListener[0];
+    /* release/acquire access so readers see fully built arrays without locking */
+    private static final VarHandle PAGES = MethodHandles.arrayElementVarHandle(IOEventListener[][][].class);
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(IOEventListener[][].class);
+
+    private final IOEventListener[][][] pages = new IOEventListener[256][][];
+
+    /**
+     * Get all listeners of a opcode
+     * @param opcode Opcode 0-65535
+     * @return Listeners, never null, must not be modified
+     */
+    public IOEventListener[] get(int opcode) {
+        IOEventListener[][] page = (IOEventListener[][]) PAGES.getAcquire(pages, (opcode >>> 8) & 0xFF);
+        if (page == null) return NONE;
+        IOEventListener[] l = (IOEventListener[]) SLOTS.getAcquire(page, opcode & 0xFF);
+        return l == null ? NONE : l;
+    }
+
+    /**
+     * Add a listener
+     * @param opcode Opcode 0-65535
+     * @param l Listener
+     */
+    public synchronized void add(int opcode, IOEventListener l) {
+        checkOpcode(opcode);
+        IOEventListener[][] page = pages[opcode >>> 8];
+        if (page == null) {
+            page = new IOEventListener[256][];
+            PAGES.setRelease(pages, opcode >>> 8, page);
+        }
+        IOEventListener[] old = get(opcode);
+        IOEventListener[] n = new IOEventListener[old.length + 1];
+        System.arraycopy(old, 0, n, 0, old.length);
+        n[old.length] = l;
+        SLOTS.setRelease(page, opcode & 0xFF, n);
+    }
+
+    /**
+     * Remove a listener
+     * @param opcode Opcode 0-65535
+     * @param l Listener
+     * @return If it was registered
+     */
+    public synchronized boolean remove(int opcode, IOEventListener l) {
+        checkOpcode(opcode);
+        IOEventListener[] old = get(opcode);
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] != l) continue;
+            IOEventListener[] n = new IOEventListener[old.length - 1];
+            System.arraycopy(old, 0, n, 0, i);
+            System.arraycopy(old, i + 1, n, i, n.length - i);
+            SLOTS.setRelease(pages[opcode >>> 8], opcode & 0xFF, n.length == 0 ? null : n);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Add all listeners of another table
+     * @param other Table
+     */
+    public synchronized void addAll(DispatchTable other) {
+        for (int op = 0; op <= FrameDecoder.MAX_OPCODE; op++) {
+            if ((op & 0xFF) == 0 && PAGES.getAcquire(other.pages, op >>> 8) == null) {
+                op += 0xFF; /* skip empty page */
+                continue;
+            }
+            for (IOEventListener l : other.get(op)) add(op, l);
+        }
+    }
+
+    private static void checkOpcode(int opcode) {
+        if(opcode < 0 || opcode > FrameDecoder.MAX_OPCODE) throw new IllegalArgumentException("Opcode must be 0-" + FrameDecoder.MAX_OPCODE + ".");
+    }
+}
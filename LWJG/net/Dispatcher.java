@@ -1,41 +1,107 @@
 package LWJG.net;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ProtocolException;
 import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-import static LWJG.net.util.bin.ByteWizard.toBytes;
-import static LWJG.net.util.bin.ByteWizard.toInteger;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLSocket;
 
+import LWJG.net.codec.MessageCodec;
+import LWJG.net.nio.ConnectionHandler;
+import LWJG.net.nio.NioConnection;
+import LWJG.net.transport.SocketConnection;
+import LWJG.net.transport.StreamConnection;
+import LWJG.net.util.Opcodes;
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
+import LWJG.net.util.metrics.NetMetrics;
+import LWJG.net.util.timer.TimerWheel;
+
 /**
  * Dispatcher Object to abstract sending and recieving
- * {@link #listeners} Includes a basic listener Map that lets utilities easiely interface with Client requests to the Server
- * <br><b>WARNING: Only 256 Possible Opcodes for now!</b>
+ * {@link #listeners} Includes a basic listener table that lets utilities easiely interface with Client requests to the Server
+ * <br>Runs either in blocking mode on its own (virtual) thread over a {@link StreamConnection},
+ * or in selector mode over a {@link NioConnection} served by a shared {@link LWJG.net.nio.SelectorPool}.
+ * Both are created by a {@link LWJG.net.transport.Transport}
+ * <br>Opcodes are 16-bit, byte opcodes are treated as unsigned 0-255. Opcodes above 254 are send as extended frames,
+ * see {@link LWJG.net.util.Opcodes} for reserving ranges
+ * <br>With a {@link Compression} set on both sides, large payloads are compressed once the peer announced it
+ * <br>{@link #setHeartbeat(long, long, long)} detects dead peers with heartbeats and idle timeouts and measures the round trip time
+ * <br>Traffic, frames per read and listener run time are recorded into {@link NetMetrics#getDefault()} unless {@link #setMetrics(NetMetrics)} says otherwise
+ * <br>{@link #request(int, byte[])} pipelines requests to {@link RequestHandler}s of the peer, matched to their responses by a per connection id
  * @author Marius Baumgartner
- * @version 2025-05-03T1:28
+ * @version 2026-10-18T23:59
  */
 public class Dispatcher implements Runnable {
-    private final SSLSocket socket;
-    private final byte[] buffer;
+    public static final long DEFAULT_REQUEST_TIMEOUT = 10_000;
+
+    private final StreamConnection stream;
+    private final NioConnection connection;
+    private final int bufsize; /* blocking mode only, selector mode reads into the connection buffer */
+    @SuppressWarnings("this-escape") /* only called back from decode(), after construction */
+    private final FrameDecoder decoder = new FrameDecoder(this::dispatch);
+    @SuppressWarnings("this-escape") /* only called back once frames are queued, after construction */
+    private final OutboundQueue outbound = new OutboundQueue(this::notifyWritability);
+    private final List<WritabilityListener> writabilityListeners = new CopyOnWriteArrayList<>();
     private volatile boolean running;
 
-    private final Map<Byte, List<IOEventListener>> listeners = new ConcurrentHashMap<>();
+    private final DispatchTable listeners = new DispatchTable();
+    @SuppressWarnings("this-escape") /* only stored, requests are sent after construction */
+    private final Requests requests = new Requests(this);
+    @SuppressWarnings("this-escape") /* only stored, the timer is armed by run() */
+    private final Heartbeat heartbeat = new Heartbeat(this, outbound);
+
+    private static final int RECORD_SIZE = 16384; /* max TLS record payload */
+    private static final int COMPRESSION = Opcodes.COMPRESSION.getOpcode();
+
+    private volatile Compression compression;
+    private volatile int[] peerDictionaries; /* null until the peer announced compression */
 
-    private static final ExecutorService backgroundTaskExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile NetMetrics metrics = NetMetrics.getDefault();
+    private int framesRead; /* receiving thread only */
+
+    private volatile HandlerExecutor handlers = HandlerExecutor.getDefault();
+    @SuppressWarnings("this-escape") /* the lane only keeps the reference, tasks are submitted after construction */
+    private volatile HandlerExecutor.Lane lane = handlers.newLane(this);
 
     public Dispatcher(SSLSocket socket, int bufsize) {
+        this(new SocketConnection(socket), bufsize);
+    }
+
+    /**
+     * Create a Dispatcher in blocking mode
+     * @param stream Connection, read by {@link #run()}
+     * @param bufsize Receive buffer size
+     */
+    public Dispatcher(StreamConnection stream, int bufsize) {
+        if(bufsize < FrameDecoder.HEADER_LENGTH) throw new IllegalArgumentException("Buffer size cannot be below " + FrameDecoder.HEADER_LENGTH + ".");
         this.running = true;
-        this.buffer = new byte[bufsize];
-        this.socket = socket;
+        this.bufsize = bufsize;
+        this.stream = stream;
+        this.connection = null;
+        outbound.setMetrics(metrics);
+    }
+
+    /**
+     * Create a Dispatcher in selector mode
+     * Buffers are sized by the connection from its TLS session
+     * @param connection Non-blocking connection, {@link #run()} registers it with its selector pool
+     */
+    public Dispatcher(NioConnection connection) {
+        this.running = true;
+        this.bufsize = 0;
+        this.stream = null;
+        this.connection = connection;
+        outbound.setMetrics(metrics);
     }
 
     /**
@@ -44,9 +110,16 @@ public class Dispatcher implements Runnable {
      * @param l Listener
      */
     public void addEventListener(byte opcode, IOEventListener l) {
-        listeners
-          .computeIfAbsent(opcode, k -> new CopyOnWriteArrayList<>())
-          .add(l);
+        addEventListener(opcode & 0xFF, l);
+    }
+
+    /**
+     * Add new Event Listener
+     * @param opcode Opcode 0-65535 to be invoked by
+     * @param l Listener
+     */
+    public void addEventListener(int opcode, IOEventListener l) {
+        listeners.add(opcode, l);
     }
 
     /**
@@ -55,97 +128,734 @@ public class Dispatcher implements Runnable {
      * @param l Listener
      */
     public void removeEventListener(byte opcode, IOEventListener l) {
-        List<IOEventListener> lst = listeners.get(opcode);
-        if (lst != null) lst.remove(l);
+        removeEventListener(opcode & 0xFF, l);
+    }
+
+    /**
+     * Remove a existing Event Listener
+     * @param opcode Opcode 0-65535 to be invoked by
+     * @param l Listener
+     */
+    public void removeEventListener(int opcode, IOEventListener l) {
+        listeners.remove(opcode, l);
     }
 
+    /**
+     * Blocking mode: read loop, returns once the connection is closed
+     * <br>Selector mode: registers the connection and returns immediately
+     */
     @Override
     public void run() {
-        int payloadLen;
-        byte code;
-        int chunkLen;
-        int readSoFar;
-        int toRead;
-        int r;
-        try (InputStream in = socket.getInputStream()) {
+        Compression c = compression;
+        if (c != null) send(COMPRESSION, c.hello());
+        if (connection != null) {
+            connection.open(new ConnectionHandler() {
+                @Override
+                public void onData(ByteBuffer data) {
+                    receive(data);
+                }
+
+                @Override
+                public void onClose() {
+                    close();
+                    decoder.reset();
+                }
+            }, outbound);
+            connection.handshake().thenRun(heartbeat::start); /* idle time and round trips count from the established session */
+            return;
+        }
+        heartbeat.start();
+        PooledBuffer pooled = BufferPool.getDefault().heap(bufsize);
+        ByteBuffer buffer = pooled.buffer();
+        try (InputStream in = stream.getInputStream()) {
             int len;
-            while ((len = in.read(buffer)) != -1 && running) {
-                if (len < 5) continue;
-                code = buffer[0];
-                payloadLen = toInteger(new byte[]{buffer[1], buffer[2], buffer[3], buffer[4]});
+            while (running && (len = in.read(buffer.array(), buffer.position(), buffer.remaining())) != -1) {
+                buffer.position(buffer.position() + len);
+                heartbeat.onRead();
+                buffer.flip();
+                decoder.decode(buffer);
+                recordRead();
+                buffer.compact();
+            }
+        } catch (IOException e) {
+            if (running) e.printStackTrace();
+        } finally {
+            close();
+            decoder.reset();
+            pooled.release();
+        }
+    }
 
-                ByteArrayOutputStream stream = new ByteArrayOutputStream(payloadLen);
+    /**
+     * Selector mode: consume all complete frames, partial frames stay in the connection buffer
+     * @param data Decrypted bytes in read mode
+     */
+    private void receive(ByteBuffer data) {
+        heartbeat.onRead();
+        try {
+            decoder.decode(data);
+        } catch (ProtocolException e) {
+            System.err.println("Closing connection: " + e.getMessage());
+            close();
+        } catch (RuntimeException e) { /* a inline listener rejected the frame, close like blocking mode does */
+            System.err.println("Closing connection: listener failed: " + e);
+            close();
+        }
+        recordRead();
+    }
 
-                chunkLen = len - 5;
-                if (chunkLen > 0) {
-                    stream.write(buffer, 5, chunkLen);
-                }
+    private void recordRead() {
+        NetMetrics m = metrics;
+        if (m != null) m.recordRead(framesRead);
+        framesRead = 0;
+    }
 
-                readSoFar = chunkLen;
-                while (readSoFar < payloadLen) {
-                    toRead = Math.min(buffer.length, payloadLen - readSoFar);
-                    r = in.read(buffer, 0, toRead);
-                    if (r == -1) throw new IOException("Stream closed prematurely");
-                    stream.write(buffer, 0, r); // only writes actual read instead of entire buffer
-                    readSoFar += r;
-                }
+    /**
+     * Inflate compressed frames and handle the compression negotiation before any listener sees them
+     * @param code Opcode
+     * @param payload Payload
+     * @param compressed If the payload is compressed
+     * @throws ProtocolException If the peer sends compressed frames that cannot be inflated
+     */
+    private void dispatch(int code, ByteBuffer payload, boolean compressed) throws ProtocolException {
+        framesRead++;
+        NetMetrics m = metrics;
+        if (m != null) m.recordIn(isHandled(code) ? code : NetMetrics.UNKNOWN, OutboundFrame.headerLength(code) + payload.remaining());
+        if (compressed) {
+            Compression c = compression;
+            if (c == null) throw new ProtocolException("Compressed frame without negotiated compression");
+            PooledBuffer raw = c.inflate(payload, decoder.getMaxFrameSize());
+            try {
+                route(code, raw.buffer());
+            } finally {
+                raw.release();
+            }
+        } else {
+            route(code, payload);
+        }
+    }
 
-                final byte[] payload = stream.toByteArray();
+    /**
+     * Check if a opcode has listeners or is reserved, the peer picks opcodes so only those get their own metrics
+     * @param code Opcode
+     * @return If something handles it
+     */
+    private boolean isHandled(int code) {
+        return listeners.get(code).length > 0 || Opcodes.isReserved(code);
+    }
+
+    /**
+     * Hand a inflated payload to the negotiation, heartbeats, requests or the listeners
+     * @param code Opcode
+     * @param payload Payload
+     * @throws ProtocolException If a negotiation or request frame is malformed
+     */
+    private void route(int code, ByteBuffer payload) throws ProtocolException {
+        if (code == COMPRESSION) {
+            if (compression != null) peerDictionaries = Compression.parseHello(payload);
+        } else if (code == Heartbeat.HEARTBEAT) {
+            heartbeat.onFrame(payload);
+        } else if (code == Requests.RPC_REQUEST) {
+            requests.onRequest(payload);
+        } else if (code == Requests.RPC_RESPONSE) {
+            requests.onResponse(payload);
+        } else {
+            dispatch(code, payload);
+        }
+    }
+
+    /**
+     * Invoke all Listeners for a opcode
+     * Inline listeners get the payload slice directly, heavy ones a copy as the receive buffer is reused.
+     * Heavy ones are queued on this connection's lane of the {@link HandlerExecutor}
+     * @param code Opcode
+     * @param payload Payload
+     */
+    private void dispatch(int code, ByteBuffer payload) {
+        dispatch(code, listeners.get(code), payload, false);
+    }
 
-                List<IOEventListener> lst = listeners.get(code);
+    /**
+     * Invoke the listeners of another table as if the message had arrived on this connection,
+     * used by secondary channels such as {@link LWJG.net.datagram.DatagramEndpoint} so heavy listeners share this connection's lane
+     * <br>Never blocks, heavy listeners past the queue limits are dropped
+     * @param table Listener table
+     * @param code Opcode
+     * @param payload Payload, only valid for the duration of the call
+     */
+    public void dispatch(DispatchTable table, int code, ByteBuffer payload) {
+        if (running) dispatch(code, table.get(code), payload, true);
+    }
 
-                if (lst != null) 
-                    for (IOEventListener l : lst) 
-                        if(l.isHeavyTask())
-                            backgroundTaskExecutor.submit(() -> {
-                                try { l.onEvent(this, payload); } catch (Exception e) { /* handle */ }
-                            });
-                        else l.onEvent(this, payload);
+    void dispatch(int code, IOEventListener[] lst, ByteBuffer payload, boolean lossy) {
+        int position = payload.position(), limit = payload.limit(); /* the buffer is usually larger than the frame */
+        byte[] copy = null;
+        for (int i = 0; i < lst.length; i++) {
+            IOEventListener l = lst[i];
+            if(l.isHeavyTask()) {
+                if (copy == null) {
+                    copy = new byte[payload.remaining()];
+                    payload.get(payload.position(), copy);
+                }
+                if (!lane.submit(code, l, copy, !lossy && connection == null) && !lossy && handlers.getPolicy() != RejectionPolicy.DROP) {
+                    if (running) {
+                        System.err.println("Closing connection: handler queue full (" + handlers.getPolicy() + ")");
+                        close();
+                    }
+                    return;
+                }
+            } else {
+                NetMetrics m = metrics;
+                if (m == null) {
+                    l.onEvent(this, payload);
+                } else {
+                    long start = System.nanoTime();
+                    l.onEvent(this, payload);
+                    m.recordListener(code, false, System.nanoTime() - start);
+                }
+                payload.limit(limit).position(position);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            close();
         }
     }
 
+    /**
+     * Set the maximum payload length that will be accepted, the connection is closed on larger frames
+     * @param maxFrameSize Maximum payload length in bytes
+     */
+    public void setMaxFrameSize(int maxFrameSize) {
+        decoder.setMaxFrameSize(maxFrameSize);
+    }
+
+    /**
+     * Get the maximum payload length that will be accepted
+     * @return Maximum payload length in bytes
+     */
+    public int getMaxFrameSize() {
+        return decoder.getMaxFrameSize();
+    }
+
     /**
      * Send a payload to Client
+     * The payload is copied, the array may be reused right away
      * @param b payload
      * @param opcode opcode
      */
     public void send(byte opcode, byte[] b) {
-        byte[] tmp = new byte[b.length+5];
-        tmp[0] = opcode;
-        byte[] len = toBytes(b.length);
-        tmp[1] = len[0];
-        tmp[2] = len[1];
-        tmp[3] = len[2];
-        tmp[4] = len[3];
-        for(int i = 0; i < b.length; i++) tmp[5+i] = b[i];
-        send(tmp);
+        send(opcode & 0xFF, b);
+    }
+
+    /**
+     * Send a payload to Client
+     * The payload is copied, the array may be reused right away
+     * @param b payload
+     * @param opcode opcode 0-65535
+     */
+    public void send(int opcode, byte[] b) {
+        PooledBuffer compressed = compress(opcode, ByteBuffer.wrap(b));
+        if (compressed != null) {
+            send(OutboundFrame.compressed(opcode, compressed)); /* deflating already copied it */
+            return;
+        }
+        PooledBuffer copy = BufferPool.getDefault().heap(b.length);
+        copy.buffer().put(b).flip();
+        send(OutboundFrame.of(opcode, copy));
+    }
+
+    /**
+     * Send a payload to Client without copying
+     * The payload is queued as it is, do not modify it afterwards
+     * @param opcode opcode 0-65535
+     * @param payload payload in read mode
+     */
+    public void send(int opcode, ByteBuffer payload) {
+        PooledBuffer compressed = compress(opcode, payload);
+        send(compressed != null ? OutboundFrame.compressed(opcode, compressed) : OutboundFrame.of(opcode, payload));
+    }
+
+    /**
+     * Send a pooled payload to Client without copying
+     * @param opcode opcode
+     * @param payload payload in read mode, ownership of one reference is passed on and released once written
+     */
+    public void send(byte opcode, PooledBuffer payload) {
+        send(opcode & 0xFF, payload);
+    }
+
+    /**
+     * Send a pooled payload to Client without copying
+     * @param opcode opcode 0-65535
+     * @param payload payload in read mode, ownership of one reference is passed on and released once written
+     */
+    public void send(int opcode, PooledBuffer payload) {
+        PooledBuffer compressed = compress(opcode, payload.buffer());
+        if (compressed == null) {
+            send(OutboundFrame.of(opcode, payload));
+            return;
+        }
+        payload.release();
+        send(OutboundFrame.compressed(opcode, compressed));
+    }
+
+    /**
+     * Encode and send a message with its generated codec
+     * @param codec Codec, see {@link LWJG.net.codec.Message}
+     * @param message Message
+     */
+    public <T> void send(MessageCodec<T> codec, T message) {
+        if(codec.getOpcode() < 0) throw new IllegalArgumentException("Message has no opcode.");
+        send(codec.getOpcode(), codec.encode(message));
+    }
+
+    /**
+     * Send a request, answered by the {@link RequestHandler} the peer set for the opcode
+     * <br>Requests do not wait for each other, any amount can be in flight on the connection
+     * @param opcode Opcode 0-65535 of the handler
+     * @param payload Request payload, copied
+     * @return Future of the response payload, failed with a {@link RequestException} if the peer could not answer,
+     * a {@link java.util.concurrent.TimeoutException} after {@link #getRequestTimeout()} or a IOException once the connection closes
+     */
+    public CompletableFuture<byte[]> request(int opcode, byte[] payload) {
+        return request(opcode, payload, requests.getTimeout(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Send a request with its own deadline
+     * @param opcode Opcode 0-65535 of the handler
+     * @param payload Request payload, copied
+     * @param timeout Time to wait for the response
+     * @param unit Unit of timeout
+     * @return Future of the response payload
+     */
+    public CompletableFuture<byte[]> request(int opcode, byte[] payload, long timeout, TimeUnit unit) {
+        return requests.request(opcode, ByteBuffer.wrap(payload), timeout, unit);
+    }
+
+    /**
+     * Send a request encoded and answered with generated codecs
+     * @param codec Codec of the request, its opcode picks the handler
+     * @param message Request
+     * @param response Codec of the response
+     * @return Future of the decoded response
+     */
+    public <Q, R> CompletableFuture<R> request(MessageCodec<Q> codec, Q message, MessageCodec<R> response) {
+        if(codec.getOpcode() < 0) throw new IllegalArgumentException("Message has no opcode.");
+        PooledBuffer encoded = codec.encode(message);
+        try {
+            return requests.request(codec.getOpcode(), encoded.buffer(), requests.getTimeout(), TimeUnit.MILLISECONDS)
+                    .thenApply(b -> response.decode(ByteBuffer.wrap(b)));
+        } finally {
+            encoded.release();
+        }
+    }
+
+    /**
+     * Set the handler answering requests for a opcode, replacing the previous one
+     * @param opcode Opcode 0-65535
+     * @param handler Handler or null to remove it, requests then fail with {@link RequestException#NO_HANDLER}
+     */
+    public void setRequestHandler(int opcode, RequestHandler handler) {
+        requests.setHandler(opcode, handler);
+    }
+
+    /**
+     * Set the deadline of requests made without one
+     * @param millis Timeout in ms
+     */
+    public void setRequestTimeout(long millis) {
+        requests.setTimeout(millis);
+    }
+
+    public long getRequestTimeout() {
+        return requests.getTimeout();
+    }
+
+    /**
+     * Set the timer keeping request deadlines and heartbeats, {@link TimerWheel#getDefault()} by default
+     * <br>Applies to heartbeats from the next deadline on
+     * @param timer Timer
+     */
+    public void setTimerWheel(TimerWheel timer) {
+        requests.setTimer(timer);
+    }
+
+    public TimerWheel getTimerWheel() {
+        return requests.getTimer();
+    }
+
+    /**
+     * Enable heartbeats and idle timeouts, driven by the connection's {@link #getTimerWheel()}
+     * <br>Pings are answered by the peer regardless of its own settings, their answers feed {@link #getRtt()}.
+     * A read timeout of a few heartbeat intervals closes connections to peers that vanished without a FIN,
+     * a write timeout closes connections whose peer stopped reading while data is queued for it
+     * @param interval Time between pings in ms, 0 sends none
+     * @param readTimeout Close after nothing was read for this long in ms, 0 disables
+     * @param writeTimeout Close after queued data made no progress for this long in ms, 0 disables
+     */
+    public void setHeartbeat(long interval, long readTimeout, long writeTimeout) {
+        if(interval < 0 || readTimeout < 0 || writeTimeout < 0) throw new IllegalArgumentException("Heartbeat interval and timeouts cannot be below 0.");
+        heartbeat.configure(interval, readTimeout, writeTimeout);
+    }
+
+    public long getHeartbeatInterval() {
+        return heartbeat.getInterval();
+    }
+
+    public long getReadTimeout() {
+        return heartbeat.getReadTimeout();
+    }
+
+    public long getWriteTimeout() {
+        return heartbeat.getWriteTimeout();
+    }
+
+    /**
+     * Get when bytes were last read from the peer
+     * @return {@link System#nanoTime()} timestamp
+     */
+    public long getLastRead() {
+        return heartbeat.getLastRead();
+    }
+
+    /**
+     * Get the smoothed round trip time, measured by heartbeats
+     * @return Round trip time in ns, -1 until the first heartbeat was answered
+     */
+    public long getRtt() {
+        return heartbeat.getRtt();
+    }
+
+    /**
+     * Get the round trip time variation
+     * @return Mean deviation in ns
+     */
+    public long getRttVariance() {
+        return heartbeat.getRttVariance();
+    }
+
+    /**
+     * Get the latest round trip time sample
+     * @return Round trip time in ns, -1 until the first heartbeat was answered
+     */
+    public long getLastRtt() {
+        return heartbeat.getLastRtt();
+    }
+
+    /**
+     * Get the requests waiting for a response
+     * @return Open requests
+     */
+    public int getPendingRequests() {
+        return requests.getPending();
+    }
+
+    /**
+     * Compress a payload on the sending thread if the peer negotiated compression
+     * @return Compressed payload or null to send it raw
+     */
+    private PooledBuffer compress(int opcode, ByteBuffer payload) {
+        Compression c = compression;
+        int[] peer = peerDictionaries;
+        if (c == null || peer == null || payload.remaining() < c.getThreshold()) return null;
+        int id = c.dictionaryFor(opcode);
+        if (id != 0 && Arrays.binarySearch(peer, id) < 0) id = 0; /* peer does not know it (yet) */
+        return c.deflate(payload, id);
     }
 
     /**
      * Send raw bytes to Client
      * WARNING: Does not account for opcode or len
-     * @param b Bytes to be send
+     * @param b Bytes to be send, copied
      */
     public void send(byte[] b) {
-        try {
-            socket.getOutputStream().write(b);
-            socket.getOutputStream().flush();
-        } catch (IOException e) {
-            e.printStackTrace();
+        send(OutboundFrame.raw(ByteBuffer.wrap(b.clone())));
+    }
+
+    /**
+     * Queue a frame and make sure a writer drains it
+     * If the queue is full the {@link BackpressurePolicy} applies, the selector thread itself never blocks
+     * <br>In blocking mode the calling thread becomes the writer unless another thread already is, in which case it returns immediately
+     * @param frame Frame
+     */
+    protected void send(OutboundFrame frame) {
+        if (!offer(frame, connection == null || !connection.inEventLoop())) return;
+        if (connection != null) connection.flush();
+        else drain();
+    }
+
+    /**
+     * Queue a pooled payload without ever writing on the calling thread, for senders that must not block
+     * If the queue is full the {@link BackpressurePolicy} applies without blocking, so {@link BackpressurePolicy#BLOCK}
+     * closes the connection. Senders of bulk data should pace themselves with {@link #isWritable()}
+     * @param opcode opcode 0-65535
+     * @param payload payload in read mode, ownership of one reference is passed on and released once written
+     */
+    public void enqueue(int opcode, PooledBuffer payload) {
+        PooledBuffer compressed = compress(opcode, payload.buffer());
+        if (compressed == null) {
+            enqueue(OutboundFrame.of(opcode, payload));
+            return;
+        }
+        payload.release();
+        enqueue(OutboundFrame.compressed(opcode, compressed));
+    }
+
+    /**
+     * Queue a frame without ever writing on the calling thread
+     * In blocking mode a virtual thread is started to drain the queue if no writer is active,
+     * so one stalled socket cannot hold up the caller
+     * @param frame Frame
+     */
+    void enqueue(OutboundFrame frame) {
+        if (!offer(frame, false)) return;
+        if (connection != null) connection.flush();
+        else if (!outbound.isWriting()) Thread.startVirtualThread(this::drain);
+    }
+
+    private boolean offer(OutboundFrame frame, boolean mayBlock) {
+        NetMetrics m = metrics;
+        int opcode = frame.hasOpcode() ? frame.getOpcode() : -1, size = frame.remaining(); /* the frame may be written and released right after offering */
+        if (outbound.offer(frame, mayBlock)) {
+            if (m != null && opcode >= 0) m.recordOut(opcode, size);
+            return true;
         }
+        if (running) {
+            System.err.println("Closing connection: outbound queue full (" + outbound.getPolicy() + ")");
+            close();
+        }
+        return false;
+    }
+
+    /**
+     * Blocking mode: write everything queued, coalescing small frames into one record sized write
+     */
+    private void drain() {
+        while (!outbound.isEmpty() && outbound.acquireWriter()) {
+            PooledBuffer pooled = BufferPool.getDefault().heap(RECORD_SIZE);
+            ByteBuffer stage = pooled.buffer();
+            try {
+                OutputStream out = stream.getOutputStream();
+                OutboundFrame f;
+                while ((f = outbound.poll()) != null) {
+                    try {
+                        stage(out, stage, f.getHeader());
+                        stage(out, stage, f.getPayload());
+                    } finally {
+                        f.release();
+                    }
+                }
+                writeStage(out, stage);
+                out.flush();
+            } catch (IOException e) {
+                if (running) e.printStackTrace();
+                outbound.clear();
+                close();
+            } finally {
+                pooled.release();
+                outbound.releaseWriter();
+            }
+        }
+    }
+
+    private void stage(OutputStream out, ByteBuffer stage, ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            if (!stage.hasRemaining()) writeStage(out, stage);
+            int n = Math.min(stage.remaining(), src.remaining());
+            stage.put(stage.position(), src, src.position(), n);
+            stage.position(stage.position() + n);
+            src.position(src.position() + n);
+        }
+    }
+
+    private void writeStage(OutputStream out, ByteBuffer stage) throws IOException {
+        if (stage.position() == 0) return;
+        out.write(stage.array(), 0, stage.position());
+        stage.clear();
+    }
+
+    /**
+     * Add a listener for outbound watermark crossings
+     * @param l Listener
+     */
+    public void addWritabilityListener(WritabilityListener l) {
+        writabilityListeners.add(l);
+    }
+
+    /**
+     * Remove a listener for outbound watermark crossings
+     * @param l Listener
+     */
+    public void removeWritabilityListener(WritabilityListener l) {
+        writabilityListeners.remove(l);
+    }
+
+    private void notifyWritability(boolean writable) {
+        for (WritabilityListener l : writabilityListeners) l.onWritabilityChanged(this, writable);
+    }
+
+    /**
+     * Is the outbound queue below its high watermark, senders of non-essential data should hold back otherwise
+     * @return Writable
+     */
+    public boolean isWritable() {
+        return outbound.isWritable();
+    }
+
+    /**
+     * Set outbound watermarks and capacity
+     * @param low Writable again once queued bytes fall to this
+     * @param high Not writable once queued bytes exceed this
+     * @param capacity Maximum queued bytes before the {@link BackpressurePolicy} applies
+     */
+    public void setOutboundLimits(int low, int high, int capacity) {
+        if(high > capacity) throw new IllegalArgumentException("High watermark cannot exceed capacity.");
+        outbound.setWatermarks(low, high);
+        outbound.setCapacity(capacity);
+    }
+
+    /**
+     * Set what happens when the outbound queue is full
+     * @param policy Policy, {@link BackpressurePolicy#BLOCK} by default
+     */
+    public void setBackpressurePolicy(BackpressurePolicy policy) {
+        outbound.setPolicy(policy);
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return outbound.getPolicy();
+    }
+
+    /**
+     * Mark a opcode as state update, under {@link BackpressurePolicy#COALESCE} only its latest queued frame is kept
+     * @param opcode Opcode 0-255
+     * @param coalesce Coalesce
+     */
+    public void setCoalesced(byte opcode, boolean coalesce) {
+        setCoalesced(opcode & 0xFF, coalesce);
+    }
+
+    /**
+     * Mark a opcode as state update, under {@link BackpressurePolicy#COALESCE} only its latest queued frame is kept
+     * @param opcode Opcode 0-65535
+     * @param coalesce Coalesce
+     */
+    public void setCoalesced(int opcode, boolean coalesce) {
+        outbound.setCoalesced(opcode, coalesce);
+    }
+
+    /**
+     * Enable compression, must be set before {@link #run()} as it is announced to the peer from there
+     * Payloads are only compressed once the peer announced compression too
+     * @param compression Settings and dictionaries, may be shared by many Dispatchers, null to disable
+     */
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+        if (compression == null) peerDictionaries = null;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Did both sides agree on compression
+     * @return Negotiated
+     */
+    public boolean isCompressionNegotiated() {
+        return compression != null && peerDictionaries != null;
+    }
+
+    /**
+     * Would the peer accept a payload compressed with a dictionary
+     * @param dictionary Dictionary id, 0 for none
+     * @return Accepted
+     */
+    boolean acceptsCompressed(int dictionary) {
+        int[] peer = peerDictionaries;
+        return compression != null && peer != null && (dictionary == 0 || Arrays.binarySearch(peer, dictionary) >= 0);
+    }
+
+    /**
+     * Set the executor for heavy listeners, should be set before {@link #run()}
+     * Tasks already queued on the previous executor still run there, so ordering is only kept from here on
+     * @param handlers Executor
+     */
+    public void setHandlerExecutor(HandlerExecutor handlers) {
+        if(handlers == null) throw new IllegalArgumentException("Handler executor cannot be null.");
+        this.handlers = handlers;
+        this.lane = handlers.newLane(this);
+    }
+
+    public HandlerExecutor getHandlerExecutor() {
+        return handlers;
+    }
+
+    /**
+     * Take over listeners and settings of another Dispatcher, used when a connection is replaced by a new one
+     * @param other Previous Dispatcher
+     */
+    void copySettings(Dispatcher other) {
+        listeners.addAll(other.listeners);
+        writabilityListeners.addAll(other.writabilityListeners);
+        outbound.copySettings(other.outbound);
+        setHandlerExecutor(other.handlers);
+        setMaxFrameSize(other.getMaxFrameSize());
+        setCompression(other.compression);
+        requests.copySettings(other.requests);
+        setMetrics(other.metrics);
+        setHeartbeat(other.getHeartbeatInterval(), other.getReadTimeout(), other.getWriteTimeout());
+    }
+
+    /**
+     * Set where traffic and listener run time are recorded, set it before the connection runs
+     * @param metrics Metrics or null to record nothing
+     */
+    public void setMetrics(NetMetrics metrics) {
+        this.metrics = metrics;
+        outbound.setMetrics(metrics);
+    }
+
+    public NetMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the heavy listener tasks of this connection waiting to run
+     * @return Queue depth
+     */
+    public int getHandlerQueueDepth() {
+        return lane.getDepth();
+    }
+
+    /**
+     * Get bytes waiting to be written
+     * @return Queued bytes
+     */
+    public long getQueuedBytes() {
+        return outbound.getQueuedBytes();
     }
 
     /**
      * Get Client Socket
-     * @return Socket
+     * @return Socket or null if the transport does not use one
      */
     public Socket getSocket() {
-        return socket;
+        return connection != null ? connection.socket() : stream.getSocket();
+    }
+
+    /**
+     * Get the address of the peer
+     * @return Address, type depends on the transport
+     */
+    public SocketAddress getRemoteAddress() {
+        return connection != null ? connection.getRemoteAddress() : stream.getRemoteAddress();
+    }
+
+    /**
+     * Is the connection closed
+     * @return Closed
+     */
+    public boolean isClosed() {
+        return !running;
     }
 
     /**
@@ -154,9 +864,18 @@ public class Dispatcher implements Runnable {
      */
     public void close() {
         if(!running) return;
+        running = false;
+        outbound.close();
+        lane.close();
+        heartbeat.stop();
+        requests.fail();
+        if (connection != null) {
+            connection.close();
+            return;
+        }
         try {
-            running = false;
-            if(socket.isClosed()) socket.close();
+            if(outbound.isWriting()) stream.abort(); /* do not wait for a writer stuck on a slow peer */
+            else stream.close();
         } catch (IOException e) {
             System.out.println("Error Closing Client: "+e.getMessage());
         }
@@ -0,0 +1,152 @@
+package LWJG.net;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
+
+/**
+ * Incremental decoder for the <code>[opcode][int32 len][payload]</code> frame format
+ * <br>Opcodes above 254 use the extended format <code>[0xFF][int32 len][uint16 opcode][payload]</code>,
+ * where len counts the two opcode bytes
+ * <br>The top bit of len is {@link #COMPRESSED_FLAG}, the payload then is compressed by {@link Compression}
+ * <br>Works directly on the caller's receive buffer: complete frames are handed out as slices of it,
+ * incomplete ones are left in the buffer so the caller can compact and read more.
+ * Only frames that can never fit into the receive buffer are assembled in a separate, pooled buffer.
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public final class FrameDecoder {
+    /**
+     * Frame header length, opcode + payload length
+     */
+    public static final int HEADER_LENGTH = 5;
+
+    /**
+     * Opcode byte marking a extended frame
+     */
+    public static final int EXTENDED_OPCODE = 0xFF;
+
+    /**
+     * Highest opcode, the opcode space is 16-bit
+     */
+    public static final int MAX_OPCODE = 0xFFFF;
+
+    /**
+     * Length bit marking a compressed payload
+     */
+    public static final int COMPRESSED_FLAG = 0x80000000;
+
+    /**
+     * Default upper limit for a single payload, 16 MiB
+     */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16 << 20;
+
+    /**
+     * Receiver of decoded frames
+     */
+    @FunctionalInterface
+    public interface FrameHandler {
+        /**
+         * Invoked for every complete frame
+         * @param opcode Opcode 0-65535
+         * @param payload Payload, only valid for the duration of the call
+         * @param compressed If {@link #COMPRESSED_FLAG} was set
+         * @throws ProtocolException If the frame is invalid, decoding stops then
+         */
+        void onFrame(int opcode, ByteBuffer payload, boolean compressed) throws ProtocolException;
+    }
+
+    private final FrameHandler handler;
+    private volatile int maxFrameSize;
+
+    private PooledBuffer assembly;
+    private int assemblyOpcode;
+    private boolean assemblyCompressed;
+
+    public FrameDecoder(FrameHandler handler) {
+        this(handler, DEFAULT_MAX_FRAME_SIZE);
+    }
+
+    public FrameDecoder(FrameHandler handler, int maxFrameSize) {
+        this.handler = handler;
+        setMaxFrameSize(maxFrameSize);
+    }
+
+    /**
+     * Decode as many frames as possible
+     * @param in Receive buffer in read mode, its position is advanced past everything consumed
+     * @throws ProtocolException If a frame exceeds the maximum frame size or is rejected by the handler
+     */
+    public void decode(ByteBuffer in) throws ProtocolException {
+        while (true) {
+            if (assembly != null) {
+                ByteBuffer b = assembly.buffer();
+                int n = Math.min(b.remaining(), in.remaining());
+                b.put(b.position(), in, in.position(), n);
+                b.position(b.position() + n);
+                in.position(in.position() + n);
+                if (b.hasRemaining()) return;
+                PooledBuffer done = assembly;
+                assembly = null;
+                try {
+                    frame(assemblyOpcode, b.flip(), assemblyCompressed);
+                } finally {
+                    done.release();
+                }
+                continue;
+            }
+            if (in.remaining() < HEADER_LENGTH) return;
+            int pos = in.position();
+            int word = in.getInt(pos + 1);
+            int len = word & ~COMPRESSED_FLAG;
+            if (len > maxFrameSize)
+                throw new ProtocolException("Frame length " + len + " outside of 0-" + maxFrameSize);
+            if (in.remaining() >= HEADER_LENGTH + len) {
+                in.position(pos + HEADER_LENGTH + len);
+                frame(in.get(pos) & 0xFF, in.slice(pos + HEADER_LENGTH, len), word < 0);
+                continue;
+            }
+            if (HEADER_LENGTH + len <= in.capacity()) return; /* fits after compaction, wait for the rest */
+            assemblyOpcode = in.get(pos) & 0xFF;
+            assemblyCompressed = word < 0;
+            in.position(pos + HEADER_LENGTH);
+            assembly = BufferPool.getDefault().heap(len);
+        }
+    }
+
+    private void frame(int opcode, ByteBuffer payload, boolean compressed) throws ProtocolException {
+        if (opcode == EXTENDED_OPCODE) {
+            if (payload.remaining() < 2) throw new ProtocolException("Extended frame without opcode");
+            opcode = payload.getShort() & 0xFFFF;
+            payload = payload.slice();
+        }
+        handler.onFrame(opcode, payload, compressed);
+    }
+
+    /**
+     * Drop a partially assembled frame and release the assembly buffer
+     */
+    public void reset() {
+        if (assembly != null) assembly.release();
+        assembly = null;
+    }
+
+    /**
+     * Set the maximum payload length, larger frames fail decoding
+     * @param maxFrameSize Maximum payload length in bytes
+     */
+    public void setMaxFrameSize(int maxFrameSize) {
+        if(maxFrameSize < 0) throw new IllegalArgumentException("Max frame size cannot be below 0.");
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Get the maximum payload length
+     * @return Maximum payload length in bytes
+     */
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+}
@@ -0,0 +1,348 @@
+package LWJG.net;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import LWJG.net.util.metrics.NetMetrics;
+
+/**
+ * Executes heavy {@link IOEventListener}s off the receiving thread
+ * <br>Every {@link Dispatcher} gets its own serial lane, so the heavy messages of one connection are handled in the order they arrived,
+ * while different connections run in parallel on virtual threads up to the concurrency limit.
+ * Queued tasks are bounded globally and per lane, what happens past those limits is decided by the {@link RejectionPolicy}
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public final class HandlerExecutor {
+    public static final int DEFAULT_MAX_CONCURRENCY = 256;
+    public static final int DEFAULT_MAX_QUEUED = 1 << 16;
+    public static final int DEFAULT_MAX_LANE_QUEUED = 1024;
+
+    private static final int BATCH = 16; /* tasks a lane runs before giving other lanes a turn */
+    private static final HandlerExecutor DEFAULT = new HandlerExecutor();
+
+    /**
+     * Receiver of exceptions thrown by heavy listeners
+     */
+    @FunctionalInterface
+    public interface ExceptionHandler {
+        void onException(Dispatcher dispatcher, IOEventListener listener, Throwable t);
+    }
+
+    private final Queue<Lane> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private final ReentrantLock lock = new ReentrantLock(); /* not synchronized, receivers may be virtual threads */
+    private final Condition space = lock.newCondition();
+    private volatile int waiters;
+
+    private volatile int maxConcurrency;
+    private volatile int maxQueued;
+    private volatile int maxLaneQueued;
+    private volatile RejectionPolicy policy;
+    private volatile ExceptionHandler exceptionHandler = (d, l, t) -> t.printStackTrace();
+
+    public HandlerExecutor() {
+        this(DEFAULT_MAX_CONCURRENCY, DEFAULT_MAX_QUEUED, DEFAULT_MAX_LANE_QUEUED, RejectionPolicy.BLOCK);
+    }
+
+    /**
+     * @param maxConcurrency Maximum amount of listeners running at the same time
+     * @param maxQueued Maximum amount of tasks waiting over all lanes
+     * @param maxLaneQueued Maximum amount of tasks waiting in a single lane
+     * @param policy What happens to tasks past those limits
+     */
+    public HandlerExecutor(int maxConcurrency, int maxQueued, int maxLaneQueued, RejectionPolicy policy) {
+        setMaxConcurrency(maxConcurrency);
+        setQueueLimits(maxQueued, maxLaneQueued);
+        setPolicy(policy);
+    }
+
+    /**
+     * Get the executor shared by all Dispatchers that were not given their own
+     * @return Default executor
+     */
+    public static HandlerExecutor getDefault() {
+        return DEFAULT;
+    }
+
+    Lane newLane(Dispatcher dispatcher) {
+        return new Lane(dispatcher);
+    }
+
+    private boolean reserve(Lane lane, boolean mayBlock) {
+        while (true) {
+            int q = queued.get();
+            if (q < maxQueued && lane.depth.get() < maxLaneQueued) {
+                if (!queued.compareAndSet(q, q + 1)) continue;
+                peakQueued.accumulateAndGet(q + 1, Math::max);
+                return true;
+            }
+            if (policy != RejectionPolicy.BLOCK || !mayBlock || !await(lane)) {
+                rejected.incrementAndGet();
+                return false;
+            }
+        }
+    }
+
+    private boolean await(Lane lane) {
+        lock.lock();
+        try {
+            waiters++;
+            while (!lane.closed.get() && (queued.get() >= maxQueued || lane.depth.get() >= maxLaneQueued))
+                space.await(100, TimeUnit.MILLISECONDS);
+            return !lane.closed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiters--;
+            lock.unlock();
+        }
+    }
+
+    private void taken() {
+        queued.decrementAndGet();
+        if (waiters > 0) {
+            lock.lock();
+            try {
+                space.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void schedule(Lane lane) {
+        ready.add(lane);
+        startWorkers();
+    }
+
+    private void startWorkers() {
+        while (!ready.isEmpty()) {
+            int a = active.get();
+            if (a >= maxConcurrency) return;
+            if (active.compareAndSet(a, a + 1)) Thread.ofVirtual().name("lwjg-handler").start(this::work);
+        }
+    }
+
+    private void work() {
+        try {
+            Lane lane;
+            while ((lane = ready.poll()) != null) lane.run();
+        } finally {
+            active.decrementAndGet();
+            startWorkers(); /* a lane may have been scheduled while this worker was leaving */
+        }
+    }
+
+    /**
+     * Serial task queue of one Dispatcher, at most one worker runs it at a time
+     */
+    final class Lane {
+        private final Dispatcher dispatcher;
+        private final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lane(Dispatcher dispatcher) {
+            this.dispatcher = dispatcher;
+        }
+
+        /**
+         * Queue a listener invocation behind all earlier ones of this lane
+         * @param opcode Opcode, for metrics
+         * @param listener Listener
+         * @param payload Payload, may be shared between listeners
+         * @param mayBlock If the calling thread may wait for room
+         * @return False if the task was rejected
+         */
+        boolean submit(int opcode, IOEventListener listener, byte[] payload, boolean mayBlock) {
+            if (closed.get() || !reserve(this, mayBlock)) return false;
+            depth.incrementAndGet();
+            tasks.add(new Task(opcode, listener, payload));
+            if (closed.get()) clear(); /* raced with close */
+            else if (scheduled.compareAndSet(false, true)) schedule(this);
+            return true;
+        }
+
+        private void run() {
+            for (int i = 0; i < BATCH; i++) {
+                Task t = poll();
+                if (t == null) break;
+                NetMetrics m = dispatcher.getMetrics();
+                long start = m != null ? System.nanoTime() : 0;
+                try {
+                    t.listener.onEvent(dispatcher, t.payload);
+                } catch (Throwable e) {
+                    failed.incrementAndGet();
+                    exceptionHandler.onException(dispatcher, t.listener, e);
+                }
+                if (m != null) m.recordListener(t.opcode, true, System.nanoTime() - start);
+                completed.incrementAndGet();
+            }
+            if (!tasks.isEmpty()) {
+                ready.add(this); /* stay scheduled, but behind the other lanes */
+                return;
+            }
+            scheduled.set(false);
+            if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) ready.add(this);
+        }
+
+        private Task poll() {
+            Task t = tasks.poll();
+            if (t != null) {
+                depth.decrementAndGet();
+                taken();
+            }
+            return t;
+        }
+
+        private void clear() {
+            while (poll() != null);
+        }
+
+        /**
+         * Drop all waiting tasks and reject further ones, a running task is not interrupted
+         */
+        void close() {
+            closed.set(true);
+            clear();
+            if (waiters > 0) {
+                lock.lock();
+                try {
+                    space.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Get the tasks waiting in this lane
+         * @return Queue depth
+         */
+        int getDepth() {
+            return depth.get();
+        }
+    }
+
+    private static final class Task {
+        private final int opcode;
+        private final IOEventListener listener;
+        private final byte[] payload;
+
+        private Task(int opcode, IOEventListener listener, byte[] payload) {
+            this.opcode = opcode;
+            this.listener = listener;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Get the tasks waiting over all lanes
+     * @return Queue depth
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Get the highest amount of tasks that were waiting at once
+     * @return Peak queue depth
+     */
+    public int getPeakQueued() {
+        return peakQueued.get();
+    }
+
+    /**
+     * Get the amount of workers currently running listeners
+     * @return Active workers
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * Get the amount of tasks rejected by the queue limits
+     * @return Rejected tasks
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Get the amount of listener invocations that threw
+     * @return Failed tasks
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Set the maximum amount of listeners running at the same time, lowering it takes effect as workers finish
+     * @param maxConcurrency Concurrency limit
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        if(maxConcurrency < 1) throw new IllegalArgumentException("Concurrency cannot be below 1.");
+        this.maxConcurrency = maxConcurrency;
+        startWorkers();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Set the queue limits
+     * @param maxQueued Maximum amount of tasks waiting over all lanes
+     * @param maxLaneQueued Maximum amount of tasks waiting in a single lane
+     */
+    public void setQueueLimits(int maxQueued, int maxLaneQueued) {
+        if(maxQueued < 1 || maxLaneQueued < 1) throw new IllegalArgumentException("Queue limits cannot be below 1.");
+        this.maxQueued = maxQueued;
+        this.maxLaneQueued = maxLaneQueued;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public int getMaxLaneQueued() {
+        return maxLaneQueued;
+    }
+
+    public void setPolicy(RejectionPolicy policy) {
+        if(policy == null) throw new IllegalArgumentException("Policy cannot be null.");
+        this.policy = policy;
+    }
+
+    public RejectionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Set the receiver of exceptions thrown by heavy listeners, by default they are printed
+     * @param exceptionHandler Handler
+     */
+    public void setExceptionHandler(ExceptionHandler exceptionHandler) {
+        if(exceptionHandler == null) throw new IllegalArgumentException("Exception handler cannot be null.");
+        this.exceptionHandler = exceptionHandler;
+    }
+}
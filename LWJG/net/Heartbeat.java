@@ -0,0 +1,190 @@
+package LWJG.net;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import LWJG.net.util.Opcodes;
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
+import LWJG.net.util.timer.Timeout;
+
+/**
+ * Liveness of one {@link Dispatcher}: heartbeat pings, read and write idle timeouts and the round trip time
+ * <br>Heartbeats are <code>[byte type][int64 time]</code> on {@link Opcodes#HEARTBEAT}, every ping is answered with a pong echoing the time,
+ * whether heartbeats are enabled locally or not. Each connection keeps a single timeout on the Dispatcher's {@link LWJG.net.util.timer.TimerWheel},
+ * rescheduled to whichever deadline is next, so reads only cost a timestamp
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+final class Heartbeat {
+    static final int HEARTBEAT = Opcodes.HEARTBEAT.getOpcode();
+    private static final byte PING = 0, PONG = 1;
+    private static final int LENGTH = 1 + Long.BYTES;
+
+    private final Dispatcher dispatcher;
+    private final OutboundQueue outbound;
+    private volatile long lastRead = System.nanoTime();
+    private volatile long interval, readTimeout, writeTimeout; /* ns, 0 disables */
+    private long lastPing = System.nanoTime(); /* guarded by this */
+    private Timeout timeout; /* guarded by this */
+    private boolean started; /* guarded by this */
+
+    private volatile long rtt = -1, rttVariance, lastRtt = -1; /* ns */
+
+    Heartbeat(Dispatcher dispatcher, OutboundQueue outbound) {
+        this.dispatcher = dispatcher;
+        this.outbound = outbound;
+    }
+
+    /**
+     * Bytes arrived, called by the receiving thread
+     */
+    void onRead() {
+        lastRead = System.nanoTime();
+    }
+
+    /**
+     * Answer a ping or take a round trip sample from a pong
+     * @param payload Heartbeat payload
+     */
+    void onFrame(ByteBuffer payload) {
+        if (payload.remaining() != LENGTH) return;
+        byte type = payload.get(payload.position());
+        long time = payload.getLong(payload.position() + 1);
+        if (type == PING) {
+            send(PONG, time);
+        } else if (type == PONG) {
+            sample(System.nanoTime() - time);
+        }
+    }
+
+    /**
+     * Smooth a round trip sample like TCP does, RFC 6298
+     * @param r Sample in ns
+     */
+    private synchronized void sample(long r) {
+        if (r < 0) return;
+        lastRtt = r;
+        if (rtt < 0) {
+            rtt = r;
+            rttVariance = r / 2;
+        } else {
+            rttVariance += (Math.abs(rtt - r) - rttVariance) / 4;
+            rtt += (r - rtt) / 8;
+        }
+    }
+
+    private void send(byte type, long time) {
+        PooledBuffer b = BufferPool.getDefault().heap(LENGTH);
+        b.buffer().put(type).putLong(time).flip();
+        dispatcher.enqueue(HEARTBEAT, b); /* never blocks, neither the receiving nor the timer thread */
+    }
+
+    void configure(long interval, long readTimeout, long writeTimeout) {
+        this.interval = TimeUnit.MILLISECONDS.toNanos(interval);
+        this.readTimeout = TimeUnit.MILLISECONDS.toNanos(readTimeout);
+        this.writeTimeout = TimeUnit.MILLISECONDS.toNanos(writeTimeout);
+        reschedule(true);
+    }
+
+    /**
+     * Start checking, called once the connection runs
+     */
+    void start() {
+        synchronized (this) {
+            started = true;
+            lastPing = System.nanoTime();
+        }
+        lastRead = System.nanoTime();
+        reschedule(true);
+    }
+
+    synchronized void stop() {
+        started = false;
+        if (timeout != null) timeout.cancel();
+        timeout = null;
+    }
+
+    private synchronized void reschedule(boolean now) {
+        if (!started || dispatcher.isClosed()) return;
+        if (timeout != null) timeout.cancel();
+        timeout = null;
+        long next = next(System.nanoTime());
+        if (next == Long.MAX_VALUE) return;
+        timeout = dispatcher.getTimerWheel().schedule(this::check, now ? 0 : next, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time until the nearest deadline
+     * @param now Current time in ns
+     * @return Delay in ns, Long.MAX_VALUE if nothing is enabled
+     */
+    private long next(long now) {
+        long next = Long.MAX_VALUE;
+        if (interval > 0) next = Math.min(next, lastPing + interval - now);
+        if (readTimeout > 0) next = Math.min(next, lastRead + readTimeout - now);
+        if (writeTimeout > 0) next = Math.min(next, outbound.isEmpty() ? writeTimeout : outbound.getLastProgress() + writeTimeout - now);
+        return next == Long.MAX_VALUE ? next : Math.max(next, 0);
+    }
+
+    /**
+     * Runs on the timer thread at the nearest deadline
+     */
+    private void check() {
+        synchronized (this) {
+            timeout = null;
+            if (!started || dispatcher.isClosed()) return;
+        }
+        long now = System.nanoTime();
+        long read = readTimeout, write = writeTimeout;
+        if (read > 0 && now - lastRead >= read) {
+            System.err.println("Closing connection: nothing read for " + TimeUnit.NANOSECONDS.toMillis(now - lastRead) + "ms");
+            close();
+            return;
+        }
+        if (write > 0 && !outbound.isEmpty() && now - outbound.getLastProgress() >= write) {
+            System.err.println("Closing connection: nothing written for " + TimeUnit.NANOSECONDS.toMillis(now - outbound.getLastProgress()) + "ms");
+            close();
+            return;
+        }
+        synchronized (this) {
+            if (interval > 0 && now - lastPing >= interval) {
+                lastPing = now;
+                send(PING, now);
+            }
+        }
+        reschedule(false);
+    }
+
+    private void close() {
+        Thread.startVirtualThread(dispatcher::close); /* closing may block on the socket, the timer thread must not */
+    }
+
+    long getInterval() {
+        return TimeUnit.NANOSECONDS.toMillis(interval);
+    }
+
+    long getReadTimeout() {
+        return TimeUnit.NANOSECONDS.toMillis(readTimeout);
+    }
+
+    long getWriteTimeout() {
+        return TimeUnit.NANOSECONDS.toMillis(writeTimeout);
+    }
+
+    long getLastRead() {
+        return lastRead;
+    }
+
+    long getRtt() {
+        return rtt;
+    }
+
+    long getRttVariance() {
+        return rttVariance;
+    }
+
+    long getLastRtt() {
+        return lastRtt;
+    }
+}
@@ -1,9 +1,11 @@
 package LWJG.net;
 
+import java.nio.ByteBuffer;
+
 /**
  * IO Event Listener for when something is recieved on a socket
  * @author Marius Baumgartner
- * @version 2025-05-03T14:33
+ * @version 2026-10-18T18:10
  */
 public interface IOEventListener {
     /**
@@ -14,7 +16,21 @@ public interface IOEventListener {
     void onEvent(Dispatcher dispatcher, byte[] payload); /* Typecast to (Client) if needed */
 
     /**
-     * If the Event listener process is heavy, marking it as heavy will have it started as a virtual thread, this stops possible blocking
+     * The event the will be invoked for inline (not heavy) listeners
+     * Override to read the payload straight out of the receive buffer, by default it is copied and passed to {@link #onEvent(Dispatcher, byte[])}
+     * <br><b>WARNING: The buffer is reused after the call returns, do not keep a reference to it</b>
+     * @param dispatcher Dispatcher
+     * @param payload Payload slice in read mode
+     */
+    default void onEvent(Dispatcher dispatcher, ByteBuffer payload) {
+        byte[] b = new byte[payload.remaining()];
+        payload.get(b);
+        onEvent(dispatcher, b);
+    }
+
+    /**
+     * If the Event listener process is heavy, marking it as heavy will have it run on a virtual thread of the Dispatchers {@link HandlerExecutor}, this stops possible blocking
+     * <br>Heavy listeners of one connection run one after another in the order the messages arrived
      * @return Heavy
      */
     boolean isHeavyTask();
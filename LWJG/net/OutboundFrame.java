@@ -0,0 +1,170 @@
+package LWJG.net;
+
+import java.nio.ByteBuffer;
+
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
+
+/**
+ * A single queued outbound frame, header and payload are kept apart so they can be written with one gathering write
+ * Whoever takes a frame out of a {@link OutboundQueue} must {@link #release()} it once written or dropped
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:30
+ */
+public final class OutboundFrame {
+    private static final ByteBuffer NO_HEADER = ByteBuffer.allocate(0).asReadOnlyBuffer(); /* empty, so safe to share */
+
+    private final int opcode;
+    private final PooledBuffer headerRef;
+    private final ByteBuffer header;
+    private final PooledBuffer payloadRef;
+    private final ByteBuffer payload;
+
+    private OutboundFrame(int opcode, PooledBuffer headerRef, ByteBuffer header, PooledBuffer payloadRef, ByteBuffer payload) {
+        this.opcode = opcode;
+        this.headerRef = headerRef;
+        this.header = header;
+        this.payloadRef = payloadRef;
+        this.payload = payload;
+    }
+
+    /**
+     * Create a framed message
+     * @param opcode Opcode 0-65535
+     * @param payload Payload in read mode, not copied
+     * @return Frame
+     */
+    public static OutboundFrame of(int opcode, ByteBuffer payload) {
+        PooledBuffer h = header(opcode, payload.remaining());
+        return new OutboundFrame(opcode, h, h.buffer(), null, payload);
+    }
+
+    /**
+     * Create a framed message from a pooled payload
+     * @param opcode Opcode 0-65535
+     * @param payload Payload, the frame takes over one reference and reads from a independent view
+     * @return Frame
+     */
+    public static OutboundFrame of(int opcode, PooledBuffer payload) {
+        ByteBuffer view = payload.view();
+        PooledBuffer h = header(opcode, view.remaining());
+        return new OutboundFrame(opcode, h, h.buffer(), payload, view);
+    }
+
+    /**
+     * Create a frame with a payload compressed by {@link Compression}
+     * @param opcode Opcode 0-65535
+     * @param payload Compressed payload, the frame takes over one reference and reads from a independent view
+     * @return Frame
+     */
+    public static OutboundFrame compressed(int opcode, PooledBuffer payload) {
+        ByteBuffer view = payload.view();
+        PooledBuffer h = BufferPool.getDefault().heap(headerLength(opcode));
+        putHeader(h.buffer(), opcode, view.remaining(), true).flip();
+        return new OutboundFrame(opcode, h, h.buffer(), payload, view);
+    }
+
+    /**
+     * Create a frame from a buffer that already holds header and payload, used to share one encoding between many connections
+     * @param opcode Opcode of the encoded frame
+     * @param encoded Encoded frame in read mode, the frame takes over one reference and reads from a independent view
+     * @return Frame
+     */
+    public static OutboundFrame encoded(int opcode, PooledBuffer encoded) {
+        return new OutboundFrame(opcode, null, NO_HEADER, encoded, encoded.view());
+    }
+
+    /**
+     * Create a frame of raw bytes without header
+     * @param bytes Bytes in read mode, not copied
+     * @return Frame
+     */
+    public static OutboundFrame raw(ByteBuffer bytes) {
+        return new OutboundFrame(0, null, NO_HEADER, null, bytes);
+    }
+
+    private static PooledBuffer header(int opcode, int length) {
+        PooledBuffer h = BufferPool.getDefault().heap(headerLength(opcode));
+        putHeader(h.buffer(), opcode, length).flip();
+        return h;
+    }
+
+    /**
+     * Get the header length of a opcode
+     * @param opcode Opcode 0-65535
+     * @return 5, or 7 for extended opcodes
+     */
+    public static int headerLength(int opcode) {
+        return opcode < FrameDecoder.EXTENDED_OPCODE ? FrameDecoder.HEADER_LENGTH : FrameDecoder.HEADER_LENGTH + 2;
+    }
+
+    /**
+     * Write a frame header
+     * @param dst Destination
+     * @param opcode Opcode 0-65535
+     * @param length Payload length
+     * @return dst
+     */
+    public static ByteBuffer putHeader(ByteBuffer dst, int opcode, int length) {
+        return putHeader(dst, opcode, length, false);
+    }
+
+    /**
+     * Write a frame header
+     * @param dst Destination
+     * @param opcode Opcode 0-65535
+     * @param length Payload length
+     * @param compressed Set {@link FrameDecoder#COMPRESSED_FLAG}
+     * @return dst
+     */
+    public static ByteBuffer putHeader(ByteBuffer dst, int opcode, int length, boolean compressed) {
+        if(opcode < 0 || opcode > FrameDecoder.MAX_OPCODE) throw new IllegalArgumentException("Opcode must be 0-" + FrameDecoder.MAX_OPCODE + ".");
+        int flag = compressed ? FrameDecoder.COMPRESSED_FLAG : 0;
+        if (opcode < FrameDecoder.EXTENDED_OPCODE) return dst.put((byte) opcode).putInt(length | flag);
+        return dst.put((byte) FrameDecoder.EXTENDED_OPCODE).putInt((length + 2) | flag).putShort((short) opcode);
+    }
+
+    public int getOpcode() {
+        return opcode;
+    }
+
+    /**
+     * Raw frames carry no opcode
+     * @return If {@link #getOpcode()} is meaningful
+     */
+    public boolean hasOpcode() {
+        return header != NO_HEADER || payloadRef != null;
+    }
+
+    /**
+     * Get the header, empty for raw frames
+     * @return Header in read mode
+     */
+    public ByteBuffer getHeader() {
+        return header;
+    }
+
+    /**
+     * Get the payload
+     * @return Payload in read mode
+     */
+    public ByteBuffer getPayload() {
+        return payload;
+    }
+
+    /**
+     * Bytes left to be written
+     * @return Remaining bytes
+     */
+    public int remaining() {
+        return header.remaining() + payload.remaining();
+    }
+
+    /**
+     * Return pooled header and payload, the frame must not be used afterwards
+     */
+    public void release() {
+        if (headerRef != null) headerRef.release();
+        if (payloadRef != null) payloadRef.release();
+    }
+}
@@ -0,0 +1,372 @@
+package LWJG.net;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import LWJG.net.util.metrics.NetMetrics;
+
+/**
+ * Per-connection queue of outbound frames
+ * Any thread may enqueue, but only the thread holding the writer role drains it,
+ * so frames are never interleaved and many small frames can be coalesced into a single write
+ * <br>The queue is bounded by a byte capacity, what happens when it is full is decided by its {@link BackpressurePolicy}.
+ * Room is reserved before a frame is added, so concurrent senders cannot overshoot it together.
+ * Crossing the high and low watermarks flips {@link #isWritable()} and notifies the writability callback
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public class OutboundQueue {
+    public static final int DEFAULT_LOW_WATERMARK = 256 << 10;
+    public static final int DEFAULT_HIGH_WATERMARK = 1 << 20;
+    public static final int DEFAULT_CAPACITY = 4 << 20;
+
+    /**
+     * Callback for watermark crossings
+     */
+    @FunctionalInterface
+    public interface WritabilityCallback {
+        void onWritabilityChanged(boolean writable);
+    }
+
+    private final Queue<OutboundFrame> frames = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writer = new AtomicBoolean();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean writable = new AtomicBoolean(true);
+
+    private final ReentrantLock lock = new ReentrantLock(); /* not synchronized, senders may be virtual threads */
+    private final Condition space = lock.newCondition();
+    private volatile int waiters;
+    private volatile boolean closed;
+    private volatile long progress = System.nanoTime();
+    private volatile NetMetrics metrics;
+
+    private volatile int lowWatermark = DEFAULT_LOW_WATERMARK;
+    private volatile int highWatermark = DEFAULT_HIGH_WATERMARK;
+    private volatile int capacity = DEFAULT_CAPACITY;
+    private volatile BackpressurePolicy policy = BackpressurePolicy.BLOCK;
+    private volatile int[] coalesced = new int[0]; /* few opcodes, copy on write */
+    private WritabilityCallback callback;
+
+    public OutboundQueue() {
+    }
+
+    /**
+     * @param callback Callback for watermark crossings
+     */
+    public OutboundQueue(WritabilityCallback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Enqueue a frame, applying the backpressure policy if it does not fit
+     * @param frame Frame, released if it is not accepted
+     * @param mayBlock If the calling thread may wait for room
+     * @return False if the frame was rejected and the connection should be closed
+     */
+    public boolean offer(OutboundFrame frame, boolean mayBlock) {
+        if (closed) {
+            frame.release();
+            return false;
+        }
+        int size = frame.remaining();
+        if (policy == BackpressurePolicy.COALESCE && (!isWritable() || !fits(size)) && isCoalesced(frame)) coalesce(frame);
+        long before = reserve(size);
+        if (before < 0) {
+            switch (policy) {
+                case BLOCK:
+                    if (!mayBlock || (before = await(size)) < 0) return reject(frame);
+                    break;
+                case DROP_OLDEST:
+                    while ((before = reserve(size)) < 0) {
+                        OutboundFrame old = poll();
+                        if (old == null) {
+                            Thread.onSpinWait(); /* the bytes are reserved by senders that did not add their frames yet */
+                            continue;
+                        }
+                        old.release();
+                        dropped.incrementAndGet();
+                    }
+                    break;
+                case COALESCE:
+                case DISCONNECT:
+                    return reject(frame);
+            }
+        }
+        if (before == 0) progress = System.nanoTime(); /* a stall is measured from the first waiting frame */
+        frames.add(frame);
+        NetMetrics m = metrics;
+        if (m != null) m.recordQueued(size, before + size);
+        if (closed) {
+            clear(); /* raced with close */
+            return false;
+        }
+        if (bytes.get() > highWatermark && writable.compareAndSet(true, false)) notifyWritability(false);
+        return true;
+    }
+
+    private boolean fits(int size) {
+        long b = bytes.get();
+        return b == 0 || b + size <= capacity;
+    }
+
+    /**
+     * Reserve room for a frame
+     * @param size Frame size
+     * @return Queued bytes before the reservation, -1 if the frame does not fit
+     */
+    private long reserve(int size) {
+        long b;
+        do {
+            b = bytes.get();
+            if (b != 0 && b + size > capacity) return -1;
+        } while (!bytes.compareAndSet(b, b + size));
+        return b;
+    }
+
+    private long await(int size) {
+        lock.lock();
+        try {
+            waiters++;
+            long before;
+            while ((before = reserve(size)) < 0) {
+                if (closed) return -1;
+                space.await(100, TimeUnit.MILLISECONDS);
+            }
+            return before;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            waiters--;
+            lock.unlock();
+        }
+    }
+
+    private boolean reject(OutboundFrame frame) {
+        frame.release();
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    private boolean isCoalesced(OutboundFrame frame) {
+        if (!frame.hasOpcode()) return false;
+        for (int op : coalesced) if (op == frame.getOpcode()) return true;
+        return false;
+    }
+
+    /**
+     * Drop queued frames with the same opcode as the new one
+     */
+    private void coalesce(OutboundFrame frame) {
+        Iterator<OutboundFrame> it = frames.iterator();
+        while (it.hasNext()) {
+            OutboundFrame f = it.next();
+            if (f.getOpcode() == frame.getOpcode() && isCoalesced(f) && frames.remove(f)) {
+                long b = bytes.addAndGet(-f.remaining());
+                NetMetrics m = metrics;
+                if (m != null) m.recordQueued(-f.remaining(), b);
+                f.release();
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Take the next frame, only to be called by the writer or the queue itself
+     * @return Frame or null if empty
+     */
+    public OutboundFrame poll() {
+        OutboundFrame f = frames.poll();
+        if (f == null) return null;
+        long b = bytes.addAndGet(-f.remaining());
+        progress = System.nanoTime();
+        NetMetrics m = metrics;
+        if (m != null) m.recordQueued(-f.remaining(), b);
+        if (waiters > 0) {
+            lock.lock();
+            try {
+                space.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (b <= lowWatermark && writable.compareAndSet(false, true)) notifyWritability(true);
+        return f;
+    }
+
+    private void notifyWritability(boolean w) {
+        WritabilityCallback c = callback;
+        if (c != null) c.onWritabilityChanged(w);
+    }
+
+    public boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+    /**
+     * Try to become the writer of this queue
+     * @return If the writer role was acquired
+     */
+    public boolean acquireWriter() {
+        return writer.compareAndSet(false, true);
+    }
+
+    /**
+     * Is a thread currently holding the writer role
+     * @return Writing
+     */
+    public boolean isWriting() {
+        return writer.get();
+    }
+
+    /**
+     * Give up the writer role, callers must check {@link #isEmpty()} afterwards to not strand frames
+     */
+    public void releaseWriter() {
+        writer.set(false);
+    }
+
+    /**
+     * Drop and release all queued frames
+     */
+    public void clear() {
+        OutboundFrame f;
+        while ((f = poll()) != null) f.release();
+    }
+
+    /**
+     * Reject all further frames, wake up blocked senders and drop everything queued
+     */
+    public void close() {
+        closed = true;
+        lock.lock();
+        try {
+            space.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        clear();
+    }
+
+    /**
+     * Is the queue below its high watermark
+     * @return Writable
+     */
+    public boolean isWritable() {
+        return writable.get();
+    }
+
+    /**
+     * Get bytes currently queued
+     * @return Bytes
+     */
+    public long getQueuedBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Get when the writer last took a frame, or when the queue last became non empty if that was later
+     * @return {@link System#nanoTime()} timestamp
+     */
+    public long getLastProgress() {
+        return progress;
+    }
+
+    /**
+     * Set where the queue depth is recorded, set it before the queue is used
+     * @param metrics Metrics or null
+     */
+    public void setMetrics(NetMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get amount of frames dropped or rejected by the backpressure policy
+     * @return Dropped frames
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Set the watermarks for {@link #isWritable()}
+     * @param low Writable again once queued bytes fall to this
+     * @param high Not writable once queued bytes exceed this
+     */
+    public void setWatermarks(int low, int high) {
+        if(low < 0 || low > high) throw new IllegalArgumentException("Watermarks must satisfy 0 <= low <= high.");
+        this.lowWatermark = low;
+        this.highWatermark = high;
+    }
+
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    /**
+     * Set the maximum amount of queued bytes, a single frame larger than this is still accepted into a empty queue
+     * @param capacity Capacity in bytes
+     */
+    public void setCapacity(int capacity) {
+        if(capacity < 1) throw new IllegalArgumentException("Capacity cannot be below 1.");
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setPolicy(BackpressurePolicy policy) {
+        if(policy == null) throw new IllegalArgumentException("Policy cannot be null.");
+        this.policy = policy;
+    }
+
+    public BackpressurePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Mark a opcode as state update that may be coalesced under {@link BackpressurePolicy#COALESCE}
+     * @param opcode Opcode 0-65535
+     * @param coalesce Coalesce
+     */
+    public synchronized void setCoalesced(int opcode, boolean coalesce) {
+        int[] old = coalesced;
+        int[] n = new int[old.length + 1];
+        int len = 0;
+        for (int op : old) if (op != opcode) n[len++] = op;
+        if (coalesce) n[len++] = opcode;
+        coalesced = Arrays.copyOf(n, len);
+    }
+
+    /**
+     * Take over limits, policy and coalesced opcodes of another queue
+     * @param other Queue
+     */
+    public synchronized void copySettings(OutboundQueue other) {
+        setWatermarks(other.lowWatermark, other.highWatermark);
+        setCapacity(other.capacity);
+        setPolicy(other.policy);
+        coalesced = other.coalesced; /* never modified in place */
+    }
+
+    /**
+     * Set the callback for watermark crossings
+     * @param callback Callback
+     */
+    public void setWritabilityCallback(WritabilityCallback callback) {
+        this.callback = callback;
+    }
+}
@@ -0,0 +1,22 @@
+package LWJG.net;
+
+/**
+ * What a {@link HandlerExecutor} does when a heavy listener task would exceed its queue limits
+ * @author Marius Baumgartner
+ * @version 2026-10-18T18:10
+ */
+public enum RejectionPolicy {
+    /**
+     * The receiving thread waits until there is room again, which stops reading from that Client.
+     * In selector mode the receiving thread must not block, so the Client is disconnected instead
+     */
+    BLOCK,
+    /**
+     * The message is dropped for this listener
+     */
+    DROP,
+    /**
+     * The Client is disconnected
+     */
+    DISCONNECT,
+}
@@ -1,39 +1,142 @@
 package LWJG.net;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 
-import javax.net.ssl.SSLSocket;
-import javax.net.ssl.SSLSocketFactory;
+import LWJG.net.nio.SelectorPool;
+import LWJG.net.transport.TlsTransport;
+import LWJG.net.transport.Transport;
 
 /**
  * Client side of the Client Server interaction
- * {@link #listeners} Includes a basic listener Map that lets utilities easiely interface with Client requests to the Server
- * <br><b>WARNING: Only 256 Possible Opcodes for now!</b>
+ * {@link #listeners} Includes a basic listener table that lets utilities easiely interface with Client requests to the Server
+ * <br>Connections made through the same {@link TlsContext} share its session cache,
+ * so {@link #reconnect()} resumes the previous TLS session instead of doing a full handshake
+ * <br>Other {@link Transport}s like plaintext TCP, unix domain sockets or in-memory pipes can be used for trusted hops
  * @author Marius Baumgartner
- * @version 2025-05-03T1:28
+ * @version 2026-10-18T21:00
  * @side Client
  */
 public class RemoteServer extends Dispatcher {
-    private final int port;
-    private final String ip;
+    private final Transport transport;
+    private final SocketAddress address;
+    private final int bufsize;
+    private final SelectorPool selectors;
 
     public RemoteServer(String ip, int port, int bufsize) throws IOException {
-        super(createSocket(ip, port), bufsize);
-        this.port = port;
-        this.ip = ip;
+        this(ip, port, bufsize, TlsContext.getDefault());
     }
 
-    private static SSLSocket createSocket(String ip, int port) throws IOException {
-        SSLSocket s = (SSLSocket) SSLSocketFactory.getDefault().createSocket(ip, port);
-        s.setEnabledProtocols(new String[] { "TLSv1.3", "TLSv1.2" });
-        return s;
+    /**
+     * Connect in blocking mode
+     * @param ip Server ip
+     * @param port Server port
+     * @param bufsize Receive buffer size
+     * @param tls TLS settings and session cache
+     * @throws IOException If the connection fails
+     */
+    public RemoteServer(String ip, int port, int bufsize, TlsContext tls) throws IOException {
+        this(new TlsTransport(tls), new InetSocketAddress(ip, port), bufsize);
     }
 
+    /**
+     * Connect in blocking mode on any transport
+     * @param transport Transport
+     * @param address Server address in the format of the transport
+     * @param bufsize Receive buffer size
+     * @throws IOException If the connection fails
+     */
+    public RemoteServer(Transport transport, SocketAddress address, int bufsize) throws IOException {
+        super(transport.connect(address), bufsize);
+        this.transport = transport;
+        this.address = address;
+        this.bufsize = bufsize;
+        this.selectors = null;
+    }
+
+    /**
+     * Connect in selector mode, {@link #run()} starts the handshake on one of the pool threads
+     * @param ip Server ip
+     * @param port Server port
+     * @param selectors Selector pool
+     * @throws IOException If the connection fails
+     */
+    public RemoteServer(String ip, int port, SelectorPool selectors) throws IOException {
+        this(ip, port, selectors, TlsContext.getDefault());
+    }
+
+    /**
+     * Connect in selector mode, {@link #run()} starts the handshake on one of the pool threads
+     * @param ip Server ip
+     * @param port Server port
+     * @param selectors Selector pool
+     * @param tls TLS settings and session cache
+     * @throws IOException If the connection fails
+     */
+    public RemoteServer(String ip, int port, SelectorPool selectors, TlsContext tls) throws IOException {
+        this(new TlsTransport(tls), new InetSocketAddress(ip, port), selectors);
+    }
+
+    /**
+     * Connect in selector mode on any selectable transport, {@link #run()} starts the handshake on one of the pool threads
+     * @param transport Transport
+     * @param address Server address in the format of the transport
+     * @param selectors Selector pool
+     * @throws IOException If the connection fails
+     */
+    public RemoteServer(Transport transport, SocketAddress address, SelectorPool selectors) throws IOException {
+        super(transport.connect(address, selectors));
+        this.transport = transport;
+        this.address = address;
+        this.bufsize = 0;
+        this.selectors = selectors;
+    }
+
+    /**
+     * Open a new connection to the same server in the same mode and close this one
+     * The TLS session of this connection is resumed if the server still accepts it.
+     * Event listeners, writability listeners and outbound settings are carried over,
+     * like a new RemoteServer the returned one still has to be {@link #run()}
+     * @return New connection
+     * @throws IOException If the connection fails, this one is left untouched then
+     */
+    public RemoteServer reconnect() throws IOException {
+        RemoteServer r = selectors != null ? new RemoteServer(transport, address, selectors) : new RemoteServer(transport, address, bufsize);
+        r.copySettings(this);
+        close();
+        return r;
+    }
+
+    /**
+     * Get the server ip
+     * @return Ip or host name, null for transports without one
+     */
     public String getIP() {
-        return ip;
+        return address instanceof InetSocketAddress ? ((InetSocketAddress) address).getHostString() : null;
     }
 
+    /**
+     * Get the server port
+     * @return Port, 0 for transports without one
+     */
     public int getPort() {
-        return port;
+        return address instanceof InetSocketAddress ? ((InetSocketAddress) address).getPort() : 0;
+    }
+
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Get the TLS settings
+     * @return TLS settings, null if the transport is not TLS
+     */
+    public TlsContext getTlsContext() {
+        return transport instanceof TlsTransport ? ((TlsTransport) transport).getTlsContext() : null;
     }
-}
\ No newline at end of file
+}
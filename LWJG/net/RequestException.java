@@ -0,0 +1,37 @@
+package LWJG.net;
+
+import java.io.IOException;
+
+/**
+ * The peer could not answer a request, see {@link Dispatcher#request(int, byte[])}
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public class RequestException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The peer has no {@link RequestHandler} for the opcode
+     */
+    public static final int NO_HANDLER = 1;
+
+    /**
+     * The handler of the peer threw
+     */
+    public static final int FAILED = 2;
+
+    private final int status;
+
+    public RequestException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * Get why the request failed
+     * @return {@link #NO_HANDLER} or {@link #FAILED}
+     */
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,29 @@
+package LWJG.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Answers requests made with {@link Dispatcher#request(int, byte[])}, see {@link Dispatcher#setRequestHandler(int, RequestHandler)}
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+@FunctionalInterface
+public interface RequestHandler {
+    /**
+     * Answer a request
+     * @param requester Connection the request came from
+     * @param payload Request payload in read mode, only valid for the duration of the call
+     * @return Response payload, null for a empty one
+     * @throws Exception Fails the request, the requester gets a {@link RequestException} with the message
+     */
+    byte[] onRequest(Dispatcher requester, ByteBuffer payload) throws Exception;
+
+    /**
+     * Heavy handlers run on the connection's lane of the {@link HandlerExecutor} like heavy {@link IOEventListener}s,
+     * so a slow handler does not hold up the receiving thread
+     * @return Heavy, true by default
+     */
+    default boolean isHeavyTask() {
+        return true;
+    }
+}
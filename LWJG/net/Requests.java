@@ -0,0 +1,212 @@
+package LWJG.net;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import LWJG.net.util.Opcodes;
+import LWJG.net.util.bin.ByteCursor;
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
+import LWJG.net.util.timer.Timeout;
+import LWJG.net.util.timer.TimerWheel;
+
+/**
+ * Request/response state of one {@link Dispatcher}
+ * <br>Requests are sent as <code>[varint id][varint opcode][payload]</code> on {@link Opcodes#RPC_REQUEST},
+ * responses as <code>[varint id][byte status][payload]</code> on {@link Opcodes#RPC_RESPONSE}.
+ * Ids are only unique per connection, so they stay one or two bytes, and any amount of requests can be in flight at once.
+ * Deadlines are kept on the shared {@link TimerWheel}
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+final class Requests {
+    static final int RPC_REQUEST = Opcodes.RPC_REQUEST.getOpcode();
+    static final int RPC_RESPONSE = Opcodes.RPC_RESPONSE.getOpcode();
+    private static final int OK = 0;
+
+    private static final class Pending extends CompletableFuture<byte[]> {
+        private volatile Timeout timeout; /* null for the moment between registration and scheduling */
+    }
+
+    /**
+     * Adapter so handlers live in a {@link DispatchTable} and run on the lane like heavy listeners,
+     * it answers through the Dispatcher it is invoked with so tables can be copied between connections
+     */
+    private static final class Handler implements IOEventListener {
+        private final RequestHandler handler;
+
+        private Handler(RequestHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void onEvent(Dispatcher dispatcher, byte[] payload) {
+            onEvent(dispatcher, ByteBuffer.wrap(payload));
+        }
+
+        @Override
+        public void onEvent(Dispatcher dispatcher, ByteBuffer payload) {
+            ByteCursor in = new ByteCursor(payload.duplicate());
+            int id = in.getVarInt();
+            in.getVarInt(); /* opcode, already routed on */
+            byte[] response;
+            try {
+                response = handler.onRequest(dispatcher, in.buffer().slice());
+            } catch (Exception e) {
+                respond(dispatcher, id, RequestException.FAILED, (e.getMessage() != null ? e.getMessage() : e.toString()).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            respond(dispatcher, id, OK, response != null ? response : new byte[0]);
+        }
+
+        @Override
+        public boolean isHeavyTask() {
+            return handler.isHeavyTask();
+        }
+    }
+
+    private final Dispatcher dispatcher;
+    private final DispatchTable handlers = new DispatchTable();
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private volatile TimerWheel timer = TimerWheel.getDefault();
+    private volatile long timeout = Dispatcher.DEFAULT_REQUEST_TIMEOUT;
+
+    Requests(Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    CompletableFuture<byte[]> request(int opcode, ByteBuffer payload, long time, TimeUnit unit) {
+        if(opcode < 0 || opcode > FrameDecoder.MAX_OPCODE) throw new IllegalArgumentException("Opcode must be 0-" + FrameDecoder.MAX_OPCODE + ".");
+        if (dispatcher.isClosed()) return CompletableFuture.failedFuture(new IOException("Connection closed"));
+        Pending p = new Pending();
+        int id;
+        do {
+            id = ids.getAndIncrement() & Integer.MAX_VALUE;
+        } while (pending.putIfAbsent(id, p) != null); /* only after wrapping around with a very old request still open */
+        final int key = id;
+        p.timeout = timer.schedule(() -> {
+            if (pending.remove(key, p)) p.completeExceptionally(new TimeoutException("No response to request " + key + " within " + unit.toMillis(time) + "ms"));
+        }, time, unit);
+        if (dispatcher.isClosed()) { /* raced with close, fail() completed p */
+            fail();
+            return p;
+        }
+        PooledBuffer frame = BufferPool.getDefault().heap(2 * ByteCursor.MAX_VARINT_BYTES + payload.remaining());
+        new ByteCursor(frame.buffer()).putVarInt(id).putVarInt(opcode).putBytes(payload.duplicate());
+        frame.buffer().flip();
+        dispatcher.send(RPC_REQUEST, frame);
+        return p;
+    }
+
+    /**
+     * Route a request to its handler, or answer right away if there is none
+     * @param payload Request frame payload
+     * @throws ProtocolException If the frame is malformed
+     */
+    void onRequest(ByteBuffer payload) throws ProtocolException {
+        int id, opcode;
+        try {
+            ByteCursor in = new ByteCursor(payload.duplicate());
+            id = in.getVarInt();
+            opcode = in.getVarInt();
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new ProtocolException("Malformed request");
+        }
+        IOEventListener[] h = opcode >= 0 && opcode <= FrameDecoder.MAX_OPCODE ? handlers.get(opcode) : new IOEventListener[0];
+        if (h.length == 0) {
+            respond(dispatcher, id, RequestException.NO_HANDLER, ("No handler for opcode " + opcode).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        dispatcher.dispatch(opcode, h, payload, false);
+    }
+
+    /**
+     * Complete the request a response belongs to, responses to requests that already timed out are ignored
+     * @param payload Response frame payload
+     * @throws ProtocolException If the frame is malformed
+     */
+    void onResponse(ByteBuffer payload) throws ProtocolException {
+        int id, status;
+        byte[] body;
+        try {
+            ByteCursor in = new ByteCursor(payload.duplicate());
+            id = in.getVarInt();
+            status = in.getUnsignedByte();
+            body = new byte[in.remaining()];
+            in.getBytes(body);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new ProtocolException("Malformed response");
+        }
+        Pending p = pending.remove(id);
+        if (p == null) return;
+        Timeout t = p.timeout;
+        if (t != null) t.cancel();
+        if (status == OK) p.complete(body);
+        else p.completeExceptionally(new RequestException(status, new String(body, StandardCharsets.UTF_8)));
+    }
+
+    private static void respond(Dispatcher d, int id, int status, byte[] body) {
+        PooledBuffer frame = BufferPool.getDefault().heap(ByteCursor.MAX_VARINT_BYTES + 1 + body.length);
+        new ByteCursor(frame.buffer()).putVarInt(id).putByte(status).putBytes(body);
+        frame.buffer().flip();
+        d.send(RPC_RESPONSE, frame);
+    }
+
+    void setHandler(int opcode, RequestHandler handler) {
+        synchronized (handlers) {
+            for (IOEventListener l : handlers.get(opcode)) handlers.remove(opcode, l);
+            if (handler != null) handlers.add(opcode, new Handler(handler));
+        }
+    }
+
+    void copySettings(Requests other) {
+        handlers.addAll(other.handlers);
+        timer = other.timer;
+        timeout = other.timeout;
+    }
+
+    /**
+     * Fail all open requests, called once the connection is closed
+     */
+    void fail() {
+        for (Integer id : pending.keySet()) {
+            Pending p = pending.remove(id);
+            if (p == null) continue;
+            Timeout t = p.timeout;
+            if (t != null) t.cancel();
+            p.completeExceptionally(new IOException("Connection closed"));
+        }
+    }
+
+    int getPending() {
+        return pending.size();
+    }
+
+    void setTimeout(long millis) {
+        if(millis < 1) throw new IllegalArgumentException("Request timeout cannot be below 1.");
+        this.timeout = millis;
+    }
+
+    long getTimeout() {
+        return timeout;
+    }
+
+    void setTimer(TimerWheel timer) {
+        if(timer == null) throw new IllegalArgumentException("Timer cannot be null.");
+        this.timer = timer;
+    }
+
+    TimerWheel getTimer() {
+        return timer;
+    }
+}
@@ -1,23 +1,79 @@
 package LWJG.net;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
-import javax.net.ssl.SSLServerSocket;
-import javax.net.ssl.SSLServerSocketFactory;
-import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLException;
+
+import LWJG.net.nio.NioConnection;
+import LWJG.net.nio.SelectorPool;
+import LWJG.net.transport.StreamConnection;
+import LWJG.net.transport.StreamListener;
+import LWJG.net.transport.TlsTransport;
+import LWJG.net.transport.Transport;
+import LWJG.net.util.metrics.LatencyHistogram;
+import LWJG.net.util.metrics.NetMetrics;
 
 /**
  * Utility Class for easy creation of a server with Clientmanager integretation
+ * <br>Without a {@link SelectorPool} every Client gets its own virtual thread,
+ * with one all Clients share the selector threads of the pool
+ * <br>Accepting and the TLS handshake are separated: acceptor threads only check the blocklist and rate limit,
+ * the handshake runs on the Clients virtual thread or on the selector pool and must finish within the handshake timeout.
+ * Clients are added to the {@link ClientManager} once their handshake is done.
+ * With more than one acceptor every acceptor binds its own socket with SO_REUSEPORT where the platform supports it,
+ * otherwise they share one
+ * <br>TLS settings and the server session cache come from a {@link TlsContext}, by default {@link TlsContext#getDefault()}
+ * <br>Clients connect through a {@link Transport}, TLS over TCP unless another one is given.
+ * The blocklist and rate limit only apply to transports with IP addresses
  * @author Marius Baumgartner
- * @version 2025-05-03T4:03
+ * @version 2026-10-18T23:59
  * @side Server
  */
 public class ServerHandler extends Thread {
-    private final int port;
+    public static final long DEFAULT_HANDSHAKE_TIMEOUT = 10_000;
+
+    private static final ScheduledThreadPoolExecutor deadlines = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "lwjg-handshake-deadlines");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        deadlines.setRemoveOnCancelPolicy(true);
+    }
+
+    private final Transport transport;
+    private final SocketAddress address;
     private final int backlog;
+    private final SelectorPool selectors;
     private volatile boolean running;
     private ClientManager mn;
-    private SSLServerSocket serverSocket;
+    private final List<Closeable> serverSockets = new CopyOnWriteArrayList<>();
+
+    private volatile int acceptors = 1;
+    private volatile long handshakeTimeout = DEFAULT_HANDSHAKE_TIMEOUT;
+    private volatile ConnectRateLimiter rateLimiter;
+    private volatile TlsContext tls;
+
+    private final LatencyHistogram handshakeLatency = new LatencyHistogram();
+    private final AtomicLong handshakeFailures = new AtomicLong();
+    private final AtomicLong handshakeTimeouts = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
 
     static {
         System.setProperty("javax.net.ssl.keyStore", "server.keystore");
@@ -25,8 +81,35 @@ public class ServerHandler extends Thread {
     }
 
     public ServerHandler(int port, int backlog, ClientPermission defaultPermission) {
-        this.port = port;
+        this(port, backlog, defaultPermission, null);
+    }
+
+    /**
+     * Create a Server in selector mode
+     * @param port Port
+     * @param backlog Accept backlog
+     * @param defaultPermission Permission of new Clients
+     * @param selectors Selector pool serving all Clients, null for blocking mode
+     */
+    public ServerHandler(int port, int backlog, ClientPermission defaultPermission, SelectorPool selectors) {
+        this(null, new InetSocketAddress(port), backlog, defaultPermission, selectors);
+    }
+
+    /**
+     * Create a Server on any transport
+     * @param transport Transport, null for TLS over TCP with the {@link #getTlsContext() TLS context}
+     * @param address Local address in the format of the transport
+     * @param backlog Accept backlog
+     * @param defaultPermission Permission of new Clients
+     * @param selectors Selector pool serving all Clients, null for blocking mode
+     */
+    public ServerHandler(Transport transport, SocketAddress address, int backlog, ClientPermission defaultPermission, SelectorPool selectors) {
+        if(transport != null && selectors != null && !transport.isSelectable())
+            throw new IllegalArgumentException(transport.getClass().getSimpleName() + " does not support selector mode.");
+        this.transport = transport;
+        this.address = address;
         this.backlog = backlog;
+        this.selectors = selectors;
         this.running = true;
         mn = new ClientManager(defaultPermission);
     }
@@ -34,35 +117,188 @@ public class ServerHandler extends Thread {
     @Override
     public void run() {
         try {
-            serverSocket = (SSLServerSocket) SSLServerSocketFactory.getDefault().createServerSocket(port, backlog);
-            serverSocket.setEnabledProtocols(new String[] { "TLSv1.3", "TLSv1.2" });
-            while(running) {
-                SSLSocket client = (SSLSocket) serverSocket.accept();
-                if(!mn.isBlocked(client.getInetAddress().getHostAddress())) {
-                    Client newClient = mn.add(client);
-                    if (newClient != null) {
-                        Thread.startVirtualThread(newClient);
-                        System.out.println("Started virtual thread for client");
-                    } else {
-                        System.out.println("Failed to add client (duplicate or error");
-                        if (!client.isClosed()) try { client.close(); } catch (IOException e) { /* ignore */ }
-                    }
-                } else System.out.println("Client connection was blocked.");
-            }
-            serverSocket.close();
+            if (selectors != null) runSelector();
+            else runBlocking();
         } catch (IOException e) {
-            e.printStackTrace();
+            if (running) e.printStackTrace();
         }
         finally {
             close();
         }
     }
 
+    private void runBlocking() throws IOException {
+        Transport transport = getTransport();
+        StreamListener first = bindListener(transport, acceptors > 1);
+        boolean reusePort = acceptors > 1 && first.isReusePort();
+        for (int i = 1; i < acceptors; i++) {
+            StreamListener l = reusePort ? bindListener(transport, true) : first;
+            startAcceptor(i, () -> acceptBlocking(l));
+        }
+        acceptBlocking(first);
+    }
+
+    private StreamListener bindListener(Transport transport, boolean reusePort) throws IOException {
+        StreamListener l = transport.listen(address, backlog, reusePort);
+        serverSockets.add(l);
+        return l;
+    }
+
+    private void acceptBlocking(StreamListener listener) throws IOException {
+        while(running) {
+            StreamConnection client = listener.accept();
+            if(admit(client.getRemoteAddress())) {
+                long start = System.nanoTime();
+                Thread.startVirtualThread(() -> handshake(client, start));
+            } else {
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * Runs on the Clients virtual thread, which goes on to serve the Client
+     */
+    private void handshake(StreamConnection client, long start) {
+        AtomicBoolean decided = new AtomicBoolean(); /* either the handshake or the deadline wins */
+        ScheduledFuture<?> deadline = deadlines.schedule(() -> {
+            if (!decided.compareAndSet(false, true)) return;
+            handshakeTimedOut();
+            try { client.close(); } catch (IOException e) { /* ignore */ }
+        }, handshakeTimeout, TimeUnit.MILLISECONDS);
+        try {
+            client.handshake();
+        } catch (IOException e) {
+            handshakeFailed();
+            try { client.close(); } catch (IOException ex) { /* ignore */ }
+            return;
+        } finally {
+            deadline.cancel(false);
+        }
+        if (!decided.compareAndSet(false, true)) {
+            handshakeFailed();
+            return;
+        }
+        handshakeDone(start);
+        if (running) mn.add(client).run();
+        else try { client.close(); } catch (IOException e) { /* ignore */ }
+    }
+
+    private void runSelector() throws IOException {
+        Transport transport = getTransport();
+        ServerSocketChannel first = bindChannel(transport, acceptors > 1);
+        boolean reusePort = acceptors > 1 && first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)
+                && first.getOption(StandardSocketOptions.SO_REUSEPORT);
+        for (int i = 1; i < acceptors; i++) {
+            ServerSocketChannel ch = reusePort ? bindChannel(transport, true) : first;
+            startAcceptor(i, () -> acceptSelector(ch, transport));
+        }
+        acceptSelector(first, transport);
+    }
+
+    private ServerSocketChannel bindChannel(Transport transport, boolean reusePort) throws IOException {
+        ServerSocketChannel ch = transport.listenChannel(address, backlog, reusePort);
+        serverSockets.add(ch);
+        return ch;
+    }
+
+    private void acceptSelector(ServerSocketChannel serverChannel, Transport transport) throws IOException {
+        while(running) {
+            SocketChannel client = serverChannel.accept();
+            if(!admit(client.getRemoteAddress())) {
+                client.close();
+                continue;
+            }
+            try {
+                handshake(transport.accepted(selectors, client), System.nanoTime());
+            } catch (IOException e) {
+                System.out.println("Failed to add client: " + e.getMessage());
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * The handshake runs on the selector pool, the Client is added from its selector thread once it is done
+     */
+    private void handshake(NioConnection connection, long start) {
+        CompletableFuture<NioConnection> handshake = connection.handshake();
+        ScheduledFuture<?> deadline = deadlines.schedule(() -> {
+            if (!handshake.completeExceptionally(new SSLException("Handshake timed out"))) return;
+            handshakeTimedOut();
+            connection.close();
+        }, handshakeTimeout, TimeUnit.MILLISECONDS);
+        handshake.whenComplete((c, e) -> {
+            deadline.cancel(false);
+            if (e != null) {
+                handshakeFailed();
+                return;
+            }
+            handshakeDone(start);
+            if (running) mn.add(c).run();
+            else c.close();
+        });
+    }
+
+    private void handshakeDone(long start) {
+        long nanos = System.nanoTime() - start;
+        handshakeLatency.record(nanos);
+        NetMetrics m = mn.getMetrics();
+        if (m != null) m.recordHandshake(nanos);
+    }
+
+    private void handshakeFailed() {
+        handshakeFailures.incrementAndGet();
+        NetMetrics m = mn.getMetrics();
+        if (m != null) m.recordHandshakeFailure();
+    }
+
+    private void handshakeTimedOut() {
+        handshakeTimeouts.incrementAndGet();
+        NetMetrics m = mn.getMetrics();
+        if (m != null) m.recordHandshakeTimeout();
+    }
+
+    /**
+     * Blocklist and rate limit only apply to IP peers, local transports are always admitted
+     */
+    private boolean admit(SocketAddress remote) {
+        if(!(remote instanceof InetSocketAddress)) return true;
+        InetAddress address = ((InetSocketAddress) remote).getAddress();
+        if(mn.isBlocked(address)) {
+            System.out.println("Client connection was blocked.");
+            return false;
+        }
+        ConnectRateLimiter limiter = rateLimiter;
+        if(limiter != null && !limiter.tryAcquire(address)) {
+            rateLimited.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void startAcceptor(int index, Acceptor acceptor) {
+        Thread t = new Thread(() -> {
+            try {
+                acceptor.accept();
+            } catch (IOException e) {
+                if (running) e.printStackTrace();
+            }
+        }, getName() + "-acceptor-" + index);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @FunctionalInterface
+    private interface Acceptor {
+        void accept() throws IOException;
+    }
+
     public void close() {
         running = false;
-        if (serverSocket != null && !serverSocket.isClosed()) {
+        for (Closeable s : serverSockets) {
             try {
-                serverSocket.close();
+                s.close();
             } catch (IOException e) {
                 System.err.println("Error closing server socket: " + e.getMessage());
             }
@@ -70,7 +306,113 @@ public class ServerHandler extends Thread {
         mn.closeAllClients();
     }
 
+    /**
+     * Set the amount of accept loops, must be set before {@link #start()}
+     * @param acceptors Accept loops
+     */
+    public void setAcceptors(int acceptors) {
+        if(acceptors < 1) throw new IllegalArgumentException("Acceptors cannot be below 1.");
+        this.acceptors = acceptors;
+    }
+
+    public int getAcceptors() {
+        return acceptors;
+    }
+
+    /**
+     * Get the transport Clients connect through
+     * @return Transport, {@link TlsTransport} over the {@link #getTlsContext() TLS context} if none was given
+     * @throws IOException If the default SSLContext cannot be created
+     */
+    public Transport getTransport() throws IOException {
+        Transport t = transport;
+        return t != null ? t : new TlsTransport(getTlsContext());
+    }
+
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Set the TLS settings of the default transport, must be set before {@link #start()}
+     * @param tls TLS settings and session cache
+     */
+    public void setTlsContext(TlsContext tls) {
+        this.tls = tls;
+    }
+
+    /**
+     * Get the TLS settings
+     * @return TLS settings, {@link TlsContext#getDefault()} if none were set
+     * @throws IOException If the default SSLContext cannot be created
+     */
+    public TlsContext getTlsContext() throws IOException {
+        TlsContext t = tls;
+        return t != null ? t : TlsContext.getDefault();
+    }
+
+    /**
+     * Set the time a Client has to finish the TLS handshake before it is disconnected
+     * @param millis Timeout in milliseconds
+     */
+    public void setHandshakeTimeout(long millis) {
+        if(millis < 1) throw new IllegalArgumentException("Handshake timeout cannot be below 1.");
+        this.handshakeTimeout = millis;
+    }
+
+    public long getHandshakeTimeout() {
+        return handshakeTimeout;
+    }
+
+    /**
+     * Limit connection attempts per address, attempts over the limit are closed right after accept
+     * @param rate Connections per second and address
+     * @param burst Connections an address may open at once
+     */
+    public void setConnectRateLimit(double rate, int burst) {
+        this.rateLimiter = new ConnectRateLimiter(rate, burst);
+    }
+
+    /**
+     * Remove the connection rate limit
+     */
+    public void removeConnectRateLimit() {
+        this.rateLimiter = null;
+    }
+
+    /**
+     * Get the time from accept to finished handshake
+     * @return Histogram in nanoseconds
+     */
+    public LatencyHistogram getHandshakeLatency() {
+        return handshakeLatency;
+    }
+
+    /**
+     * Get the amount of handshakes that failed, including timeouts
+     * @return Failed handshakes
+     */
+    public long getHandshakeFailures() {
+        return handshakeFailures.get();
+    }
+
+    /**
+     * Get the amount of handshakes that did not finish within the timeout
+     * @return Timed out handshakes
+     */
+    public long getHandshakeTimeouts() {
+        return handshakeTimeouts.get();
+    }
+
+    /**
+     * Get the amount of connections closed by the rate limit
+     * @return Rate limited connections
+     */
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
     public ClientManager getClientManager() {
         return mn;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,210 @@
+package LWJG.net;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.NoSuchAlgorithmException;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * TLS settings shared by all connections of a {@link ServerHandler} or by many {@link RemoteServer}s
+ * <br>Sessions are cached per context: a server remembers sessions it handed out and issues TLS 1.3 session tickets,
+ * a client remembers sessions per host and port. A reconnect through the same context resumes the session
+ * with an abbreviated handshake instead of a full key exchange
+ * <br>A context for datagrams holds a DTLS {@link SSLContext}, see {@link #getDefaultDatagram()}
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public class TlsContext {
+    private static final String[] PROTOCOLS = { "TLSv1.3", "TLSv1.2" };
+    /**
+     * Datagram size that passes common paths without IP fragmentation
+     */
+    public static final int DEFAULT_DATAGRAM_MTU = 1200;
+
+    private static final String[] DATAGRAM_PROTOCOLS = { "DTLSv1.2" };
+    private static TlsContext defaultContext;
+    private static TlsContext defaultDatagramContext;
+
+    private final SSLContext context;
+
+    /**
+     * @param context Initialized context holding key and trust material
+     */
+    public TlsContext(SSLContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Get the context built from the javax.net.ssl system properties
+     * @return Default context
+     * @throws IOException If the default SSLContext cannot be created
+     */
+    public static synchronized TlsContext getDefault() throws IOException {
+        if (defaultContext == null) {
+            try {
+                defaultContext = new TlsContext(SSLContext.getDefault());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("No default SSLContext", e);
+            }
+        }
+        return defaultContext;
+    }
+
+    /**
+     * Get a DTLS context built from the javax.net.ssl system properties, the JDK has no default one
+     * <br>Key material is loaded from javax.net.ssl.keyStore if set, trust material from javax.net.ssl.trustStore or the JDK's cacerts
+     * @return Default datagram context
+     * @throws IOException If a store cannot be loaded or DTLS is not available
+     */
+    public static synchronized TlsContext getDefaultDatagram() throws IOException {
+        if (defaultDatagramContext == null) {
+            try {
+                KeyManagerFactory kmf = null;
+                KeyStore keys = load("javax.net.ssl.keyStore");
+                if (keys != null) {
+                    kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+                    kmf.init(keys, password("javax.net.ssl.keyStore"));
+                }
+                TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+                tmf.init(load("javax.net.ssl.trustStore"));
+                SSLContext c = SSLContext.getInstance("DTLS");
+                c.init(kmf != null ? kmf.getKeyManagers() : null, tmf.getTrustManagers(), null);
+                defaultDatagramContext = new TlsContext(c);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("No default DTLS context", e);
+            }
+        }
+        return defaultDatagramContext;
+    }
+
+    private static KeyStore load(String property) throws IOException, GeneralSecurityException {
+        String path = System.getProperty(property);
+        if (path == null || path.isEmpty()) return null;
+        KeyStore ks = KeyStore.getInstance(System.getProperty(property + "Type", KeyStore.getDefaultType()));
+        try (InputStream in = new FileInputStream(path)) {
+            ks.load(in, password(property));
+        }
+        return ks;
+    }
+
+    private static char[] password(String property) {
+        String p = System.getProperty(property + "Password");
+        return p != null ? p.toCharArray() : null;
+    }
+
+    /**
+     * Size the client side session cache
+     * @param size Maximum cached sessions, 0 for no limit
+     * @param timeout Seconds a session may be resumed, 0 for no limit
+     */
+    public void setClientSessionCache(int size, int timeout) {
+        configure(context.getClientSessionContext(), size, timeout);
+    }
+
+    /**
+     * Size the server side session cache, also bounds how long issued session tickets are accepted
+     * @param size Maximum cached sessions, 0 for no limit
+     * @param timeout Seconds a session may be resumed, 0 for no limit
+     */
+    public void setServerSessionCache(int size, int timeout) {
+        configure(context.getServerSessionContext(), size, timeout);
+    }
+
+    private static void configure(SSLSessionContext sessions, int size, int timeout) {
+        if(size < 0 || timeout < 0) throw new IllegalArgumentException("Session cache size and timeout cannot be below 0.");
+        sessions.setSessionCacheSize(size);
+        sessions.setSessionTimeout(timeout);
+    }
+
+    /**
+     * Connect a client socket, sessions are looked up by ip and port
+     * @param ip Server ip
+     * @param port Server port
+     * @return Connected socket, the handshake starts on first use
+     * @throws IOException If the connection fails
+     */
+    public SSLSocket createSocket(String ip, int port) throws IOException {
+        SSLSocket s = (SSLSocket) context.getSocketFactory().createSocket(ip, port);
+        s.setEnabledProtocols(PROTOCOLS);
+        return s;
+    }
+
+    /**
+     * Create a unbound server socket
+     * @return Server socket
+     * @throws IOException If the socket cannot be created
+     */
+    public SSLServerSocket createServerSocket() throws IOException {
+        SSLServerSocket s = (SSLServerSocket) context.getServerSocketFactory().createServerSocket();
+        s.setEnabledProtocols(PROTOCOLS);
+        return s;
+    }
+
+    /**
+     * Create a client engine, sessions are looked up by ip and port
+     * @param ip Server ip
+     * @param port Server port
+     * @return Engine in client mode
+     */
+    public SSLEngine createClientEngine(String ip, int port) {
+        SSLEngine engine = context.createSSLEngine(ip, port);
+        engine.setUseClientMode(true);
+        engine.setEnabledProtocols(PROTOCOLS);
+        return engine;
+    }
+
+    /**
+     * Create a server engine
+     * @return Engine in server mode
+     */
+    public SSLEngine createServerEngine() {
+        SSLEngine engine = context.createSSLEngine();
+        engine.setUseClientMode(false);
+        engine.setEnabledProtocols(PROTOCOLS);
+        return engine;
+    }
+
+    /**
+     * Create a DTLS engine, only for contexts from {@link #getDefaultDatagram()} or other DTLS contexts
+     * @param client Client mode
+     * @param ip Peer ip, used by clients for session lookup
+     * @param port Peer port
+     * @return Engine limited to {@link #DEFAULT_DATAGRAM_MTU} byte datagrams
+     */
+    public SSLEngine createDatagramEngine(boolean client, String ip, int port) {
+        return createDatagramEngine(client, ip, port, DEFAULT_DATAGRAM_MTU);
+    }
+
+    /**
+     * Create a DTLS engine
+     * @param client Client mode
+     * @param ip Peer ip, used by clients for session lookup
+     * @param port Peer port
+     * @param mtu Largest datagram the engine may produce
+     * @return Engine
+     */
+    public SSLEngine createDatagramEngine(boolean client, String ip, int port, int mtu) {
+        SSLEngine engine = client ? context.createSSLEngine(ip, port) : context.createSSLEngine();
+        engine.setUseClientMode(client);
+        engine.setEnabledProtocols(DATAGRAM_PROTOCOLS);
+        SSLParameters p = engine.getSSLParameters();
+        p.setMaximumPacketSize(mtu);
+        engine.setSSLParameters(p);
+        return engine;
+    }
+
+    public SSLContext getContext() {
+        return context;
+    }
+}
@@ -0,0 +1,15 @@
+package LWJG.net;
+
+/**
+ * Listener for when a Dispatcher's outbound queue crosses its watermarks
+ * @author Marius Baumgartner
+ * @version 2026-10-18T16:05
+ */
+public interface WritabilityListener {
+    /**
+     * Invoked on the writing or sending thread, keep it short
+     * @param dispatcher Dispatcher
+     * @param writable False once queued bytes exceed the high watermark, true again once they fall to the low watermark
+     */
+    void onWritabilityChanged(Dispatcher dispatcher, boolean writable);
+}
@@ -0,0 +1,184 @@
+package LWJG.net.codec;
+
+import LWJG.core.Base;
+import LWJG.core.CFrame;
+import LWJG.core.Vector2;
+import LWJG.net.util.bin.ByteCursor;
+
+/**
+ * Built-in codecs used by generated code for types that are not {@link Message messages} themselves
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public final class Codecs {
+    /**
+     * Encoded size of the kinematics of a {@link Base}: frame, velocity, angular velocity, acceleration, angular acceleration
+     */
+    public static final int KINEMATICS_BYTES = ByteCursor.CFRAME_BYTES + 2 * ByteCursor.VECTOR2_BYTES + 16;
+
+    private Codecs() {
+    }
+
+    /**
+     * Write the kinematic state of a Base, dimension and jerk are not part of it
+     * @param out Cursor
+     * @param b Base
+     */
+    public static void putKinematics(ByteCursor out, Base b) {
+        out.putCFrame(b.getCFrame()).putVector2(b.getVelocity()).putDouble(b.getAngularVelocity())
+           .putVector2(b.getAcceleration()).putDouble(b.getAngularAcceleration());
+    }
+
+    /**
+     * Read the kinematic state of a Base in place
+     * @param in Cursor
+     * @param dst Base to update, its frame and vectors are reused, null for a new one
+     * @return dst, or a new Base without dimension
+     */
+    public static Base getKinematics(ByteCursor in, Base dst) {
+        if (dst == null) dst = new Base(new CFrame(Vector2.zero(), 0), null, 0, null, 0, null);
+        if (dst.getCFrame() != null) in.getCFrame(dst.getCFrame());
+        else dst.setCFrame(in.getCFrame());
+        if (dst.getVelocity() != null) in.getVector2(dst.getVelocity());
+        else dst.setVelocity(in.getVector2());
+        dst.setAngularVelocity(in.getDouble());
+        if (dst.getAcceleration() != null) in.getVector2(dst.getAcceleration());
+        else dst.setAcceleration(in.getVector2());
+        dst.setAngularAcceleration(in.getDouble());
+        return dst;
+    }
+
+    /**
+     * Write a byte array prefixed by its length
+     * @param out Cursor
+     * @param b Bytes
+     */
+    public static void putBytes(ByteCursor out, byte[] b) {
+        out.putVarInt(b.length).putBytes(b);
+    }
+
+    /**
+     * Read a byte array prefixed by its length
+     * @param in Cursor
+     * @param dst Array to reuse if the length matches, may be null
+     * @return Bytes
+     */
+    public static byte[] getBytes(ByteCursor in, byte[] dst) {
+        int n = length(in);
+        if (dst == null || dst.length != n) dst = new byte[n];
+        in.getBytes(dst);
+        return dst;
+    }
+
+    /**
+     * Write vectors prefixed by their count
+     * @param out Cursor
+     * @param v Vectors
+     */
+    public static void putVector2s(ByteCursor out, Vector2[] v) {
+        out.putVarInt(v.length).putVector2s(v, 0, v.length);
+    }
+
+    /**
+     * Read vectors prefixed by their count
+     * @param in Cursor
+     * @param dst Array to reuse if the count matches, may be null
+     * @return Vectors
+     */
+    public static Vector2[] getVector2s(ByteCursor in, Vector2[] dst) {
+        int n = length(in);
+        if ((long) n * ByteCursor.VECTOR2_BYTES > in.remaining()) throw new IllegalArgumentException("Malformed message.");
+        if (dst == null || dst.length != n) dst = new Vector2[n];
+        in.getVector2s(dst, 0, n);
+        return dst;
+    }
+
+    /**
+     * Write frames prefixed by their count
+     * @param out Cursor
+     * @param c Frames
+     */
+    public static void putCFrames(ByteCursor out, CFrame[] c) {
+        out.putVarInt(c.length).putCFrames(c, 0, c.length);
+    }
+
+    /**
+     * Read frames prefixed by their count
+     * @param in Cursor
+     * @param dst Array to reuse if the count matches, may be null
+     * @return Frames
+     */
+    public static CFrame[] getCFrames(ByteCursor in, CFrame[] dst) {
+        int n = length(in);
+        if ((long) n * ByteCursor.CFRAME_BYTES > in.remaining()) throw new IllegalArgumentException("Malformed message.");
+        if (dst == null || dst.length != n) dst = new CFrame[n];
+        in.getCFrames(dst, 0, n);
+        return dst;
+    }
+
+    /**
+     * Read a length prefix, checked against what is left so a corrupt length cannot allocate huge arrays
+     * @param in Cursor
+     * @return Length
+     */
+    public static int length(ByteCursor in) {
+        int n = in.getVarInt();
+        if (n < 0 || n > in.remaining()) throw new IllegalArgumentException("Malformed message.");
+        return n;
+    }
+
+    /**
+     * Write the length of a message body into the room left before it
+     * <br>The room is reserved before the body is known, so the varint is padded to its width with continuation bytes
+     * @param out Cursor at the end of the body
+     * @param start Position of the reserved room
+     * @param width Reserved bytes, enough for any body length up to the bytes that were remaining at start
+     */
+    public static void putLength(ByteCursor out, int start, int width) {
+        int n = out.position() - start - width;
+        for (int i = 0; i < width; i++) {
+            int b = n >>> 7 * i & 0x7F;
+            out.buffer().put(start + i, (byte) (i < width - 1 ? b | 0x80 : b));
+        }
+    }
+
+    /**
+     * Read the length of a message body
+     * @param in Cursor
+     * @return Position after the body
+     */
+    public static int body(ByteCursor in) {
+        return length(in) + in.position();
+    }
+
+    /**
+     * Skip the rest of a message body, fields appended by a newer writer
+     * @param in Cursor
+     * @param end Position after the body, see {@link #body(ByteCursor)}
+     * @throws IllegalArgumentException If the fields overran the body
+     */
+    public static void skipTo(ByteCursor in, int end) {
+        if (in.position() > end) throw new IllegalArgumentException("Malformed message.");
+        in.position(end);
+    }
+
+    /**
+     * Read the schema version of a message
+     * @param in Cursor
+     * @return Version
+     */
+    public static int version(ByteCursor in) {
+        int v = in.getVarInt();
+        if (v < 1) throw new IllegalArgumentException("Malformed message version " + v + ".");
+        return v;
+    }
+
+    /**
+     * Get a upper bound of the encoded size of a string
+     * @param s String
+     * @return Bytes
+     */
+    public static int maxSize(String s) {
+        return ByteCursor.MAX_VARINT_BYTES + s.length() * 3;
+    }
+}
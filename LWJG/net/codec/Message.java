@@ -0,0 +1,35 @@
+package LWJG.net.codec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose {@link MessageField fields} are serialized by a generated {@link MessageCodec}
+ * <br>For a class <code>Foo</code> the <code>LWJG.net.codec.processor.MessageProcessor</code> from the <code>processor</code> source root generates <code>FooCodec</code>
+ * in the same package, reachable as <code>FooCodec.INSTANCE</code>. The class needs a non-private no-arg constructor
+ * <br>Message layout is <code>[varint version][varint length]([varlong presence]?[fields])*</code>, one group per {@link MessageField#since()}
+ * with the fields in declaration order. A group only carries presence bits if it has {@link MessageField#optional() optional} fields
+ * <br>To evolve a message only append fields, with {@link MessageField#since()} set to the new {@link #version()}.
+ * Older readers skip the appended groups by the length, also inside nested messages, newer readers leave the fields a older writer did not know untouched
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Message {
+    /**
+     * Opcode the message is sent with
+     * @return Opcode 0-65535, -1 if the message is only nested into others
+     */
+    int opcode() default -1;
+
+    /**
+     * Current schema version, the highest {@link MessageField#since()} of its fields
+     * @return Version, at least 1
+     */
+    int version() default 1;
+}
@@ -0,0 +1,85 @@
+package LWJG.net.codec;
+
+import java.nio.ByteBuffer;
+
+import LWJG.net.util.bin.ByteCursor;
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
+
+/**
+ * Encoder and decoder of one {@link Message} type, implemented by generated code without reflection
+ * <br>Codecs are stateless and thread safe
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:50
+ */
+public interface MessageCodec<T> {
+    /**
+     * Get the opcode of the message
+     * @return Opcode 0-65535, -1 for nested messages
+     */
+    int getOpcode();
+
+    /**
+     * Get the schema version written by this codec
+     * @return Version
+     */
+    int getVersion();
+
+    /**
+     * Get a upper bound of the encoded size
+     * @param message Message
+     * @return Bytes
+     */
+    int maxSize(T message);
+
+    /**
+     * Encode a message at the position of the cursor
+     * @param message Message
+     * @param out Cursor with at least {@link #maxSize(Object)} bytes remaining
+     * @throws NullPointerException If a non optional field is null
+     */
+    void encode(T message, ByteCursor out);
+
+    /**
+     * Decode a message into a existing instance
+     * @param in Cursor at the start of the message
+     * @param into Message to overwrite, its vectors, frames and arrays are reused where possible
+     * @return into
+     * @throws IllegalArgumentException If the message is malformed
+     * @throws java.nio.BufferUnderflowException If the message is truncated
+     */
+    T decode(ByteCursor in, T into);
+
+    /**
+     * Decode a new message
+     * @param in Cursor at the start of the message
+     * @return Message
+     */
+    T decode(ByteCursor in);
+
+    /**
+     * Decode a new message from a payload
+     * @param payload Payload in read mode, its position is not changed
+     * @return Message
+     */
+    default T decode(ByteBuffer payload) {
+        return decode(new ByteCursor(payload.duplicate()));
+    }
+
+    /**
+     * Encode a message into a pooled buffer, ready for {@link LWJG.net.Dispatcher#send(int, PooledBuffer)}
+     * @param message Message
+     * @return Encoded message in read mode, the caller owns the reference
+     */
+    default PooledBuffer encode(T message) {
+        PooledBuffer b = BufferPool.getDefault().heap(maxSize(message));
+        try {
+            encode(message, new ByteCursor(b.buffer()));
+        } catch (RuntimeException e) {
+            b.release();
+            throw e;
+        }
+        b.buffer().flip();
+        return b;
+    }
+}
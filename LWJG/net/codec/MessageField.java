@@ -0,0 +1,39 @@
+package LWJG.net.codec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field of a {@link Message} to be serialized, it must not be private, static or final
+ * <br>Supported are all primitives, <code>String</code>, <code>byte[]</code>, enums, {@link LWJG.core.Vector2},
+ * {@link LWJG.core.CFrame}, arrays of both, the kinematics of {@link LWJG.core.Base} and other {@link Message messages}
+ * <br>int and long are zigzag varints unless {@link #fixed()}, floating point values are always fixed.
+ * Decoding into a existing message reuses its vectors, frames, bases and arrays of the same length
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface MessageField {
+    /**
+     * Schema version that added the field, fields have to be declared in order of it
+     * @return Version, at least 1
+     */
+    int since() default 1;
+
+    /**
+     * If the field may be null, costs one presence bit. Non optional fields must not be null when encoded
+     * @return Optional
+     */
+    boolean optional() default false;
+
+    /**
+     * Write int and long with fixed width, cheaper for values that are usually large like hashes or timestamps
+     * @return Fixed width
+     */
+    boolean fixed() default false;
+}
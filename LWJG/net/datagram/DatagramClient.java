@@ -0,0 +1,193 @@
+package LWJG.net.datagram;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import LWJG.net.Dispatcher;
+import LWJG.net.IOEventListener;
+import LWJG.net.RemoteServer;
+import LWJG.net.TlsContext;
+import LWJG.net.util.Opcodes;
+import LWJG.net.util.buffer.PooledBuffer;
+
+/**
+ * Client side of the datagram channel, see {@link DatagramServer}
+ * <br>{@link #start()} requests a token over the reliable connection and binds the datagram channel to it,
+ * until {@link #isConnected()} messages are refused
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ * @side Client
+ */
+public final class DatagramClient extends DatagramEndpoint {
+    private final RemoteServer server;
+    private volatile DatagramSession session;
+    private volatile boolean connected;
+    private byte[] token; /* endpoint thread only */
+    private long lastHello;
+
+    private final IOEventListener tokens = new IOEventListener() {
+        @Override
+        public void onEvent(Dispatcher server, byte[] payload) {
+            if (payload.length != 2 + DatagramServer.TOKEN_LENGTH) return;
+            ByteBuffer b = ByteBuffer.wrap(payload);
+            int port = b.getShort() & 0xFFFF;
+            byte[] t = new byte[DatagramServer.TOKEN_LENGTH];
+            b.get(t);
+            execute(() -> associate(port, t));
+        }
+
+        @Override
+        public boolean isHeavyTask() {
+            return false;
+        }
+    };
+
+    public DatagramClient(RemoteServer server) throws IOException {
+        this(server, TlsContext.getDefaultDatagram(), TlsContext.DEFAULT_DATAGRAM_MTU);
+    }
+
+    /**
+     * Open a datagram channel next to a connection
+     * @param server Reliable connection to the server, must use a transport with a ip
+     * @param tls DTLS settings, see {@link TlsContext#getDefaultDatagram()}
+     * @param mtu Largest datagram to send
+     * @throws IOException If no channel can be opened
+     */
+    public DatagramClient(RemoteServer server, TlsContext tls, int mtu) throws IOException {
+        super("lwjg-datagram-client", DatagramChannel.open().bind(null), tls, mtu);
+        if(server.getIP() == null) throw new IllegalArgumentException("Server transport has no ip.");
+        this.server = server;
+        server.addEventListener(Opcodes.DATAGRAM_TOKEN.getOpcode(), tokens);
+    }
+
+    @Override
+    public void run() {
+        server.send(Opcodes.DATAGRAM_TOKEN.getOpcode(), new byte[0]);
+        super.run();
+    }
+
+    /**
+     * Start the DTLS handshake with the port named by the server
+     * @param port Datagram port of the server
+     * @param t Token
+     */
+    private void associate(int port, byte[] t) {
+        if (session != null) return;
+        token = t;
+        InetSocketAddress peer = new InetSocketAddress(server.getIP(), port);
+        try {
+            channel.connect(peer);
+            DatagramSession s = new DatagramSession(this, peer, tls.createDatagramEngine(true, server.getIP(), port, getMtu()), getMaxPlain());
+            session = s;
+            s.begin();
+        } catch (IOException e) {
+            System.err.println("Datagram channel failed: " + e.getMessage());
+            close();
+        }
+    }
+
+    @Override
+    DatagramSession session(SocketAddress from, ByteBuffer datagram) {
+        DatagramSession s = session;
+        return s != null && s.peer.equals(from) ? s : null;
+    }
+
+    @Override
+    void onHandshakeFinished(DatagramSession s) {
+        hello(s, System.currentTimeMillis());
+    }
+
+    private void hello(DatagramSession s, long now) {
+        lastHello = now;
+        s.send(Opcodes.DATAGRAM_HELLO.getOpcode(), ByteBuffer.wrap(token));
+        s.flush();
+    }
+
+    @Override
+    void onHello(DatagramSession s, ByteBuffer payload) {
+        if (s.getBound() != null) return;
+        s.bind(server);
+        connected = true;
+    }
+
+    @Override
+    void tick(long now) {
+        if (server.isClosed()) {
+            close();
+            return;
+        }
+        DatagramSession s = session;
+        if (s == null) return;
+        if (!connected) {
+            if (!maintain(s, now)) {
+                System.err.println("Datagram channel failed: no association within " + getHandshakeTimeout() + "ms");
+                close();
+            } else if (s.isHandshaken() && now - lastHello >= getRetransmitTimeout()) {
+                hello(s, now);
+            }
+            return;
+        }
+        s.flush();
+    }
+
+    @Override
+    void closeSessions() {
+        connected = false;
+        server.removeEventListener(Opcodes.DATAGRAM_TOKEN.getOpcode(), tokens);
+        DatagramSession s = session;
+        if (s != null) s.close();
+    }
+
+    /**
+     * Pack a message, it is sent with the next {@link #flush()} or once the datagram is full
+     * @param opcode Opcode 0-65535
+     * @param payload Payload in read mode, not consumed
+     * @return False if the channel is not connected yet, nothing is sent then
+     * @throws IllegalArgumentException If the payload exceeds {@link #getMaxPayload(int)}
+     */
+    public boolean send(int opcode, ByteBuffer payload) {
+        DatagramSession s = session;
+        return connected && s.send(opcode, payload);
+    }
+
+    public boolean send(int opcode, byte[] payload) {
+        return send(opcode, ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Pack a pooled message
+     * @param opcode Opcode 0-65535
+     * @param payload Payload, one reference is released
+     * @return False if the channel is not connected yet
+     */
+    public boolean send(int opcode, PooledBuffer payload) {
+        try {
+            return send(opcode, payload.buffer());
+        } finally {
+            payload.release();
+        }
+    }
+
+    /**
+     * Send the partially packed datagram now instead of with the next tick
+     */
+    public void flush() {
+        DatagramSession s = session;
+        if (connected) s.flush();
+    }
+
+    /**
+     * Is the channel bound to the connection
+     * @return If messages can be sent
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public RemoteServer getServer() {
+        return server;
+    }
+}
@@ -0,0 +1,301 @@
+package LWJG.net.datagram;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import LWJG.net.DispatchTable;
+import LWJG.net.Dispatcher;
+import LWJG.net.IOEventListener;
+import LWJG.net.TlsContext;
+import LWJG.net.util.Opcodes;
+import LWJG.net.util.bin.ByteCursor;
+
+/**
+ * Unreliable, unordered secondary channel next to the reliable TLS connection, for state that is stale by the time it would be retransmitted
+ * <br>Datagrams are secured with DTLS and carry <code>[uint32 seq]([varint opcode][varint len][payload])*</code>:
+ * several messages are packed into one datagram up to the MTU, and a datagram that arrives after a newer one is dropped as stale
+ * <br>Listeners are registered per opcode like on a {@link Dispatcher} and are invoked with the reliable connection the datagram channel is bound to,
+ * heavy ones run on that connection's lane
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public abstract class DatagramEndpoint extends Thread {
+    /**
+     * Worst case DTLS 1.2 record expansion: 13 byte header, 16 byte IV, 48 byte MAC and 16 bytes of padding
+     */
+    public static final int DTLS_OVERHEAD = 93;
+
+    /**
+     * Default time without answer before a handshake flight is sent again
+     */
+    public static final long DEFAULT_RETRANSMIT = 1000;
+
+    /**
+     * Default time a association may take to be established and bound
+     */
+    public static final long DEFAULT_HANDSHAKE_TIMEOUT = 10_000;
+
+    static final int SEQ_BYTES = 4;
+    static final long TICK = 10; /* ms between flushes of partially packed datagrams */
+
+    protected final DispatchTable listeners = new DispatchTable();
+    protected final DatagramChannel channel;
+    protected final TlsContext tls;
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ByteCursor cursor = new ByteCursor(); /* endpoint thread only */
+    private final int mtu;
+    private volatile boolean running = true;
+    private volatile long retransmit = DEFAULT_RETRANSMIT;
+    private volatile long handshakeTimeout = DEFAULT_HANDSHAKE_TIMEOUT;
+
+    final LongAdder stale = new LongAdder();
+    final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param name Thread name
+     * @param channel Bound channel
+     * @param tls DTLS settings, see {@link TlsContext#getDefaultDatagram()}
+     * @param mtu Largest datagram to send
+     * @throws IOException If the channel cannot be registered
+     */
+    DatagramEndpoint(String name, DatagramChannel channel, TlsContext tls, int mtu) throws IOException {
+        super(name);
+        if(mtu < DTLS_OVERHEAD + 64) throw new IllegalArgumentException("MTU cannot be below " + (DTLS_OVERHEAD + 64) + ".");
+        setDaemon(true);
+        this.channel = channel;
+        this.tls = tls;
+        this.mtu = mtu;
+        this.selector = Selector.open();
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ);
+    }
+
+    /**
+     * Add a listener, invoked with the reliable connection this channel is bound to
+     * @param opcode Opcode 0-65535
+     * @param l Listener
+     */
+    public void addEventListener(int opcode, IOEventListener l) {
+        listeners.add(opcode, l);
+    }
+
+    public void removeEventListener(int opcode, IOEventListener l) {
+        listeners.remove(opcode, l);
+    }
+
+    @Override
+    public void run() {
+        ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        long last = 0;
+        while (running) {
+            try {
+                runTasks();
+                selector.select(TICK);
+                selector.selectedKeys().clear();
+                SocketAddress from;
+                while ((from = channel.receive(in.clear())) != null) {
+                    in.flip();
+                    DatagramSession s = session(from, in);
+                    if (s != null) s.receive(in);
+                }
+                long now = System.currentTimeMillis();
+                if (now - last >= TICK) {
+                    last = now;
+                    tick(now);
+                }
+            } catch (IOException e) {
+                if (running) e.printStackTrace();
+            } catch (RuntimeException e) {
+                e.printStackTrace(); /* one misbehaving peer must not kill the loop */
+            }
+        }
+        runTasks();
+        closeSessions();
+        try {
+            selector.close();
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing datagram channel: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Run a task on the endpoint thread
+     * @param task Task
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != this) selector.wakeup();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Find or create the association of a peer, endpoint thread only
+     * @param from Peer address
+     * @param datagram Received datagram in read mode, must not be consumed
+     * @return Session or null to drop the datagram
+     */
+    abstract DatagramSession session(SocketAddress from, ByteBuffer datagram);
+
+    /**
+     * Periodic work on the endpoint thread: flushing, retransmits and expiry
+     * @param now Current time in ms
+     */
+    abstract void tick(long now);
+
+    /**
+     * A {@link Opcodes#DATAGRAM_HELLO} arrived, endpoint thread only
+     * @param s Session
+     * @param payload Payload
+     */
+    abstract void onHello(DatagramSession s, ByteBuffer payload);
+
+    /**
+     * The DTLS handshake of a session finished, endpoint thread only
+     * @param s Session
+     */
+    void onHandshakeFinished(DatagramSession s) {
+    }
+
+    abstract void closeSessions();
+
+    /**
+     * Unpack a decrypted datagram
+     * @param s Session
+     * @param plain Plaintext in read mode
+     */
+    void onPacket(DatagramSession s, ByteBuffer plain) {
+        cursor.wrap(plain);
+        try {
+            if (!s.accept(cursor.getInt())) {
+                stale.increment();
+                return;
+            }
+            while (cursor.hasRemaining()) {
+                int opcode = cursor.getVarInt();
+                ByteBuffer payload = cursor.slice(cursor.getVarInt());
+                if (opcode == Opcodes.DATAGRAM_HELLO.getOpcode()) {
+                    onHello(s, payload);
+                    continue;
+                }
+                Dispatcher d = s.getBound();
+                if (d != null) d.dispatch(listeners, opcode, payload);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            dropped.increment(); /* authenticated but malformed, the rest of the datagram is lost */
+        }
+    }
+
+    /**
+     * Handshake retransmits and expiry of associations that never get established
+     * @param s Session
+     * @param now Current time in ms
+     * @return False if the session timed out
+     */
+    boolean maintain(DatagramSession s, long now) {
+        if (s.getBound() == null && now - s.created > handshakeTimeout) return false;
+        s.retransmit(now, retransmit);
+        return true;
+    }
+
+    /**
+     * Send a sealed datagram, a full socket buffer drops it like the network would
+     * @param to Peer
+     * @param datagram Datagram in read mode
+     */
+    void write(SocketAddress to, ByteBuffer datagram) {
+        if (!datagram.hasRemaining()) return;
+        try {
+            if (channel.send(datagram, to) == 0) dropped.increment();
+        } catch (IOException e) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Stop the endpoint, open associations are closed with a close_notify
+     */
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public boolean isClosed() {
+        return !running;
+    }
+
+    /**
+     * Get the largest datagram sent
+     * @return MTU in bytes
+     */
+    public int getMtu() {
+        return mtu;
+    }
+
+    /**
+     * Get the largest payload a single message may have
+     * @param opcode Opcode 0-65535
+     * @return Payload limit in bytes
+     */
+    public int getMaxPayload(int opcode) {
+        int room = mtu - DTLS_OVERHEAD - SEQ_BYTES - ByteCursor.varIntSize(opcode);
+        return room - ByteCursor.varIntSize(room);
+    }
+
+    int getMaxPlain() {
+        return mtu - DTLS_OVERHEAD;
+    }
+
+    /**
+     * Get the datagrams dropped for arriving after a newer one
+     * @return Stale datagrams
+     */
+    public long getStale() {
+        return stale.sum();
+    }
+
+    /**
+     * Get the datagrams lost locally: unsent for a full socket buffer, undecryptable or malformed
+     * @return Dropped datagrams
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public void setRetransmitTimeout(long millis) {
+        if(millis < 1) throw new IllegalArgumentException("Retransmit timeout cannot be below 1.");
+        this.retransmit = millis;
+    }
+
+    public long getRetransmitTimeout() {
+        return retransmit;
+    }
+
+    public void setHandshakeTimeout(long millis) {
+        if(millis < 1) throw new IllegalArgumentException("Handshake timeout cannot be below 1.");
+        this.handshakeTimeout = millis;
+    }
+
+    public long getHandshakeTimeout() {
+        return handshakeTimeout;
+    }
+}
@@ -0,0 +1,300 @@
+package LWJG.net.datagram;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import LWJG.net.Client;
+import LWJG.net.ClientConnectedListener;
+import LWJG.net.ClientManager;
+import LWJG.net.Dispatcher;
+import LWJG.net.IOEventListener;
+import LWJG.net.TlsContext;
+import LWJG.net.util.Opcodes;
+import LWJG.net.util.buffer.PooledBuffer;
+
+/**
+ * Server side of the datagram channel, one DTLS association per {@link Client}
+ * <br>A Client requests a one-time token over its TLS connection, does the DTLS handshake and sends the token inside the datagram channel.
+ * The association is bound to that Client then, and its datagrams are dispatched with it.
+ * Messages to a Client without association are refused, callers can fall back to the reliable channel
+ * <br>A handshake is only started for ClientHellos from the ip of a Client holding a token, and a ip has at most one pending association
+ * per token, a new one replaces its oldest. Hellos with spoofed sources cannot displace handshakes of other ips
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ * @side Server
+ */
+public final class DatagramServer extends DatagramEndpoint {
+    /**
+     * Token length in bytes
+     */
+    public static final int TOKEN_LENGTH = 16;
+
+    /**
+     * Default limit of associations that are not bound to a Client yet
+     */
+    public static final int DEFAULT_MAX_PENDING = 256;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final ClientManager clients;
+    private final int port;
+    private final Map<SocketAddress, DatagramSession> sessions = new HashMap<>(); /* endpoint thread only */
+    private final Map<Client, DatagramSession> bound = new ConcurrentHashMap<>();
+    private final Map<ByteBuffer, Client> tokens = new ConcurrentHashMap<>();
+    private final Map<Client, ByteBuffer> issued = new ConcurrentHashMap<>(); /* the one outstanding token per Client */
+    private final Map<InetAddress, Integer> expected = new ConcurrentHashMap<>(); /* outstanding tokens per Client ip */
+    private final Map<SocketAddress, DatagramSession> pending = new LinkedHashMap<>(); /* endpoint thread only, oldest first */
+    private volatile int maxPending = DEFAULT_MAX_PENDING;
+
+    private final IOEventListener tokenRequests = new IOEventListener() {
+        @Override
+        public void onEvent(Dispatcher client, byte[] payload) {
+            issueToken((Client) client);
+        }
+
+        @Override
+        public boolean isHeavyTask() {
+            return false;
+        }
+    };
+
+    private final ClientConnectedListener connected = c -> c.addEventListener(Opcodes.DATAGRAM_TOKEN.getOpcode(), tokenRequests);
+
+    public DatagramServer(int port, ClientManager clients) throws IOException {
+        this(port, clients, TlsContext.getDefaultDatagram(), TlsContext.DEFAULT_DATAGRAM_MTU);
+    }
+
+    /**
+     * Open the datagram channel, {@link #start()} it afterwards
+     * @param port Port, may be the same number as the TCP port
+     * @param clients Clients that may bind a association
+     * @param tls DTLS settings, see {@link TlsContext#getDefaultDatagram()}
+     * @param mtu Largest datagram to send
+     * @throws IOException If the port cannot be bound
+     */
+    public DatagramServer(int port, ClientManager clients, TlsContext tls, int mtu) throws IOException {
+        super("lwjg-datagram-server", DatagramChannel.open().bind(new InetSocketAddress(port)), tls, mtu);
+        this.clients = clients;
+        this.port = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        clients.addClientConnectedListener(connected);
+        for (Client c : clients.getClients()) connected.onClientConnected(c);
+    }
+
+    /**
+     * Answer a token request with a fresh token, it replaces the previous token of the Client
+     * @param c Client
+     */
+    private void issueToken(Client c) {
+        byte[] token = new byte[TOKEN_LENGTH];
+        random.nextBytes(token);
+        ByteBuffer key = ByteBuffer.wrap(token);
+        tokens.put(key, c);
+        ByteBuffer old = issued.put(c, key);
+        if (old != null) tokens.remove(old, c);
+        else expect(c, 1);
+        c.send(Opcodes.DATAGRAM_TOKEN.getOpcode(), ByteBuffer.allocate(2 + TOKEN_LENGTH).putShort((short) port).put(token).array());
+    }
+
+    /**
+     * Count a token of a Client for its ip, Clients connected by other means than ip cannot bind a association
+     * @param c Client
+     * @param delta 1 for a issued token, -1 for a used or dropped one
+     */
+    private void expect(Client c, int delta) {
+        SocketAddress a = c.getRemoteAddress();
+        if (!(a instanceof InetSocketAddress)) return;
+        expected.compute(((InetSocketAddress) a).getAddress(), (ip, n) -> {
+            int v = (n != null ? n : 0) + delta;
+            return v > 0 ? v : null;
+        });
+    }
+
+    @Override
+    DatagramSession session(SocketAddress from, ByteBuffer datagram) {
+        DatagramSession s = sessions.get(from);
+        if (s != null || isClosed()) return s;
+        if (!isClientHello(datagram)) {
+            dropped.increment(); /* no engine for junk from unknown addresses */
+            return null;
+        }
+        InetAddress ip = ((InetSocketAddress) from).getAddress();
+        int allowed = expected.getOrDefault(ip, 0);
+        DatagramSession oldest = null;
+        int n = 0;
+        for (DatagramSession p : pending.values()) {
+            if (!ip.equals(((InetSocketAddress) p.peer).getAddress())) continue;
+            if (oldest == null) oldest = p;
+            n++;
+        }
+        if (allowed == 0 || n < allowed && pending.size() >= maxPending) {
+            dropped.increment(); /* no Client of this ip waits for a association, or too many do */
+            return null;
+        }
+        if (n >= allowed) { /* a retry of the same ip, e.g. from a new port */
+            pending.remove(oldest.peer);
+            sessions.remove(oldest.peer, oldest);
+            oldest.close();
+        }
+        try {
+            s = new DatagramSession(this, from, tls.createDatagramEngine(false, null, 0, getMtu()), getMaxPlain());
+            s.begin();
+        } catch (IOException e) {
+            dropped.increment();
+            return null;
+        }
+        sessions.put(from, s);
+        pending.put(from, s);
+        return s;
+    }
+
+    /**
+     * Check if a datagram is the first flight of a DTLS handshake: a handshake record of epoch 0 holding a ClientHello
+     * @param d Datagram in read mode, not consumed
+     * @return If it may start a association
+     */
+    static boolean isClientHello(ByteBuffer d) {
+        int p = d.position();
+        return d.remaining() >= 25 && d.get(p) == 22 && d.get(p + 1) == (byte) 0xFE && d.getShort(p + 3) == 0
+                && (d.getShort(p + 11) & 0xFFFF) <= d.remaining() - 13 && d.get(p + 13) == 1;
+    }
+
+    @Override
+    void onHello(DatagramSession s, ByteBuffer payload) {
+        if (s.getBound() == null) {
+            if (payload.remaining() != TOKEN_LENGTH) return;
+            Client c = tokens.remove(payload);
+            if (c == null || c.isClosed()) return;
+            if (issued.remove(c) != null) expect(c, -1);
+            s.bind(c);
+            pending.remove(s.peer);
+            DatagramSession old = bound.put(c, s);
+            if (old != null) {
+                sessions.remove(old.peer, old);
+                old.close();
+            }
+        }
+        s.send(Opcodes.DATAGRAM_HELLO.getOpcode(), ByteBuffer.allocate(0)); /* also answers retransmitted hellos */
+        s.flush();
+    }
+
+    @Override
+    void tick(long now) {
+        Iterator<DatagramSession> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            DatagramSession s = it.next();
+            Dispatcher c = s.getBound();
+            if (c != null ? c.isClosed() : !maintain(s, now)) {
+                it.remove();
+                if (c == null) pending.remove(s.peer, s);
+                else bound.remove(c, s);
+                s.close();
+                continue;
+            }
+            s.flush();
+        }
+        tokens.values().removeIf(Client::isClosed);
+        for (Iterator<Client> ci = issued.keySet().iterator(); ci.hasNext();) {
+            Client c = ci.next();
+            if (!c.isClosed()) continue;
+            ci.remove();
+            expect(c, -1);
+        }
+    }
+
+    @Override
+    void closeSessions() {
+        clients.removeClientConnectedListener(connected);
+        for (Client c : clients.getClients()) c.removeEventListener(Opcodes.DATAGRAM_TOKEN.getOpcode(), tokenRequests);
+        for (DatagramSession s : sessions.values()) s.close();
+        sessions.clear();
+        bound.clear();
+        pending.clear();
+        tokens.clear();
+        issued.clear();
+        expected.clear();
+    }
+
+    /**
+     * Pack a message for a Client, it is sent with the next {@link #flush(Client)} or once the datagram is full
+     * @param c Client
+     * @param opcode Opcode 0-65535
+     * @param payload Payload in read mode, not consumed
+     * @return False if the Client has no established association, nothing is sent then
+     * @throws IllegalArgumentException If the payload exceeds {@link #getMaxPayload(int)}
+     */
+    public boolean send(Client c, int opcode, ByteBuffer payload) {
+        DatagramSession s = bound.get(c);
+        return s != null && s.send(opcode, payload);
+    }
+
+    public boolean send(Client c, int opcode, byte[] payload) {
+        return send(c, opcode, ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Pack a pooled message for a Client
+     * @param c Client
+     * @param opcode Opcode 0-65535
+     * @param payload Payload, one reference is released
+     * @return False if the Client has no established association
+     */
+    public boolean send(Client c, int opcode, PooledBuffer payload) {
+        try {
+            return send(c, opcode, payload.buffer());
+        } finally {
+            payload.release();
+        }
+    }
+
+    /**
+     * Send the partially packed datagram of a Client now instead of with the next tick
+     * @param c Client
+     */
+    public void flush(Client c) {
+        DatagramSession s = bound.get(c);
+        if (s != null) s.flush();
+    }
+
+    /**
+     * Send all partially packed datagrams, typically once per simulation tick
+     */
+    public void flush() {
+        for (DatagramSession s : bound.values()) s.flush();
+    }
+
+    /**
+     * Does a Client have a established association
+     * @param c Client
+     * @return If messages to the Client can be sent
+     */
+    public boolean isBound(Client c) {
+        return bound.containsKey(c);
+    }
+
+    /**
+     * Get the bound port
+     * @return Port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public void setMaxPending(int maxPending) {
+        if(maxPending < 1) throw new IllegalArgumentException("Max pending cannot be below 1.");
+        this.maxPending = maxPending;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+}
@@ -0,0 +1,208 @@
+package LWJG.net.datagram;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+
+import LWJG.net.Dispatcher;
+import LWJG.net.util.bin.ByteCursor;
+
+/**
+ * DTLS association with a single peer, owns the engine, the packing buffer and the sequence numbers
+ * <br>Engine and packing buffer are guarded by this, receive state is only touched by the endpoint thread
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+final class DatagramSession {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    final SocketAddress peer;
+    private final SSLEngine engine;
+    private final DatagramEndpoint endpoint;
+    private final ByteBuffer pack;
+    private final ByteBuffer net;
+    private final ByteBuffer app; /* endpoint thread only */
+    private final ByteBuffer scratch; /* endpoint thread only, handshake leftovers */
+    private final ByteCursor cursor = new ByteCursor();
+
+    private volatile Dispatcher bound;
+    private volatile boolean handshaken;
+    private int sendSeq;
+    private int receiveSeq; /* endpoint thread only */
+    private boolean received; /* endpoint thread only */
+    final long created;
+    long lastHandshake;
+
+    DatagramSession(DatagramEndpoint endpoint, SocketAddress peer, SSLEngine engine, int maxPlain) {
+        this.endpoint = endpoint;
+        this.peer = peer;
+        this.engine = engine;
+        this.pack = ByteBuffer.allocate(maxPlain);
+        this.net = ByteBuffer.allocate(Math.max(engine.getSession().getPacketBufferSize(), endpoint.getMtu()));
+        this.app = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+        this.scratch = ByteBuffer.allocate(app.capacity());
+        this.created = System.currentTimeMillis();
+        this.lastHandshake = created;
+    }
+
+    /**
+     * Start the handshake, clients send their first flight right away
+     * @throws IOException If the engine fails
+     */
+    synchronized void begin() throws IOException {
+        engine.beginHandshake();
+        pump(engine.getHandshakeStatus());
+    }
+
+    /**
+     * Decrypt a datagram and hand its plaintext to the endpoint
+     * @param datagram Datagram in read mode
+     */
+    void receive(ByteBuffer datagram) {
+        while (datagram.hasRemaining()) {
+            app.clear();
+            boolean finished;
+            synchronized (this) {
+                try {
+                    SSLEngineResult r = engine.unwrap(datagram, app);
+                    if (r.getStatus() != SSLEngineResult.Status.OK) {
+                        endpoint.dropped.increment();
+                        return;
+                    }
+                    if (r.bytesConsumed() == 0) datagram.position(datagram.limit());
+                    finished = pump(r.getHandshakeStatus());
+                } catch (IOException e) {
+                    endpoint.dropped.increment(); /* forged or damaged records are dropped, DTLS does not tear down on them */
+                    return;
+                }
+            }
+            if (finished) endpoint.onHandshakeFinished(this);
+            if (app.position() > 0) endpoint.onPacket(this, app.flip());
+        }
+    }
+
+    /**
+     * Drive the handshake as far as possible without input
+     * @param hs Current status
+     * @return If the handshake finished
+     * @throws IOException If the engine fails or a datagram cannot be sent
+     */
+    private boolean pump(HandshakeStatus hs) throws IOException {
+        boolean finished = false;
+        while (true) {
+            switch (hs) {
+                case NEED_WRAP: {
+                    net.clear();
+                    SSLEngineResult r = engine.wrap(EMPTY, net);
+                    endpoint.write(peer, net.flip());
+                    lastHandshake = System.currentTimeMillis();
+                    if (r.getStatus() == SSLEngineResult.Status.CLOSED) return finished;
+                    hs = r.getHandshakeStatus();
+                    break;
+                }
+                case NEED_TASK: {
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) task.run();
+                    hs = engine.getHandshakeStatus();
+                    break;
+                }
+                case NEED_UNWRAP_AGAIN:
+                    scratch.clear();
+                    hs = engine.unwrap(EMPTY, scratch).getHandshakeStatus();
+                    break;
+                case FINISHED:
+                    finished = handshaken = true;
+                    hs = engine.getHandshakeStatus();
+                    break;
+                default:
+                    return finished;
+            }
+        }
+    }
+
+    /**
+     * Resend the last handshake flight if the peer did not answer in time
+     * @param now Current time in ms
+     * @param timeout Retransmit timeout in ms
+     */
+    synchronized void retransmit(long now, long timeout) {
+        if (handshaken || engine.getHandshakeStatus() != HandshakeStatus.NEED_UNWRAP || now - lastHandshake < timeout) return;
+        try {
+            pump(HandshakeStatus.NEED_WRAP); /* a wrap while waiting for input retransmits the flight */
+        } catch (IOException e) {
+            endpoint.dropped.increment();
+        }
+    }
+
+    /**
+     * Pack a message into the current datagram, a full datagram is sent first
+     * @param opcode Opcode 0-65535
+     * @param payload Payload in read mode, not consumed
+     * @return False if the handshake is not done yet and the message was dropped
+     * @throws IllegalArgumentException If the message can never fit into a datagram
+     */
+    synchronized boolean send(int opcode, ByteBuffer payload) {
+        int len = payload.remaining();
+        int need = ByteCursor.varIntSize(opcode) + ByteCursor.varIntSize(len) + len;
+        if(DatagramEndpoint.SEQ_BYTES + need > pack.capacity()) throw new IllegalArgumentException("Message of " + len + " bytes does not fit into a datagram of " + pack.capacity() + " bytes.");
+        if (!handshaken) return false;
+        if (pack.position() + need > pack.capacity()) flush();
+        if (pack.position() == 0) pack.position(DatagramEndpoint.SEQ_BYTES);
+        cursor.wrap(pack).putVarInt(opcode).putVarInt(len).putBytes(payload.duplicate());
+        return true;
+    }
+
+    /**
+     * Seal and send the current datagram
+     */
+    synchronized void flush() {
+        if (pack.position() <= DatagramEndpoint.SEQ_BYTES) return;
+        pack.putInt(0, sendSeq++).flip();
+        net.clear();
+        try {
+            SSLEngineResult r = engine.wrap(pack, net);
+            if (r.getStatus() == SSLEngineResult.Status.OK && !pack.hasRemaining()) endpoint.write(peer, net.flip());
+            else endpoint.dropped.increment();
+        } catch (IOException e) {
+            endpoint.dropped.increment();
+        }
+        pack.clear();
+    }
+
+    /**
+     * Check a received sequence number, only newer packets are accepted
+     * @param seq Sequence number
+     * @return If the packet is newer than every one before it
+     */
+    boolean accept(int seq) {
+        if (received && seq - receiveSeq <= 0) return false; /* serial number arithmetic, survives wrap around */
+        received = true;
+        receiveSeq = seq;
+        return true;
+    }
+
+    synchronized void close() {
+        engine.closeOutbound();
+        try {
+            pump(engine.getHandshakeStatus()); /* close_notify, best effort */
+        } catch (IOException | RuntimeException e) {
+            /* peer gone */
+        }
+    }
+
+    void bind(Dispatcher d) {
+        bound = d;
+    }
+
+    Dispatcher getBound() {
+        return bound;
+    }
+
+    boolean isHandshaken() {
+        return handshaken;
+    }
+}
@@ -0,0 +1,22 @@
+package LWJG.net.nio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Callback for a {@link NioConnection}, always invoked on the owning selector thread
+ * @author Marius Baumgartner
+ * @version 2026-10-18T14:20
+ */
+public interface ConnectionHandler {
+    /**
+     * Invoked when decrypted application data is available
+     * Bytes that are not consumed stay in the buffer and are handed over again together with the next read
+     * @param data Buffer in read mode
+     */
+    void onData(ByteBuffer data);
+
+    /**
+     * Invoked once the connection is closed, either by the peer or locally
+     */
+    void onClose();
+}
@@ -0,0 +1,447 @@
+package LWJG.net.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+
+import LWJG.net.OutboundFrame;
+import LWJG.net.OutboundQueue;
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
+
+/**
+ * Non-blocking TLS connection on top of a {@link SocketChannel} and an {@link SSLEngine}, or a plaintext one without engine
+ * All engine and channel work is done by the {@link SelectorLoop} the connection is registered with,
+ * other threads only ever enqueue into the {@link OutboundQueue} and call {@link #flush()}.
+ * The loop is the single writer of the queue, queued frames are gathered into one {@link SSLEngine#wrap(ByteBuffer[], int, int, ByteBuffer)}
+ * so many small frames end up in one TLS record and one channel write
+ * <br>The handshake can be run on its own with {@link #handshake()} before a handler is attached,
+ * data arriving in between is held back until {@link #open(ConnectionHandler, OutboundQueue)}
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:00
+ */
+public class NioConnection {
+    private static final ByteBuffer[] EMPTY = { ByteBuffer.allocate(0) };
+    private static final int MAX_GATHER = 64; /* frames per wrap */
+    private static final int PLAIN_BUFFER = 16384;
+
+    private final SelectorPool pool;
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    private final SocketAddress remote;
+
+    private PooledBuffer netInRef, netOutRef, appInRef;
+    private ByteBuffer netIn;
+    private ByteBuffer netOut;
+    private ByteBuffer appIn;
+
+    private final ArrayDeque<OutboundFrame> inflight = new ArrayDeque<>();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER * 2];
+    private OutboundQueue outbound;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final CompletableFuture<NioConnection> handshake = new CompletableFuture<>();
+
+    private volatile SelectorLoop loop;
+    private SelectorLoop assigned; /* guarded by this */
+    private SelectionKey key;
+    private ConnectionHandler handler;
+    private boolean closeNotified;
+
+    /**
+     * @param pool Selector pool that will serve this connection
+     * @param channel Connected channel, is switched to non-blocking mode
+     * @param engine Engine already configured for client or server mode, null for plaintext
+     * @throws IOException If the channel cannot be configured
+     */
+    public NioConnection(SelectorPool pool, SocketChannel channel, SSLEngine engine) throws IOException {
+        this.pool = pool;
+        this.channel = channel;
+        this.engine = engine;
+        this.remote = channel.getRemoteAddress();
+        channel.configureBlocking(false);
+        if (remote instanceof InetSocketAddress) channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        BufferPool buffers = BufferPool.getDefault();
+        if (engine != null) {
+            int packet = engine.getSession().getPacketBufferSize();
+            netInRef = buffers.direct(packet);
+            netOutRef = buffers.direct(packet);
+            this.netIn = netInRef.buffer();
+            this.netOut = netOutRef.buffer();
+        }
+        appInRef = buffers.heap(engine != null ? engine.getSession().getApplicationBufferSize() : PLAIN_BUFFER);
+        this.appIn = appInRef.buffer();
+    }
+
+    /**
+     * Register with the selector pool and start the handshake, or attach the handler if {@link #handshake()} already did so
+     * @param handler Handler receiving decrypted data
+     * @param outbound Queue drained by the selector thread
+     */
+    public void open(ConnectionHandler handler, OutboundQueue outbound) {
+        if (start()) {
+            this.handler = handler;
+            this.outbound = outbound;
+            assigned.register(this);
+        } else {
+            assigned.execute(() -> opened(handler, outbound));
+        }
+    }
+
+    /**
+     * Register with the selector pool and run the handshake without a handler
+     * @return Completed on the selector thread once the handshake finished, exceptionally if the connection closed before
+     */
+    public CompletableFuture<NioConnection> handshake() {
+        if (start()) assigned.register(this);
+        return handshake;
+    }
+
+    private synchronized boolean start() {
+        if (assigned != null) return false;
+        assigned = pool.next();
+        return true;
+    }
+
+    private void opened(ConnectionHandler handler, OutboundQueue outbound) {
+        this.handler = handler;
+        this.outbound = outbound;
+        if (closed.get()) {
+            notifyClosed();
+            return;
+        }
+        if (appIn.position() > 0) deliver(); /* held back since the handshake */
+        drain();
+    }
+
+    /**
+     * Called by the owning loop once the channel is registered
+     */
+    void registered(SelectorLoop loop, Selector selector) {
+        this.loop = loop;
+        try {
+            key = channel.register(selector, SelectionKey.OP_READ, this);
+            if (engine != null) engine.beginHandshake();
+            pump();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Called by the owning loop when the channel is ready
+     * @param ops Ready operations
+     */
+    void handle(int ops) {
+        try {
+            if ((ops & SelectionKey.OP_READ) != 0) {
+                int r;
+                if (engine == null) {
+                    while ((r = channel.read(appIn)) > 0) deliver();
+                } else {
+                    while ((r = channel.read(netIn)) > 0);
+                }
+                if (r == -1) {
+                    close();
+                    return;
+                }
+            }
+            pump();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Schedule the outbound queue to be drained, safe to call from any thread
+     */
+    public void flush() {
+        if (!closed.get() && flushScheduled.compareAndSet(false, true) && loop != null) loop.execute(this::drain);
+    }
+
+    private void drain() {
+        if (closed.get()) return;
+        try {
+            pump();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Drive the engine until no more progress can be made without new network events
+     */
+    private void pump() throws IOException {
+        if (engine == null) {
+            if (!handshake.isDone()) handshake.complete(this);
+            while (!closed.get() && writePlain());
+            return;
+        }
+        boolean progress = true;
+        while (progress && !closed.get()) {
+            progress = false;
+            switch (engine.getHandshakeStatus()) {
+                case NEED_TASK:
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) task.run();
+                    progress = true;
+                    break;
+                case NEED_WRAP:
+                    progress = wrap(EMPTY, 1);
+                    break;
+                case NEED_UNWRAP:
+                case NEED_UNWRAP_AGAIN:
+                    progress = unwrap();
+                    break;
+                default:
+                    if (!handshake.isDone()) handshake.complete(this);
+                    progress = unwrap() | wrapPending();
+                    break;
+            }
+            if (closed.get() || !flushNet()) return;
+        }
+    }
+
+    private boolean unwrap() throws IOException {
+        netIn.flip();
+        SSLEngineResult r;
+        try {
+            r = engine.unwrap(netIn, appIn);
+        } finally {
+            netIn.compact();
+        }
+        switch (r.getStatus()) {
+            case BUFFER_OVERFLOW:
+                deliver();
+                if (appIn.remaining() < engine.getSession().getApplicationBufferSize()) {
+                    appInRef = grow(appInRef, appIn.capacity() * 2);
+                    appIn = appInRef.buffer();
+                }
+                return true;
+            case BUFFER_UNDERFLOW:
+                if (netIn.capacity() < engine.getSession().getPacketBufferSize()) {
+                    netInRef = grow(netInRef, engine.getSession().getPacketBufferSize());
+                    netIn = netInRef.buffer();
+                }
+                return false;
+            case CLOSED:
+                close();
+                return false;
+            default:
+                if (r.bytesProduced() > 0) deliver();
+                return r.bytesConsumed() > 0 || r.bytesProduced() > 0;
+        }
+    }
+
+    private void deliver() {
+        if (handler == null) return; /* not opened yet, keep it */
+        appIn.flip();
+        try {
+            handler.onData(appIn);
+        } finally {
+            appIn.compact();
+        }
+    }
+
+    private boolean wrapPending() throws IOException {
+        if (outbound == null) return false;
+        flushScheduled.set(false);
+        OutboundFrame f;
+        while (inflight.size() < MAX_GATHER && (f = outbound.poll()) != null) inflight.add(f);
+        if (inflight.isEmpty()) return false;
+        int n = 0;
+        for (OutboundFrame frame : inflight) {
+            gather[n++] = frame.getHeader();
+            gather[n++] = frame.getPayload();
+        }
+        boolean progress;
+        try {
+            progress = wrap(gather, n);
+        } finally {
+            Arrays.fill(gather, 0, n, null);
+        }
+        while (!inflight.isEmpty() && inflight.peek().remaining() == 0) inflight.poll().release();
+        return progress;
+    }
+
+    /**
+     * Plaintext counterpart of {@link #wrapPending()}, gathers queued frames straight into the channel
+     * @return If everything was written and more frames may be waiting
+     */
+    private boolean writePlain() throws IOException {
+        if (outbound == null) return false;
+        flushScheduled.set(false);
+        OutboundFrame f;
+        while (inflight.size() < MAX_GATHER && (f = outbound.poll()) != null) inflight.add(f);
+        if (inflight.isEmpty()) return false;
+        int n = 0;
+        for (OutboundFrame frame : inflight) {
+            gather[n++] = frame.getHeader();
+            gather[n++] = frame.getPayload();
+        }
+        try {
+            channel.write(gather, 0, n);
+        } finally {
+            Arrays.fill(gather, 0, n, null);
+        }
+        while (!inflight.isEmpty() && inflight.peek().remaining() == 0) inflight.poll().release();
+        boolean done = inflight.isEmpty();
+        if (key != null && key.isValid())
+            key.interestOps(done ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        return done;
+    }
+
+    private boolean wrap(ByteBuffer[] srcs, int length) throws IOException {
+        if (netOut.remaining() < engine.getSession().getPacketBufferSize() && !flushNet()) return false;
+        SSLEngineResult r = engine.wrap(srcs, 0, length, netOut);
+        switch (r.getStatus()) {
+            case BUFFER_OVERFLOW:
+                if (netOut.position() == 0) {
+                    netOutRef = grow(netOutRef, engine.getSession().getPacketBufferSize());
+                    netOut = netOutRef.buffer();
+                    return true;
+                }
+                return flushNet();
+            case CLOSED:
+                close();
+                return false;
+            default:
+                return r.bytesConsumed() > 0 || r.bytesProduced() > 0;
+        }
+    }
+
+    /**
+     * Write encrypted bytes to the channel
+     * @return If everything was written
+     */
+    private boolean flushNet() throws IOException {
+        if (netOut.position() == 0) return true;
+        netOut.flip();
+        try {
+            channel.write(netOut);
+        } finally {
+            netOut.compact();
+        }
+        boolean done = netOut.position() == 0;
+        if (key != null && key.isValid())
+            key.interestOps(done ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        return done;
+    }
+
+    /**
+     * Is the calling thread the selector thread of this connection
+     * @return In event loop
+     */
+    public boolean inEventLoop() {
+        return Thread.currentThread() == loop;
+    }
+
+    /**
+     * Get the underlying Socket
+     * @return Socket adaptor of the channel
+     */
+    public Socket socket() {
+        try {
+            return channel.socket();
+        } catch (UnsupportedOperationException e) {
+            return null; /* Unix domain channels have no Socket */
+        }
+    }
+
+    /**
+     * Get the address of the peer
+     * @return Address
+     */
+    public SocketAddress getRemoteAddress() {
+        return remote;
+    }
+
+    /**
+     * Get the underlying channel
+     * @return Channel
+     */
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Is the connection closed
+     * @return Closed
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Close the connection, safe to call from any thread
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        handshake.completeExceptionally(new SSLException("Connection closed during handshake"));
+        if (engine != null) {
+            try {
+                engine.closeOutbound();
+            } catch (Exception e) { /* ignore */ }
+            try {
+                engine.closeInbound();
+            } catch (SSLException e) { /* peer did not send close_notify */ }
+        }
+        if (key != null) key.cancel();
+        try {
+            channel.close();
+        } catch (ClosedChannelException e) { /* ignore */
+        } catch (IOException e) {
+            System.err.println("Error closing channel: " + e.getMessage());
+        }
+        if (loop == null) finishClose();
+        else loop.execute(this::finishClose);
+    }
+
+    /**
+     * Release buffers and notify the handler, runs as a loop task so no read or write is still using them
+     */
+    private void finishClose() {
+        OutboundFrame f;
+        while ((f = inflight.poll()) != null) f.release();
+        if (engine != null) {
+            netInRef.release();
+            netOutRef.release();
+        }
+        appInRef.release();
+        notifyClosed();
+    }
+
+    private void notifyClosed() {
+        if (handler == null || closeNotified) return;
+        closeNotified = true;
+        handler.onClose();
+    }
+
+    /**
+     * Replace a buffer in write mode with a larger one, keeping its content
+     */
+    private static PooledBuffer grow(PooledBuffer old, int capacity) {
+        ByteBuffer o = old.buffer();
+        PooledBuffer b = o.isDirect() ? BufferPool.getDefault().direct(capacity) : BufferPool.getDefault().heap(capacity);
+        b.buffer().limit(b.buffer().capacity());
+        o.flip();
+        b.buffer().put(o);
+        old.release();
+        return b;
+    }
+}
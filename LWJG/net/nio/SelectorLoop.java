@@ -0,0 +1,89 @@
+package LWJG.net.nio;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Single selector thread serving many {@link NioConnection}s
+ * @author Marius Baumgartner
+ * @version 2026-10-18T14:20
+ */
+final class SelectorLoop extends Thread {
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean running;
+
+    SelectorLoop(String name) throws IOException {
+        super(name);
+        setDaemon(true);
+        this.selector = Selector.open();
+        this.running = true;
+    }
+
+    /**
+     * Register a connection with this loop
+     * @param c Connection
+     */
+    void register(NioConnection c) {
+        execute(() -> c.registered(this, selector));
+    }
+
+    /**
+     * Run a task on the loop thread
+     * @param task Task
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != this) selector.wakeup(); /* own tasks run before the next select */
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                runTasks();
+                selector.select();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (key.isValid()) ((NioConnection) key.attachment()).handle(key.readyOps());
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (RuntimeException e) {
+                e.printStackTrace(); /* one misbehaving connection must not kill the loop */
+            }
+        }
+        for (SelectionKey key : selector.keys()) ((NioConnection) key.attachment()).close();
+        runTasks();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("Error closing selector: " + e.getMessage());
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Stop the loop and close all of its connections
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+}
@@ -0,0 +1,59 @@
+package LWJG.net.nio;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed set of selector threads that serve all {@link NioConnection}s
+ * Connections are spread round robin, one thread per core is usually enough for thousands of connections
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public final class SelectorPool {
+    private final SelectorLoop[] loops;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Create a pool with one selector thread per available core
+     */
+    public SelectorPool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads Amount of selector threads
+     */
+    public SelectorPool(int threads) {
+        if(threads < 1) throw new IllegalArgumentException("Threads cannot be below 1.");
+        loops = new SelectorLoop[threads];
+        try {
+            for (int i = 0; i < threads; i++) {
+                loops[i] = new SelectorLoop("lwjg-selector-" + i);
+                loops[i].start();
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Could not open selector", e);
+        }
+    }
+
+    SelectorLoop next() {
+        return loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+    }
+
+    /**
+     * Get amount of selector threads
+     * @return Threads
+     */
+    public int size() {
+        return loops.length;
+    }
+
+    /**
+     * Stop all selector threads, closing every registered connection
+     */
+    public void close() {
+        for (SelectorLoop l : loops) if (l != null) l.shutdown();
+    }
+}
@@ -0,0 +1,77 @@
+package LWJG.net.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * {@link StreamConnection} over a blocking {@link SocketChannel}, used for channels without a Socket like Unix domain sockets
+ * Reads and writes go straight to the channel, which allows one reader and one writer at the same time
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:00
+ */
+public class ChannelConnection implements StreamConnection {
+    private final SocketChannel channel;
+    private final SocketAddress remote;
+    private final InputStream in;
+    private final OutputStream out;
+
+    public ChannelConnection(SocketChannel channel) throws IOException {
+        channel.configureBlocking(true);
+        this.channel = channel;
+        this.remote = channel.getRemoteAddress();
+        this.in = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) return 0;
+                return channel.read(ByteBuffer.wrap(b, off, len));
+            }
+        };
+        this.out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+                while (buf.hasRemaining()) channel.write(buf);
+            }
+        };
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return in;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return out;
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return remote;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return !channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
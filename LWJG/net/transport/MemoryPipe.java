@@ -0,0 +1,129 @@
+package LWJG.net.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One direction of a in-JVM connection, a bounded ring buffer with a blocking reader and writer
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:00
+ */
+final class MemoryPipe {
+    private final byte[] ring;
+    private final ReentrantLock lock = new ReentrantLock(); /* not synchronized, both ends are usually virtual threads */
+    private final Condition readable = lock.newCondition();
+    private final Condition writable = lock.newCondition();
+    private int head, size;
+    private boolean closed;
+
+    MemoryPipe(int capacity) {
+        this.ring = new byte[capacity];
+    }
+
+    private int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        lock.lock();
+        try {
+            while (size == 0) {
+                if (closed) return -1;
+                readable.await(100, TimeUnit.MILLISECONDS);
+            }
+            int n = Math.min(len, size);
+            int first = Math.min(n, ring.length - head);
+            System.arraycopy(ring, head, b, off, first);
+            System.arraycopy(ring, 0, b, off + first, n - first);
+            head = (head + n) % ring.length;
+            size -= n;
+            writable.signal();
+            return n;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+        lock.lock();
+        try {
+            while (len > 0) {
+                if (closed) throw new IOException("Pipe closed");
+                if (size == ring.length) {
+                    writable.await(100, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                int n = Math.min(len, ring.length - size);
+                int tail = (head + size) % ring.length;
+                int first = Math.min(n, ring.length - tail);
+                System.arraycopy(b, off, ring, tail, first);
+                System.arraycopy(b, off + first, ring, 0, n - first);
+                size += n;
+                off += n;
+                len -= n;
+                readable.signal();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writers fail right away, the reader gets what is left and then end of stream
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            readable.signalAll();
+            writable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    InputStream input() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return MemoryPipe.this.read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return MemoryPipe.this.read(b, off, len);
+            }
+        };
+    }
+
+    OutputStream output() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                MemoryPipe.this.write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                MemoryPipe.this.write(b, off, len);
+            }
+        };
+    }
+}
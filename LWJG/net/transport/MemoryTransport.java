@@ -0,0 +1,160 @@
+package LWJG.net.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * In-JVM transport over memory pipes, for benchmarks and tests without any socket or TLS cost
+ * <br>Servers listen on a {@link Address} of this transport instance. Only blocking mode is supported
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:00
+ */
+public class MemoryTransport implements Transport {
+    public static final int DEFAULT_PIPE_CAPACITY = 256 << 10;
+
+    private final Map<Address, BlockingQueue<StreamConnection>> listeners = new ConcurrentHashMap<>();
+    private final int capacity;
+
+    public MemoryTransport() {
+        this(DEFAULT_PIPE_CAPACITY);
+    }
+
+    /**
+     * @param capacity Bytes buffered per direction before the writer blocks
+     */
+    public MemoryTransport(int capacity) {
+        if(capacity < 1) throw new IllegalArgumentException("Capacity cannot be below 1.");
+        this.capacity = capacity;
+    }
+
+    /**
+     * Name of a in-JVM endpoint
+     */
+    public static final class Address extends SocketAddress {
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+
+        public Address(String name) {
+            this.name = Objects.requireNonNull(name);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Address && ((Address) o).name.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "memory:" + name;
+        }
+    }
+
+    private static final StreamConnection CLOSED = new Connection(null, null, null); /* wakes up accept on close */
+
+    @Override
+    public StreamConnection connect(SocketAddress address) throws IOException {
+        BlockingQueue<StreamConnection> queue = listeners.get(address(address));
+        if (queue == null) throw new ConnectException("Nothing listening on " + address + ".");
+        MemoryPipe up = new MemoryPipe(capacity), down = new MemoryPipe(capacity);
+        Address client = new Address(address + "#" + System.identityHashCode(up));
+        queue.add(new Connection(up, down, client));
+        return new Connection(down, up, address(address));
+    }
+
+    @Override
+    public StreamListener listen(SocketAddress address, int backlog, boolean reusePort) throws IOException {
+        Address a = address(address);
+        BlockingQueue<StreamConnection> queue = new LinkedBlockingQueue<>();
+        if (listeners.putIfAbsent(a, queue) != null) throw new SocketException(a + " is already in use.");
+        return new StreamListener() {
+            @Override
+            public StreamConnection accept() throws IOException {
+                StreamConnection c;
+                try {
+                    c = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while accepting");
+                }
+                if (c == CLOSED) {
+                    queue.add(CLOSED); /* for the other acceptors */
+                    throw new SocketException("Listener closed");
+                }
+                return c;
+            }
+
+            @Override
+            public void close() {
+                if (!listeners.remove(a, queue)) return;
+                StreamConnection c;
+                while ((c = queue.poll()) != null) try { c.close(); } catch (IOException e) { /* ignore */ }
+                queue.add(CLOSED);
+            }
+        };
+    }
+
+    private static Address address(SocketAddress address) {
+        if (!(address instanceof Address)) throw new IllegalArgumentException("Memory transport needs a MemoryTransport.Address, got " + address + ".");
+        return (Address) address;
+    }
+
+    private static final class Connection implements StreamConnection {
+        private final MemoryPipe in, out;
+        private final Address remote;
+        private final InputStream input;
+        private final OutputStream output;
+
+        private Connection(MemoryPipe in, MemoryPipe out, Address remote) {
+            this.in = in;
+            this.out = out;
+            this.remote = remote;
+            this.input = in == null ? null : in.input();
+            this.output = out == null ? null : out.output();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return input;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return output;
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return remote;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return out.isClosed();
+        }
+
+        @Override
+        public void close() {
+            in.close();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package LWJG.net.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+
+import javax.net.ssl.SSLSocket;
+
+/**
+ * {@link StreamConnection} over a plain or TLS {@link Socket}
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:00
+ */
+public class SocketConnection implements StreamConnection {
+    private final Socket socket;
+
+    public SocketConnection(Socket socket) {
+        this.socket = socket;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return socket.getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return socket.getOutputStream();
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return socket.getRemoteSocketAddress();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return socket.isClosed();
+    }
+
+    @Override
+    public void handshake() throws IOException {
+        if (socket instanceof SSLSocket) ((SSLSocket) socket).startHandshake();
+    }
+
+    @Override
+    public void abort() throws IOException {
+        /* a writer stuck on a slow peer holds the SSL write lock, with SO_LINGER set close does not wait for it */
+        if (!socket.isClosed()) socket.setSoLinger(true, 0);
+        close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!socket.isClosed()) socket.close();
+    }
+
+    @Override
+    public Socket getSocket() {
+        return socket;
+    }
+}
@@ -0,0 +1,49 @@
+package LWJG.net.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+
+/**
+ * A connection in blocking mode, read by one thread and written by one other thread at a time
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:00
+ */
+public interface StreamConnection extends Closeable {
+    InputStream getInputStream() throws IOException;
+
+    OutputStream getOutputStream() throws IOException;
+
+    /**
+     * Get the address of the peer
+     * @return Address, type depends on the transport
+     */
+    SocketAddress getRemoteAddress();
+
+    boolean isClosed();
+
+    /**
+     * Finish any handshake before the connection is used, bounded by the servers handshake timeout
+     * @throws IOException If the handshake fails
+     */
+    default void handshake() throws IOException {}
+
+    /**
+     * Close without waiting for a writer that is blocked on the peer
+     * @throws IOException If closing fails
+     */
+    default void abort() throws IOException {
+        close();
+    }
+
+    /**
+     * Get the underlying Socket
+     * @return Socket or null if the transport does not use one
+     */
+    default Socket getSocket() {
+        return null;
+    }
+}
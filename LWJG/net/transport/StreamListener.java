@@ -0,0 +1,26 @@
+package LWJG.net.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Server side of a {@link Transport} in blocking mode, may be accepted from by several threads
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:00
+ */
+public interface StreamListener extends Closeable {
+    /**
+     * Wait for the next connection
+     * @return Connection
+     * @throws IOException If the listener was closed
+     */
+    StreamConnection accept() throws IOException;
+
+    /**
+     * Did the listener get SO_REUSEPORT, so another one can be bound to the same address
+     * @return Reuses port
+     */
+    default boolean isReusePort() {
+        return false;
+    }
+}
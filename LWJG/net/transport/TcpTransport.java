@@ -0,0 +1,136 @@
+package LWJG.net.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import javax.net.ssl.SSLEngine;
+
+import LWJG.net.nio.NioConnection;
+import LWJG.net.nio.SelectorPool;
+
+/**
+ * Plaintext TCP, for trusted hops like a sidecar on the same host or inside a private network
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:00
+ */
+public class TcpTransport implements Transport {
+    @Override
+    public StreamConnection connect(SocketAddress address) throws IOException {
+        Socket s = createSocket(inet(address));
+        s.setTcpNoDelay(true); /* writes are coalesced by the outbound queue already */
+        return new SocketConnection(s);
+    }
+
+    @Override
+    public StreamListener listen(SocketAddress address, int backlog, boolean reusePort) throws IOException {
+        ServerSocket s = createServerSocket();
+        boolean reuse = reusePort && s.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        try {
+            if (reuse) s.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            s.bind(inet(address), backlog);
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+        return new StreamListener() {
+            @Override
+            public StreamConnection accept() throws IOException {
+                Socket c = s.accept();
+                c.setTcpNoDelay(true);
+                return new SocketConnection(c);
+            }
+
+            @Override
+            public boolean isReusePort() {
+                return reuse;
+            }
+
+            @Override
+            public void close() throws IOException {
+                s.close();
+            }
+        };
+    }
+
+    @Override
+    public boolean isSelectable() {
+        return true;
+    }
+
+    @Override
+    public NioConnection connect(SocketAddress address, SelectorPool selectors) throws IOException {
+        InetSocketAddress a = inet(address);
+        SocketChannel channel = SocketChannel.open(a);
+        try {
+            return new NioConnection(selectors, channel, createEngine(a));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public ServerSocketChannel listenChannel(SocketAddress address, int backlog, boolean reusePort) throws IOException {
+        ServerSocketChannel ch = ServerSocketChannel.open();
+        try {
+            if (reusePort && ch.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT))
+                ch.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            ch.bind(inet(address), backlog);
+        } catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+        return ch;
+    }
+
+    @Override
+    public NioConnection accepted(SelectorPool selectors, SocketChannel channel) throws IOException {
+        return new NioConnection(selectors, channel, createEngine(null));
+    }
+
+    /**
+     * Create a connected client socket
+     * @param address Server address
+     * @return Socket
+     * @throws IOException If the connection fails
+     */
+    protected Socket createSocket(InetSocketAddress address) throws IOException {
+        Socket s = new Socket();
+        try {
+            s.connect(address);
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+        return s;
+    }
+
+    /**
+     * Create a unbound server socket
+     * @return Server socket
+     * @throws IOException If the socket cannot be created
+     */
+    protected ServerSocket createServerSocket() throws IOException {
+        return new ServerSocket();
+    }
+
+    /**
+     * Create the engine of a selector mode connection
+     * @param peer Server address on the client side, null on the server side
+     * @return Engine or null for plaintext
+     */
+    protected SSLEngine createEngine(InetSocketAddress peer) {
+        return null;
+    }
+
+    private static InetSocketAddress inet(SocketAddress address) {
+        if (!(address instanceof InetSocketAddress)) throw new IllegalArgumentException("TCP needs a InetSocketAddress, got " + address + ".");
+        return (InetSocketAddress) address;
+    }
+}
@@ -0,0 +1,45 @@
+package LWJG.net.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import javax.net.ssl.SSLEngine;
+
+import LWJG.net.TlsContext;
+
+/**
+ * TLS over TCP, the default transport
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:00
+ */
+public class TlsTransport extends TcpTransport {
+    private final TlsContext tls;
+
+    /**
+     * @param tls TLS settings and session cache
+     */
+    public TlsTransport(TlsContext tls) {
+        this.tls = tls;
+    }
+
+    @Override
+    protected Socket createSocket(InetSocketAddress address) throws IOException {
+        return tls.createSocket(address.getHostString(), address.getPort()); /* sessions are cached by host string and port */
+    }
+
+    @Override
+    protected ServerSocket createServerSocket() throws IOException {
+        return tls.createServerSocket();
+    }
+
+    @Override
+    protected SSLEngine createEngine(InetSocketAddress peer) {
+        return peer == null ? tls.createServerEngine() : tls.createClientEngine(peer.getHostString(), peer.getPort());
+    }
+
+    public TlsContext getTlsContext() {
+        return tls;
+    }
+}
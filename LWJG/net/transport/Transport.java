@@ -0,0 +1,78 @@
+package LWJG.net.transport;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import LWJG.net.nio.NioConnection;
+import LWJG.net.nio.SelectorPool;
+
+/**
+ * How Dispatchers reach each other, used by {@link LWJG.net.ServerHandler} and {@link LWJG.net.RemoteServer}
+ * <br>Every transport supports blocking mode through {@link StreamConnection}s,
+ * selectable ones also support selector mode through {@link NioConnection}s
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:00
+ */
+public interface Transport {
+    /**
+     * Connect in blocking mode
+     * @param address Server address
+     * @return Connection
+     * @throws IOException If the connection fails
+     */
+    StreamConnection connect(SocketAddress address) throws IOException;
+
+    /**
+     * Listen for blocking mode connections
+     * @param address Local address
+     * @param backlog Accept backlog
+     * @param reusePort Try to set SO_REUSEPORT so several listeners can share the address
+     * @return Listener
+     * @throws IOException If the address cannot be bound
+     */
+    StreamListener listen(SocketAddress address, int backlog, boolean reusePort) throws IOException;
+
+    /**
+     * Can this transport run in selector mode
+     * @return Selectable
+     */
+    default boolean isSelectable() {
+        return false;
+    }
+
+    /**
+     * Connect in selector mode
+     * @param address Server address
+     * @param selectors Selector pool
+     * @return Connection, not yet registered
+     * @throws IOException If the connection fails
+     */
+    default NioConnection connect(SocketAddress address, SelectorPool selectors) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support selector mode.");
+    }
+
+    /**
+     * Listen for selector mode connections, the channel is left in blocking mode for the accept loop
+     * @param address Local address
+     * @param backlog Accept backlog
+     * @param reusePort Try to set SO_REUSEPORT so several listeners can share the address
+     * @return Bound channel
+     * @throws IOException If the address cannot be bound
+     */
+    default ServerSocketChannel listenChannel(SocketAddress address, int backlog, boolean reusePort) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support selector mode.");
+    }
+
+    /**
+     * Wrap a accepted channel
+     * @param selectors Selector pool
+     * @param channel Channel accepted from {@link #listenChannel(SocketAddress, int, boolean)}
+     * @return Connection, not yet registered
+     * @throws IOException If the channel cannot be configured
+     */
+    default NioConnection accepted(SelectorPool selectors, SocketChannel channel) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support selector mode.");
+    }
+}
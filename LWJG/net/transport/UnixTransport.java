@@ -0,0 +1,78 @@
+package LWJG.net.transport;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import LWJG.net.nio.NioConnection;
+import LWJG.net.nio.SelectorPool;
+
+/**
+ * Plaintext Unix domain sockets for processes on the same host, addressed by {@link UnixDomainSocketAddress}
+ * <br>The socket file is not removed when the listener closes, it has to be deleted before the path can be bound again
+ * @author Marius Baumgartner
+ * @version 2026-10-18T21:00
+ */
+public class UnixTransport implements Transport {
+    @Override
+    public StreamConnection connect(SocketAddress address) throws IOException {
+        return new ChannelConnection(SocketChannel.open(unix(address)));
+    }
+
+    @Override
+    public StreamListener listen(SocketAddress address, int backlog, boolean reusePort) throws IOException {
+        ServerSocketChannel ch = listenChannel(address, backlog, reusePort);
+        return new StreamListener() {
+            @Override
+            public StreamConnection accept() throws IOException {
+                return new ChannelConnection(ch.accept());
+            }
+
+            @Override
+            public void close() throws IOException {
+                ch.close();
+            }
+        };
+    }
+
+    @Override
+    public boolean isSelectable() {
+        return true;
+    }
+
+    @Override
+    public NioConnection connect(SocketAddress address, SelectorPool selectors) throws IOException {
+        SocketChannel channel = SocketChannel.open(unix(address));
+        try {
+            return new NioConnection(selectors, channel, null);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public ServerSocketChannel listenChannel(SocketAddress address, int backlog, boolean reusePort) throws IOException {
+        ServerSocketChannel ch = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            ch.bind(unix(address), backlog);
+        } catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+        return ch;
+    }
+
+    @Override
+    public NioConnection accepted(SelectorPool selectors, SocketChannel channel) throws IOException {
+        return new NioConnection(selectors, channel, null);
+    }
+
+    private static UnixDomainSocketAddress unix(SocketAddress address) {
+        if (!(address instanceof UnixDomainSocketAddress)) throw new IllegalArgumentException("Unix transport needs a UnixDomainSocketAddress, got " + address + ".");
+        return (UnixDomainSocketAddress) address;
+    }
+}
@@ -0,0 +1,53 @@
+package LWJG.net.util;
+
+/**
+ * Contiguous block of opcodes reserved through {@link Opcodes}
+ * @author Marius Baumgartner
+ * @version 2026-10-18T17:20
+ */
+public final class OpcodeRange {
+    private final String owner;
+    private final int first;
+    private final int count;
+
+    OpcodeRange(String owner, int first, int count) {
+        this.owner = owner;
+        this.first = first;
+        this.count = count;
+    }
+
+    /**
+     * Get a opcode of this range
+     * @param index Index within the range
+     * @return Opcode
+     */
+    public int get(int index) {
+        if(index < 0 || index >= count) throw new IndexOutOfBoundsException("Index " + index + " outside of range " + this + ".");
+        return first + index;
+    }
+
+    public boolean contains(int opcode) {
+        return opcode >= first && opcode < first + count;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public int getFirst() {
+        return first;
+    }
+
+    public int getLast() {
+        return first + count - 1;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return owner + "[" + first + "-" + getLast() + "]";
+    }
+}
@@ -1,22 +1,139 @@
 package LWJG.net.util;
 
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
- * Opcode table for all utilities
- * <b>WARNING: Java bytes are signed, so when adding custom opcodes, make sure its -127 - 128</b>
+ * Opcode table for all utilities and central registry for opcode ranges
+ * <br>The single byte opcodes 0-254 are left to applications, LWJG utilities use the extended block
+ * {@link #BUILTIN_FIRST}-{@link #BUILTIN_LAST}. Libraries should {@link #reserve(String, int)} their own range
+ * instead of hardcoding opcodes, so two libraries never collide
  * @author Marius Baumgartner
- * @version 2025-05-03T1:28
+ * @version 2026-10-18T23:59
  */
 public enum Opcodes {
-    POOL((byte)-127), /* Pool Util Opcode */
+    POOL(0x100), /* Pool Util Opcode */
+    COMPRESSION(0x101), /* Compression negotiation, see LWJG.net.Compression */
+    POOL_SNAPSHOT(0x102), /* Pool snapshot chunk, server to client */
+    POOL_RESYNC(0x103), /* Pool resync request, client to server */
+    REPLICATION(0x104), /* Entity replication update, server to client */
+    REPLICATION_ACK(0x105), /* Entity replication acknowledgement, client to server */
+    DATAGRAM_TOKEN(0x106), /* Datagram channel binding token, requested by the client over the reliable channel */
+    DATAGRAM_HELLO(0x107), /* Datagram channel binding, sent inside DTLS datagrams */
+    RPC_REQUEST(0x108), /* Request with correlation id, see LWJG.net.Dispatcher#request */
+    RPC_RESPONSE(0x109), /* Response to a RPC_REQUEST */
+    HEARTBEAT(0x10A), /* Heartbeat ping and pong, see LWJG.net.Dispatcher#setHeartbeat */
     ;
 
-    private final byte opcode;
+    /**
+     * First opcode of the LWJG builtin block
+     */
+    public static final int BUILTIN_FIRST = 0x100;
+
+    /**
+     * Last opcode of the LWJG builtin block
+     */
+    public static final int BUILTIN_LAST = 0x1FF;
+
+    /**
+     * First opcode handed out by {@link #reserve(String, int)}
+     */
+    public static final int DYNAMIC_FIRST = 0x200;
+
+    private static final int MAX_OPCODE = 0xFFFF;
+    private static final TreeMap<Integer, OpcodeRange> ranges = new TreeMap<>();
+    private static volatile long[] reserved = new long[(MAX_OPCODE + 1) / 64]; /* copy-on-write bitmap for lock free lookups */
+
+    static {
+        put("LWJG", BUILTIN_FIRST, BUILTIN_LAST - BUILTIN_FIRST + 1);
+    }
 
-    Opcodes(byte opcode) {
+    private final int opcode;
+
+    Opcodes(int opcode) {
         this.opcode = opcode;
     }
 
-    public byte getOpcode() {
+    public int getOpcode() {
         return opcode;
     }
-}
\ No newline at end of file
+
+    /**
+     * Reserve the next free range of opcodes
+     * @param owner Name of the library, used for error messages
+     * @param count Amount of opcodes
+     * @return Reserved range
+     * @throws IllegalStateException If the opcode space is exhausted
+     */
+    public static synchronized OpcodeRange reserve(String owner, int count) {
+        if(count < 1) throw new IllegalArgumentException("Count cannot be below 1.");
+        int first = DYNAMIC_FIRST;
+        for (OpcodeRange r : ranges.values()) {
+            if (r.getLast() < first) continue;
+            if (r.getFirst() - first >= count) break;
+            first = r.getLast() + 1;
+        }
+        if (first + count - 1 > MAX_OPCODE) throw new IllegalStateException("No " + count + " free opcodes left for " + owner + ".");
+        return put(owner, first, count);
+    }
+
+    /**
+     * Reserve a fixed range of opcodes, for protocols that need stable numbers on both sides
+     * @param owner Name of the library, used for error messages
+     * @param first First opcode
+     * @param count Amount of opcodes
+     * @return Reserved range
+     * @throws IllegalStateException If the range overlaps a existing reservation
+     */
+    public static synchronized OpcodeRange reserve(String owner, int first, int count) {
+        if(count < 1) throw new IllegalArgumentException("Count cannot be below 1.");
+        if(first < 0 || first + count - 1 > MAX_OPCODE) throw new IllegalArgumentException("Range must be within 0-" + MAX_OPCODE + ".");
+        Map.Entry<Integer, OpcodeRange> below = ranges.floorEntry(first + count - 1);
+        if (below != null && below.getValue().getLast() >= first)
+            throw new IllegalStateException("Opcodes " + first + "-" + (first + count - 1) + " of " + owner + " overlap " + below.getValue() + ".");
+        return put(owner, first, count);
+    }
+
+    private static OpcodeRange put(String owner, int first, int count) {
+        OpcodeRange r = new OpcodeRange(owner, first, count);
+        ranges.put(first, r);
+        mark(r, true);
+        return r;
+    }
+
+    /**
+     * Give a reserved range back
+     * @param range Range
+     */
+    public static synchronized void release(OpcodeRange range) {
+        if (ranges.remove(range.getFirst(), range)) mark(range, false);
+    }
+
+    private static void mark(OpcodeRange r, boolean set) {
+        long[] bits = reserved.clone();
+        for (int op = r.getFirst(); op <= r.getLast(); op++) {
+            if (set) bits[op >>> 6] |= 1L << op;
+            else bits[op >>> 6] &= ~(1L << op);
+        }
+        reserved = bits;
+    }
+
+    /**
+     * Check if a opcode belongs to a reserved range, without locking
+     * @param opcode Opcode
+     * @return If it is reserved
+     */
+    public static boolean isReserved(int opcode) {
+        return opcode >= 0 && opcode <= MAX_OPCODE && (reserved[opcode >>> 6] & 1L << opcode) != 0;
+    }
+
+    /**
+     * Find the owner of a opcode
+     * @param opcode Opcode 0-65535
+     * @return Reserved range containing the opcode or null
+     */
+    public static synchronized OpcodeRange rangeOf(int opcode) {
+        Map.Entry<Integer, OpcodeRange> e = ranges.floorEntry(opcode);
+        return e != null && e.getValue().contains(opcode) ? e.getValue() : null;
+    }
+}
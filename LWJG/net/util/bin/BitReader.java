@@ -0,0 +1,95 @@
+package LWJG.net.util.bin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads values written by a {@link BitWriter}
+ * <br>Reads whole bytes from the buffer as needed, {@link #align()} drops the padding of a flushed writer. Not thread safe
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:58
+ */
+public final class BitReader {
+    private ByteBuffer buf;
+    private long acc;
+    private int n; /* unread bits in acc, below 8 between calls */
+
+    public BitReader() {
+    }
+
+    public BitReader(ByteBuffer buf) {
+        wrap(buf);
+    }
+
+    /**
+     * Move the reader onto another buffer
+     * @param buf Buffer, read from its position
+     * @return this
+     */
+    public BitReader wrap(ByteBuffer buf) {
+        if(buf == null) throw new IllegalArgumentException("Buffer cannot be null.");
+        this.buf = buf;
+        acc = 0;
+        n = 0;
+        return this;
+    }
+
+    /**
+     * Read a unsigned value
+     * @param count Bits 0-64
+     * @return Value
+     * @throws java.nio.BufferUnderflowException If the buffer ends first
+     */
+    public long readBits(int count) {
+        if (count > 32) {
+            long high = readBits(count - 32);
+            return high << 32 | readBits(32);
+        }
+        if(count < 0) throw new IllegalArgumentException("Bit count must be 0-64.");
+        if (count == 0) return 0;
+        while (n < count) {
+            acc = acc << 8 | buf.get() & 0xFF;
+            n += 8;
+        }
+        n -= count;
+        return acc >>> n & (-1L >>> (64 - count));
+    }
+
+    public boolean readBit() {
+        return readBits(1) != 0;
+    }
+
+    /**
+     * Read a zigzag encoded signed value
+     * @param count Bits 1-64
+     * @return Value
+     */
+    public long readSigned(int count) {
+        return ByteCursor.unZigZag(readBits(count));
+    }
+
+    /**
+     * Read a value written by {@link BitWriter#writeVarBits(long, int)}
+     * @param maxBits Widest value 1-64, as written
+     * @return Value
+     * @throws IllegalArgumentException If the length prefix exceeds maxBits
+     */
+    public long readVarBits(int maxBits) {
+        int len = (int) readBits(BitWriter.lengthBits(maxBits));
+        if (len > maxBits) throw new IllegalArgumentException("Malformed bit length " + len + ".");
+        return readBits(len);
+    }
+
+    /**
+     * Skip to the next byte boundary, dropping the padding of a flushed writer
+     * @return this
+     */
+    public BitReader align() {
+        n = 0;
+        acc = 0;
+        return this;
+    }
+
+    public ByteBuffer buffer() {
+        return buf;
+    }
+}
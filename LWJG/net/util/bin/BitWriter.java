@@ -0,0 +1,124 @@
+package LWJG.net.util.bin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes values of any bit width into a {@link ByteBuffer}, most significant bit first
+ * <br>Bits are collected in a register and written once a byte is full, {@link #flush()} pads the last byte with zeros.
+ * Can be {@link #wrap(ByteBuffer) rewrapped} like {@link ByteCursor}. Not thread safe
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:58
+ */
+public final class BitWriter {
+    private ByteBuffer buf;
+    private long acc;
+    private int n; /* bits in acc, below 8 between calls */
+    private long bits;
+
+    public BitWriter() {
+    }
+
+    public BitWriter(ByteBuffer buf) {
+        wrap(buf);
+    }
+
+    /**
+     * Move the writer onto another buffer, bits not flushed are dropped
+     * @param buf Buffer, written from its position
+     * @return this
+     */
+    public BitWriter wrap(ByteBuffer buf) {
+        if(buf == null) throw new IllegalArgumentException("Buffer cannot be null.");
+        this.buf = buf;
+        acc = 0;
+        n = 0;
+        bits = 0;
+        return this;
+    }
+
+    /**
+     * Write the low bits of a value
+     * @param v Value, higher bits are ignored
+     * @param count Bits 0-64
+     * @return this
+     */
+    public BitWriter writeBits(long v, int count) {
+        if (count > 32) {
+            writeBits(v >>> 32, count - 32);
+            count = 32;
+        }
+        if(count < 0) throw new IllegalArgumentException("Bit count must be 0-64.");
+        if (count == 0) return this;
+        acc = acc << count | v & (-1L >>> (64 - count));
+        n += count;
+        bits += count;
+        while (n >= 8) {
+            n -= 8;
+            buf.put((byte) (acc >>> n));
+        }
+        return this;
+    }
+
+    public BitWriter writeBit(boolean v) {
+        return writeBits(v ? 1 : 0, 1);
+    }
+
+    /**
+     * Write a signed value zigzag encoded
+     * @param v Value within the signed range of count bits
+     * @param count Bits 1-64
+     * @return this
+     */
+    public BitWriter writeSigned(long v, int count) {
+        return writeBits(ByteCursor.zigZag(v), count);
+    }
+
+    /**
+     * Write a unsigned value with as many bits as it needs, prefixed by that amount
+     * <br>Costs {@link #lengthBits(int)} bits plus the significant bits of the value, so small values are cheap
+     * @param v Value, 0 to 2^maxBits - 1
+     * @param maxBits Widest value 1-64
+     * @return this
+     */
+    public BitWriter writeVarBits(long v, int maxBits) {
+        int len = 64 - Long.numberOfLeadingZeros(v);
+        if(len > maxBits) throw new IllegalArgumentException("Value needs more than " + maxBits + " bits.");
+        writeBits(len, lengthBits(maxBits));
+        return writeBits(v, len);
+    }
+
+    /**
+     * Get the width of the length prefix of {@link #writeVarBits(long, int)}
+     * @param maxBits Widest value 1-64
+     * @return Bits
+     */
+    public static int lengthBits(int maxBits) {
+        return 32 - Integer.numberOfLeadingZeros(maxBits);
+    }
+
+    /**
+     * Write the bits still in the register, padding the last byte with zeros
+     * @return this
+     */
+    public BitWriter flush() {
+        if (n > 0) {
+            buf.put((byte) (acc << (8 - n)));
+            bits += 8 - n;
+            n = 0;
+        }
+        acc = 0;
+        return this;
+    }
+
+    /**
+     * Get the bits written since the last wrap, including padding
+     * @return Bits
+     */
+    public long getBits() {
+        return bits;
+    }
+
+    public ByteBuffer buffer() {
+        return buf;
+    }
+}
@@ -0,0 +1,531 @@
+package LWJG.net.util.bin;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import LWJG.core.CFrame;
+import LWJG.core.Vector2;
+
+/**
+ * Reader and writer over a {@link ByteBuffer}, encodes values in place at the buffer's position without allocating
+ * <br>Fixed size values use the buffer's byte order, big-endian unless changed, like {@link ByteWizard}.
+ * Varints are unsigned LEB128, signed values are zigzag encoded first so small negative numbers stay short.
+ * Strings are UTF-8 prefixed by their byte length as varint
+ * <br>One cursor can be {@link #wrap(ByteBuffer) rewrapped} for every message, so hot paths can keep one per thread.
+ * Not thread safe
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:45
+ */
+public final class ByteCursor {
+    /**
+     * Encoded size of a {@link Vector2}
+     */
+    public static final int VECTOR2_BYTES = 16;
+
+    /**
+     * Encoded size of a {@link CFrame}, position and radians
+     */
+    public static final int CFRAME_BYTES = 24;
+
+    /**
+     * Longest varint of a int
+     */
+    public static final int MAX_VARINT_BYTES = 5;
+
+    /**
+     * Longest varint of a long
+     */
+    public static final int MAX_VARLONG_BYTES = 10;
+
+    private ByteBuffer buf;
+
+    /**
+     * Create a cursor without buffer, {@link #wrap(ByteBuffer)} one before use
+     */
+    public ByteCursor() {
+    }
+
+    /**
+     * Create a cursor over a buffer
+     * @param buf Buffer, read and written from its position
+     */
+    public ByteCursor(ByteBuffer buf) {
+        wrap(buf);
+    }
+
+    /**
+     * Move the cursor onto another buffer
+     * @param buf Buffer, read and written from its position
+     * @return this
+     */
+    public ByteCursor wrap(ByteBuffer buf) {
+        if(buf == null) throw new IllegalArgumentException("Buffer cannot be null.");
+        this.buf = buf;
+        return this;
+    }
+
+    public ByteBuffer buffer() {
+        return buf;
+    }
+
+    public int position() {
+        return buf.position();
+    }
+
+    public ByteCursor position(int position) {
+        buf.position(position);
+        return this;
+    }
+
+    public int remaining() {
+        return buf.remaining();
+    }
+
+    public boolean hasRemaining() {
+        return buf.hasRemaining();
+    }
+
+    /**
+     * Skip bytes
+     * @param n Bytes
+     * @return this
+     */
+    public ByteCursor skip(int n) {
+        if (n < 0 || n > buf.remaining()) throw new BufferUnderflowException();
+        buf.position(buf.position() + n);
+        return this;
+    }
+
+    /* fixed size */
+
+    public ByteCursor putByte(int v) {
+        buf.put((byte) v);
+        return this;
+    }
+
+    public ByteCursor putBoolean(boolean v) {
+        buf.put((byte) (v ? 1 : 0));
+        return this;
+    }
+
+    public ByteCursor putShort(int v) {
+        buf.putShort((short) v);
+        return this;
+    }
+
+    public ByteCursor putInt(int v) {
+        buf.putInt(v);
+        return this;
+    }
+
+    public ByteCursor putLong(long v) {
+        buf.putLong(v);
+        return this;
+    }
+
+    public ByteCursor putFloat(float v) {
+        buf.putFloat(v);
+        return this;
+    }
+
+    public ByteCursor putDouble(double v) {
+        buf.putDouble(v);
+        return this;
+    }
+
+    public byte getByte() {
+        return buf.get();
+    }
+
+    public int getUnsignedByte() {
+        return buf.get() & 0xFF;
+    }
+
+    public boolean getBoolean() {
+        return buf.get() != 0;
+    }
+
+    public short getShort() {
+        return buf.getShort();
+    }
+
+    public int getUnsignedShort() {
+        return buf.getShort() & 0xFFFF;
+    }
+
+    public int getInt() {
+        return buf.getInt();
+    }
+
+    public long getLong() {
+        return buf.getLong();
+    }
+
+    public float getFloat() {
+        return buf.getFloat();
+    }
+
+    public double getDouble() {
+        return buf.getDouble();
+    }
+
+    /* bytes */
+
+    public ByteCursor putBytes(byte[] src) {
+        buf.put(src);
+        return this;
+    }
+
+    public ByteCursor putBytes(byte[] src, int offset, int length) {
+        buf.put(src, offset, length);
+        return this;
+    }
+
+    /**
+     * Copy the remaining bytes of a buffer
+     * @param src Source, its position is not changed
+     * @return this
+     */
+    public ByteCursor putBytes(ByteBuffer src) {
+        int n = src.remaining();
+        if (n > buf.remaining()) throw new BufferOverflowException();
+        buf.put(buf.position(), src, src.position(), n);
+        buf.position(buf.position() + n);
+        return this;
+    }
+
+    public ByteCursor getBytes(byte[] dst) {
+        buf.get(dst);
+        return this;
+    }
+
+    public ByteCursor getBytes(byte[] dst, int offset, int length) {
+        buf.get(dst, offset, length);
+        return this;
+    }
+
+    /**
+     * Take bytes as a view without copying
+     * @param length Bytes
+     * @return View sharing content with the buffer
+     */
+    public ByteBuffer slice(int length) {
+        if (length < 0 || length > buf.remaining()) throw new BufferUnderflowException();
+        ByteBuffer s = buf.slice(buf.position(), length);
+        buf.position(buf.position() + length);
+        return s;
+    }
+
+    /* varints */
+
+    /**
+     * Write a unsigned varint
+     * @param v Value, negative values take {@link #MAX_VARINT_BYTES}
+     * @return this
+     */
+    public ByteCursor putVarInt(int v) {
+        if (buf.remaining() < MAX_VARINT_BYTES && buf.remaining() < varIntSize(v)) throw new BufferOverflowException();
+        while ((v & ~0x7F) != 0) {
+            buf.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+        return this;
+    }
+
+    /**
+     * Write a unsigned varint
+     * @param v Value, negative values take {@link #MAX_VARLONG_BYTES}
+     * @return this
+     */
+    public ByteCursor putVarLong(long v) {
+        if (buf.remaining() < MAX_VARLONG_BYTES && buf.remaining() < varLongSize(v)) throw new BufferOverflowException();
+        while ((v & ~0x7FL) != 0) {
+            buf.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+        return this;
+    }
+
+    /**
+     * Write a signed varint, zigzag encoded
+     * @param v Value
+     * @return this
+     */
+    public ByteCursor putSignedVarInt(int v) {
+        return putVarInt(zigZag(v));
+    }
+
+    /**
+     * Write a signed varint, zigzag encoded
+     * @param v Value
+     * @return this
+     */
+    public ByteCursor putSignedVarLong(long v) {
+        return putVarLong(zigZag(v));
+    }
+
+    /**
+     * Read a unsigned varint
+     * @return Value
+     * @throws IllegalArgumentException If the varint is longer than {@link #MAX_VARINT_BYTES}
+     */
+    public int getVarInt() {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buf.get();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IllegalArgumentException("Malformed varint.");
+    }
+
+    /**
+     * Read a unsigned varint
+     * @return Value
+     * @throws IllegalArgumentException If the varint is longer than {@link #MAX_VARLONG_BYTES}
+     */
+    public long getVarLong() {
+        long v = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = buf.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IllegalArgumentException("Malformed varint.");
+    }
+
+    public int getSignedVarInt() {
+        return unZigZag(getVarInt());
+    }
+
+    public long getSignedVarLong() {
+        return unZigZag(getVarLong());
+    }
+
+    public static int zigZag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    public static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    public static int unZigZag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Get the encoded size of a unsigned varint
+     * @param v Value
+     * @return 1-5 bytes
+     */
+    public static int varIntSize(int v) {
+        return (31 - Integer.numberOfLeadingZeros(v | 1)) / 7 + 1;
+    }
+
+    /**
+     * Get the encoded size of a unsigned varint
+     * @param v Value
+     * @return 1-10 bytes
+     */
+    public static int varLongSize(long v) {
+        return (63 - Long.numberOfLeadingZeros(v | 1)) / 7 + 1;
+    }
+
+    /* strings */
+
+    /**
+     * Write a string as UTF-8 prefixed by its byte length, encoded straight into the buffer
+     * @param s String, not null
+     * @return this
+     */
+    public ByteCursor putString(String s) {
+        int len = utf8Length(s);
+        if (buf.remaining() < varIntSize(len) + len) throw new BufferOverflowException();
+        putVarInt(len);
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf.put((byte) c);
+            } else if (c < 0x800) {
+                buf.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf.put((byte) (0xF0 | cp >> 18)).put((byte) (0x80 | cp >> 12 & 0x3F))
+                   .put((byte) (0x80 | cp >> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf.put((byte) '?'); /* unpaired, like String.getBytes */
+            } else {
+                buf.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Read a string written by {@link #putString(String)}
+     * @return String
+     * @throws IllegalArgumentException If the length is negative
+     */
+    public String getString() {
+        int len = getVarInt();
+        if (len < 0) throw new IllegalArgumentException("Malformed string length.");
+        if (len > buf.remaining()) throw new BufferUnderflowException();
+        String s;
+        if (buf.hasArray()) {
+            s = new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8);
+        } else {
+            byte[] b = new byte[len];
+            buf.get(buf.position(), b);
+            s = new String(b, StandardCharsets.UTF_8);
+        }
+        buf.position(buf.position() + len);
+        return s;
+    }
+
+    /**
+     * Get the UTF-8 length of a string as written by {@link #putString(String)}
+     * @param s String
+     * @return Bytes without the length prefix
+     */
+    public static int utf8Length(String s) {
+        int len = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) len++;
+            else if (c < 0x800) len += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                len += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) len++;
+            else len += 3;
+        }
+        return len;
+    }
+
+    /* game types */
+
+    public ByteCursor putVector2(Vector2 v) {
+        buf.putDouble(v.x).putDouble(v.y);
+        return this;
+    }
+
+    /**
+     * Read a {@link Vector2} into a existing instance
+     * @param dst Destination
+     * @return dst
+     */
+    public Vector2 getVector2(Vector2 dst) {
+        dst.x = buf.getDouble();
+        dst.y = buf.getDouble();
+        return dst;
+    }
+
+    public Vector2 getVector2() {
+        return getVector2(new Vector2(0, 0));
+    }
+
+    public ByteCursor putCFrame(CFrame c) {
+        buf.putDouble(c.pos.x).putDouble(c.pos.y).putDouble(c.a);
+        return this;
+    }
+
+    /**
+     * Read a {@link CFrame} into a existing instance
+     * @param dst Destination
+     * @return dst
+     */
+    public CFrame getCFrame(CFrame dst) {
+        dst.pos.x = buf.getDouble();
+        dst.pos.y = buf.getDouble();
+        dst.setRadians(buf.getDouble());
+        return dst;
+    }
+
+    public CFrame getCFrame() {
+        return getCFrame(new CFrame(new Vector2(0, 0), 0));
+    }
+
+    /**
+     * Write vectors back to back, the bounds are checked once for all of them
+     * @param src Vectors
+     * @param offset First vector
+     * @param length Amount of vectors
+     * @return this
+     */
+    public ByteCursor putVector2s(Vector2[] src, int offset, int length) {
+        int pos = buf.position();
+        if ((long) length * VECTOR2_BYTES > buf.remaining()) throw new BufferOverflowException();
+        for (int i = offset, end = offset + length; i < end; i++, pos += VECTOR2_BYTES) {
+            buf.putDouble(pos, src[i].x).putDouble(pos + 8, src[i].y);
+        }
+        buf.position(pos);
+        return this;
+    }
+
+    /**
+     * Read vectors back to back, existing instances are reused
+     * @param dst Destination, null elements are filled with new vectors
+     * @param offset First vector
+     * @param length Amount of vectors
+     * @return this
+     */
+    public ByteCursor getVector2s(Vector2[] dst, int offset, int length) {
+        int pos = buf.position();
+        if ((long) length * VECTOR2_BYTES > buf.remaining()) throw new BufferUnderflowException();
+        for (int i = offset, end = offset + length; i < end; i++, pos += VECTOR2_BYTES) {
+            if (dst[i] == null) dst[i] = new Vector2(0, 0);
+            dst[i].x = buf.getDouble(pos);
+            dst[i].y = buf.getDouble(pos + 8);
+        }
+        buf.position(pos);
+        return this;
+    }
+
+    /**
+     * Write frames back to back, the bounds are checked once for all of them
+     * @param src Frames
+     * @param offset First frame
+     * @param length Amount of frames
+     * @return this
+     */
+    public ByteCursor putCFrames(CFrame[] src, int offset, int length) {
+        int pos = buf.position();
+        if ((long) length * CFRAME_BYTES > buf.remaining()) throw new BufferOverflowException();
+        for (int i = offset, end = offset + length; i < end; i++, pos += CFRAME_BYTES) {
+            CFrame c = src[i];
+            buf.putDouble(pos, c.pos.x).putDouble(pos + 8, c.pos.y).putDouble(pos + 16, c.a);
+        }
+        buf.position(pos);
+        return this;
+    }
+
+    /**
+     * Read frames back to back, existing instances are reused
+     * @param dst Destination, null elements are filled with new frames
+     * @param offset First frame
+     * @param length Amount of frames
+     * @return this
+     */
+    public ByteCursor getCFrames(CFrame[] dst, int offset, int length) {
+        int pos = buf.position();
+        if ((long) length * CFRAME_BYTES > buf.remaining()) throw new BufferUnderflowException();
+        for (int i = offset, end = offset + length; i < end; i++, pos += CFRAME_BYTES) {
+            if (dst[i] == null) dst[i] = new CFrame(new Vector2(0, 0), 0);
+            CFrame c = dst[i];
+            c.pos.x = buf.getDouble(pos);
+            c.pos.y = buf.getDouble(pos + 8);
+            c.setRadians(buf.getDouble(pos + 16));
+        }
+        buf.position(pos);
+        return this;
+    }
+}
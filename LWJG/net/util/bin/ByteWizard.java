@@ -1,8 +1,20 @@
 package LWJG.net.util.bin;
 
+import java.util.Arrays;
+
+/**
+ * Big-endian conversions between primitives and byte arrays
+ * <br>Encoding allocates a array per value and decoding only reads at index 0, encode and decode in place with {@link ByteCursor} instead
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
 public class ByteWizard {
     private byte[] bytes;
 
+    /**
+     * @deprecated Allocates a new array per value, write in place with {@link ByteCursor#putInt(int)}
+     */
+    @Deprecated
     public static byte[] toBytes(int integer) {
         byte[] result = new byte[4];
         result[0] = (byte) ((integer >> 24) & 0xFF);
@@ -12,11 +24,19 @@ public class ByteWizard {
         return result;
     }
 
+    /**
+     * @deprecated Allocates a new array per value, write in place with {@link ByteCursor#putDouble(double)}
+     */
+    @Deprecated
     public static byte[] toBytes(double _double) {
         long bits = Double.doubleToLongBits(_double);
         return toBytes(bits);
     }
 
+    /**
+     * @deprecated Allocates a new array per value, write in place with {@link ByteCursor#putLong(long)}
+     */
+    @Deprecated
     public static byte[] toBytes(long _long) {
         byte[] result = new byte[8];
         result[0] = (byte) ((_long >> 56) & 0xFF);
@@ -30,6 +50,10 @@ public class ByteWizard {
         return result;
     }
 
+    /**
+     * @deprecated Allocates a new array per value, write in place with {@link ByteCursor#putShort(int)}
+     */
+    @Deprecated
     public static byte[] toBytes(short _short) {
         byte[] result = new byte[2];
         result[0] = (byte) ((_short >> 8) & 0xFF);
@@ -37,11 +61,19 @@ public class ByteWizard {
         return result;
     }
 
+    /**
+     * @deprecated Allocates a new array per value, write in place with {@link ByteCursor#putFloat(float)}
+     */
+    @Deprecated
     public static byte[] toBytes(float _float) {
         int bits = Float.floatToIntBits(_float);
         return toBytes(bits);
     }
 
+    /**
+     * @deprecated Only reads at index 0, so callers copy the value out of their frame first, read in place with {@link ByteCursor#getInt()}
+     */
+    @Deprecated
     public static int toInteger(byte[] bytes) {
         valid(bytes, 4);
         return ((bytes[0] & 0xFF) << 24) |
@@ -50,12 +82,20 @@ public class ByteWizard {
                (bytes[3] & 0xFF);
     }
 
+    /**
+     * @deprecated Only reads at index 0, so callers copy the value out of their frame first, read in place with {@link ByteCursor#getDouble()}
+     */
+    @Deprecated
     public static double toDouble(byte[] bytes) {
         valid(bytes, 8);
         long bits = toLong(bytes);
         return Double.longBitsToDouble(bits);
     }
 
+    /**
+     * @deprecated Only reads at index 0, so callers copy the value out of their frame first, read in place with {@link ByteCursor#getLong()}
+     */
+    @Deprecated
     public static long toLong(byte[] bytes) {
         valid(bytes, 8);
         return ((long)(bytes[0] & 0xFF) << 56) |
@@ -68,11 +108,19 @@ public class ByteWizard {
                (bytes[7] & 0xFF);
     }
 
+    /**
+     * @deprecated Only reads at index 0, so callers copy the value out of their frame first, read in place with {@link ByteCursor#getShort()}
+     */
+    @Deprecated
     public static short toShort(byte[] bytes) {
         valid(bytes, 2);
         return (short) (((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF));
     }
 
+    /**
+     * @deprecated Only reads at index 0, so callers copy the value out of their frame first, read in place with {@link ByteCursor#getFloat()}
+     */
+    @Deprecated
     public static float toFloat(byte[] bytes) {
         valid(bytes, 4);
         int bits = toInteger(bytes);
@@ -90,11 +138,7 @@ public class ByteWizard {
 
     public byte[] subBytes(int start, int end) {
         if(start < 0 || start > end || end > length()) throw new IllegalArgumentException("Invalid.");
-        byte[] sub = new byte[end-start];
-        for(int i = 0; i < sub.length; i++) {
-            sub[i] = bytes[i+start];
-        }
-        return sub;
+        return Arrays.copyOfRange(bytes, start, end);
     }
 
     public byte indexOf(int i) {
@@ -0,0 +1,172 @@
+package LWJG.net.util.bin;
+
+/**
+ * Maps a range of doubles onto unsigned integers of a fixed bit width
+ * <br>Values outside the range are clamped, angles {@link #angle(int) wrap} around instead.
+ * The precision is (max - min) / (2^bits - 1), so e.g. a 1024 unit wide world in 17 bits is accurate to 1/128 unit
+ * <br>Deltas against a baseline are written with as many bits as the difference needs, see {@link #writeDelta(BitWriter, int, int)}.
+ * Immutable and thread safe
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:58
+ */
+public final class Quantizer {
+    private final double min;
+    private final double max;
+    private final int bits;
+    private final boolean wrap;
+    private final long steps; /* highest quantized value */
+    private final double scale;
+
+    /**
+     * Create a quantizer that clamps to a range
+     * @param min Lowest value
+     * @param max Highest value
+     * @param bits Bits 1-31
+     */
+    public Quantizer(double min, double max, int bits) {
+        this(min, max, bits, false);
+    }
+
+    private Quantizer(double min, double max, int bits, boolean wrap) {
+        if(bits < 1 || bits > 31) throw new IllegalArgumentException("Bits must be 1-31.");
+        if(!(max > min) || Double.isInfinite(max - min)) throw new IllegalArgumentException("Max must be above min.");
+        this.min = min;
+        this.max = max;
+        this.bits = bits;
+        this.wrap = wrap;
+        this.steps = (1L << bits) - 1;
+        this.scale = wrap ? (1L << bits) / (max - min) : steps / (max - min);
+    }
+
+    /**
+     * Create a quantizer with the least bits that reach a precision
+     * @param min Lowest value
+     * @param max Highest value
+     * @param precision Largest acceptable error times two, the step between two quantized values
+     * @return Quantizer
+     */
+    public static Quantizer ofPrecision(double min, double max, double precision) {
+        if(!(precision > 0)) throw new IllegalArgumentException("Precision must be above 0.");
+        double steps = Math.ceil((max - min) / precision);
+        int bits = Math.max(1, 64 - Long.numberOfLeadingZeros((long) Math.min(steps, Integer.MAX_VALUE)));
+        return new Quantizer(min, max, bits);
+    }
+
+    /**
+     * Create a quantizer for angles in radians, wrapping around a full turn
+     * @param bits Bits 1-31, e.g. 12 for about 0.09 degrees
+     * @return Quantizer
+     */
+    public static Quantizer angle(int bits) {
+        return new Quantizer(0, 2 * Math.PI, bits, true);
+    }
+
+    /**
+     * Quantize a value
+     * @param v Value, clamped or wrapped into the range, NaN becomes min
+     * @return Quantized value 0 to 2^bits - 1
+     */
+    public int quantize(double v) {
+        if (wrap) return (int) (Math.round((v - min) * scale) & steps);
+        if (!(v > min)) return 0;
+        if (v >= max) return (int) steps;
+        return (int) Math.round((v - min) * scale);
+    }
+
+    /**
+     * Restore a quantized value
+     * @param q Quantized value
+     * @return Value within the range
+     */
+    public double dequantize(int q) {
+        long v = q & steps;
+        if (!wrap && v == steps) return max; /* exact at the upper bound */
+        return min + v / scale;
+    }
+
+    /**
+     * Round a value to what the other side gets
+     * @param v Value
+     * @return Quantized and restored value
+     */
+    public double snap(double v) {
+        return dequantize(quantize(v));
+    }
+
+    public void write(BitWriter w, double v) {
+        w.writeBits(quantize(v), bits);
+    }
+
+    public double read(BitReader r) {
+        return dequantize((int) r.readBits(bits));
+    }
+
+    /**
+     * Write the difference of two quantized values, 1 bit if unchanged.
+     * Angles take the shorter way around the circle
+     * @param w Writer
+     * @param base Quantized baseline the reader has
+     * @param q Quantized value
+     */
+    public void writeDelta(BitWriter w, int base, int q) {
+        long d = q - base;
+        if (wrap) d = d << (64 - bits) >> (64 - bits); /* sign extend, so the delta is at most half a turn */
+        if (d == 0) {
+            w.writeBit(false);
+            return;
+        }
+        w.writeBit(true).writeVarBits(ByteCursor.zigZag(d), bits + 1);
+    }
+
+    /**
+     * Read a difference written by {@link #writeDelta(BitWriter, int, int)}
+     * @param r Reader
+     * @param base Quantized baseline
+     * @return Quantized value
+     * @throws IllegalArgumentException If the result is outside of the range
+     */
+    public int readDelta(BitReader r, int base) {
+        if (!r.readBit()) return base;
+        long q = base + ByteCursor.unZigZag(r.readVarBits(bits + 1));
+        if (wrap) return (int) (q & steps);
+        if (q < 0 || q > steps) throw new IllegalArgumentException("Malformed quantized delta.");
+        return (int) q;
+    }
+
+    /**
+     * Get the most bits a delta takes
+     * @return Bits
+     */
+    public int getMaxDeltaBits() {
+        return 1 + BitWriter.lengthBits(bits + 1) + bits + 1;
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public boolean isWrapping() {
+        return wrap;
+    }
+
+    /**
+     * Get the step between two quantized values
+     * @return Precision
+     */
+    public double getPrecision() {
+        return 1 / scale;
+    }
+
+    @Override
+    public String toString() {
+        return "Quantizer[" + min + ", " + max + ", " + bits + " bits" + (wrap ? ", wrapping" : "") + "]";
+    }
+}
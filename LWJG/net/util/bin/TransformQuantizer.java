@@ -0,0 +1,193 @@
+package LWJG.net.util.bin;
+
+import LWJG.core.CFrame;
+import LWJG.core.Vector2;
+
+/**
+ * Quantized encoding of {@link CFrame} positions and rotations and of velocities within world bounds
+ * <br>A 2000 unit world at 1/16 unit precision with 12 bit angles packs a CFrame into 15 + 15 + 12 bits, 6 bytes instead of 24.
+ * Against a baseline the other side already has, unchanged components cost a single bit, see {@link #writeDelta(BitWriter, CFrame, CFrame)}
+ * <br>Velocities are clamped to the range of their {@link Quantizer} per component,
+ * without one they are written as raw 64 bit doubles. Both sides must use the same settings
+ * <br>Immutable and thread safe
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public final class TransformQuantizer {
+    private final Quantizer x;
+    private final Quantizer y;
+    private final Quantizer angle;
+    private final Quantizer velocity;
+    private final Quantizer angularVelocity;
+
+    /**
+     * Create a quantizer for a world, velocities are written as raw doubles
+     * @param minX Lowest x
+     * @param minY Lowest y
+     * @param maxX Highest x
+     * @param maxY Highest y
+     * @param precision Position step in world units
+     * @param angleBits Bits of a rotation 1-31
+     */
+    public TransformQuantizer(double minX, double minY, double maxX, double maxY, double precision, int angleBits) {
+        this(minX, minY, maxX, maxY, precision, angleBits, null, null);
+    }
+
+    /**
+     * Create a quantizer for a world with quantized velocities
+     * @param minX Lowest x
+     * @param minY Lowest y
+     * @param maxX Highest x
+     * @param maxY Highest y
+     * @param precision Position step in world units
+     * @param angleBits Bits of a rotation 1-31
+     * @param velocity Velocity per component, e.g. <code>Quantizer.ofPrecision(-maxSpeed, maxSpeed, step)</code>, null for raw doubles
+     * @param angularVelocity Angular velocity in radians, null for raw doubles
+     */
+    public TransformQuantizer(double minX, double minY, double maxX, double maxY, double precision, int angleBits, Quantizer velocity, Quantizer angularVelocity) {
+        this.x = Quantizer.ofPrecision(minX, maxX, precision);
+        this.y = Quantizer.ofPrecision(minY, maxY, precision);
+        this.angle = Quantizer.angle(angleBits);
+        this.velocity = velocity;
+        this.angularVelocity = angularVelocity;
+    }
+
+    /**
+     * Write a CFrame
+     * @param w Writer
+     * @param c CFrame
+     */
+    public void write(BitWriter w, CFrame c) {
+        x.write(w, c.getX());
+        y.write(w, c.getY());
+        angle.write(w, c.getRadians());
+    }
+
+    /**
+     * Read a CFrame in place
+     * @param r Reader
+     * @param dst Destination
+     * @return dst
+     */
+    public CFrame read(BitReader r, CFrame dst) {
+        dst.setX(x.read(r));
+        dst.setY(y.read(r));
+        dst.setRadians(angle.read(r));
+        return dst;
+    }
+
+    /**
+     * Write the difference of a CFrame to a baseline the reader has
+     * @param w Writer
+     * @param base Baseline
+     * @param c CFrame
+     */
+    public void writeDelta(BitWriter w, CFrame base, CFrame c) {
+        x.writeDelta(w, x.quantize(base.getX()), x.quantize(c.getX()));
+        y.writeDelta(w, y.quantize(base.getY()), y.quantize(c.getY()));
+        angle.writeDelta(w, angle.quantize(base.getRadians()), angle.quantize(c.getRadians()));
+    }
+
+    /**
+     * Read a difference written by {@link #writeDelta(BitWriter, CFrame, CFrame)}
+     * @param r Reader
+     * @param base Baseline, may be dst
+     * @param dst Destination
+     * @return dst
+     */
+    public CFrame readDelta(BitReader r, CFrame base, CFrame dst) {
+        int qx = x.readDelta(r, x.quantize(base.getX()));
+        int qy = y.readDelta(r, y.quantize(base.getY()));
+        int qa = angle.readDelta(r, angle.quantize(base.getRadians()));
+        dst.setX(x.dequantize(qx));
+        dst.setY(y.dequantize(qy));
+        dst.setRadians(angle.dequantize(qa));
+        return dst;
+    }
+
+    /**
+     * Write a velocity
+     * @param w Writer
+     * @param v Velocity
+     */
+    public void writeVelocity(BitWriter w, Vector2 v) {
+        writeVelocity(w, v.x);
+        writeVelocity(w, v.y);
+    }
+
+    /**
+     * Read a velocity in place
+     * @param r Reader
+     * @param dst Destination
+     * @return dst
+     */
+    public Vector2 readVelocity(BitReader r, Vector2 dst) {
+        dst.x = readVelocity(r);
+        dst.y = readVelocity(r);
+        return dst;
+    }
+
+    /**
+     * Write one velocity component
+     * @param w Writer
+     * @param v Component
+     */
+    public void writeVelocity(BitWriter w, double v) {
+        write(w, velocity, v);
+    }
+
+    public double readVelocity(BitReader r) {
+        return read(r, velocity);
+    }
+
+    public void writeAngularVelocity(BitWriter w, double v) {
+        write(w, angularVelocity, v);
+    }
+
+    public double readAngularVelocity(BitReader r) {
+        return read(r, angularVelocity);
+    }
+
+    private static void write(BitWriter w, Quantizer q, double v) {
+        if (q != null) q.write(w, v);
+        else w.writeBits(Double.doubleToRawLongBits(v), 64);
+    }
+
+    private static double read(BitReader r, Quantizer q) {
+        return q != null ? q.read(r) : Double.longBitsToDouble(r.readBits(64));
+    }
+
+    /**
+     * Get the bits of a CFrame
+     * @return Bits
+     */
+    public int getTransformBits() {
+        return x.getBits() + y.getBits() + angle.getBits();
+    }
+
+    public Quantizer getX() {
+        return x;
+    }
+
+    public Quantizer getY() {
+        return y;
+    }
+
+    public Quantizer getAngle() {
+        return angle;
+    }
+
+    /**
+     * @return Velocity quantizer, null for raw doubles
+     */
+    public Quantizer getVelocity() {
+        return velocity;
+    }
+
+    /**
+     * @return Angular velocity quantizer, null for raw doubles
+     */
+    public Quantizer getAngularVelocity() {
+        return angularVelocity;
+    }
+}
@@ -0,0 +1,122 @@
+package LWJG.net.util.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size classed pool of heap and direct {@link ByteBuffer}s for the net stack
+ * Capacities are rounded up to the next power of two between {@link #MIN_SIZE} and {@link #MAX_SIZE},
+ * larger requests are allocated unpooled but still have to be released
+ * {@link #getDefault()} Pool shared by all connections
+ * @author Marius Baumgartner
+ * @version 2026-10-18T14:20
+ */
+public final class BufferPool {
+    public static final int MIN_SIZE = 64;
+    public static final int MAX_SIZE = 1 << 20;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_SIZE) - MIN_SHIFT + 1;
+    private static final int UNPOOLED = -1;
+
+    private static final BufferPool DEFAULT = new BufferPool(Integer.getInteger("lwjg.bufferPool.maxPerClass", 256));
+
+    private final Stack[] heap = new Stack[CLASSES];
+    private final Stack[] direct = new Stack[CLASSES];
+    private final AtomicLong outstanding = new AtomicLong();
+
+    /**
+     * Free list of one size class, small enough that a plain lock does not matter
+     */
+    private static final class Stack {
+        private final PooledBuffer[] items;
+        private int size;
+
+        Stack(int max) {
+            items = new PooledBuffer[max];
+        }
+
+        synchronized PooledBuffer pop() {
+            if (size == 0) return null;
+            PooledBuffer b = items[--size];
+            items[size] = null;
+            return b;
+        }
+
+        synchronized boolean push(PooledBuffer b) {
+            if (size == items.length) return false;
+            items[size++] = b;
+            return true;
+        }
+    }
+
+    /**
+     * @param maxPerClass Maximum amount of idle buffers kept per size class and kind
+     */
+    public BufferPool(int maxPerClass) {
+        if(maxPerClass < 0) throw new IllegalArgumentException("Max per class cannot be below 0.");
+        for (int i = 0; i < CLASSES; i++) {
+            heap[i] = new Stack(maxPerClass);
+            direct[i] = new Stack(maxPerClass);
+        }
+    }
+
+    /**
+     * Get the pool shared by the net stack
+     * @return Pool
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Allocate a heap buffer
+     * @param capacity Minimum capacity, becomes the limit
+     * @return Buffer with one reference
+     */
+    public PooledBuffer heap(int capacity) {
+        return allocate(capacity, false);
+    }
+
+    /**
+     * Allocate a direct buffer
+     * @param capacity Minimum capacity, becomes the limit
+     * @return Buffer with one reference
+     */
+    public PooledBuffer direct(int capacity) {
+        return allocate(capacity, true);
+    }
+
+    private PooledBuffer allocate(int capacity, boolean isDirect) {
+        if(capacity < 0) throw new IllegalArgumentException("Capacity cannot be below 0.");
+        int c = sizeClass(capacity);
+        PooledBuffer b = null;
+        if (c != UNPOOLED) b = (isDirect ? direct : heap)[c].pop();
+        if (b == null) {
+            int size = c == UNPOOLED ? capacity : MIN_SIZE << c;
+            b = new PooledBuffer(this, c, isDirect ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size));
+        }
+        outstanding.incrementAndGet();
+        return b.init(capacity);
+    }
+
+    void recycle(PooledBuffer b) {
+        outstanding.decrementAndGet();
+        int c = b.getSizeClass();
+        if (c != UNPOOLED) (b.isDirect() ? direct : heap)[c].push(b);
+    }
+
+    private static int sizeClass(int capacity) {
+        if (capacity > MAX_SIZE) return UNPOOLED;
+        if (capacity <= MIN_SIZE) return 0;
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SHIFT;
+    }
+
+    /**
+     * Get amount of buffers handed out and not yet released, useful to assert on in tests
+     * @return Outstanding buffers
+     */
+    public long getOutstanding() {
+        return outstanding.get();
+    }
+}
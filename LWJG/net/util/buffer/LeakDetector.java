@@ -0,0 +1,66 @@
+package LWJG.net.util.buffer;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports {@link PooledBuffer}s that were garbage collected without being released
+ * Off by default as it records a stack trace per allocation, enable with <code>-Dlwjg.leakDetection=true</code>
+ * or {@link #setEnabled(boolean)} in tests
+ * @author Marius Baumgartner
+ * @version 2026-10-18T14:20
+ */
+public final class LeakDetector {
+    private static final Cleaner cleaner = Cleaner.create();
+    private static final AtomicLong leaks = new AtomicLong();
+    private static volatile boolean enabled = Boolean.getBoolean("lwjg.leakDetection");
+
+    private LeakDetector() {}
+
+    static final class Track implements Runnable {
+        private final Throwable origin = new Throwable("Allocated here");
+        private volatile boolean released;
+        private Cleaner.Cleanable cleanable;
+
+        @Override
+        public void run() {
+            if (released) return;
+            leaks.incrementAndGet();
+            System.err.println("LEAK: PooledBuffer was garbage collected without release()");
+            origin.printStackTrace();
+        }
+    }
+
+    static Track track(PooledBuffer b) {
+        if (!enabled) return null;
+        Track t = new Track();
+        t.cleanable = cleaner.register(b, t);
+        return t;
+    }
+
+    static void untrack(Track t) {
+        if (t == null) return;
+        t.released = true;
+        t.cleanable.clean();
+    }
+
+    /**
+     * Turn leak detection on or off, only affects buffers allocated afterwards
+     * @param enabled Enabled
+     */
+    public static void setEnabled(boolean enabled) {
+        LeakDetector.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get amount of leaks reported so far
+     * @return Leaks
+     */
+    public static long getLeaks() {
+        return leaks.get();
+    }
+}
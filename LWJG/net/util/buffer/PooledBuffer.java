@@ -0,0 +1,98 @@
+package LWJG.net.util.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference counted {@link ByteBuffer} handed out by a {@link BufferPool}
+ * Starts with one reference, every {@link #retain()} must be paired with a {@link #release()},
+ * the buffer goes back to its pool once the count drops to zero and must not be touched afterwards
+ * @author Marius Baumgartner
+ * @version 2026-10-18T14:20
+ */
+public final class PooledBuffer {
+    private final BufferPool pool;
+    private final int sizeClass;
+    private final ByteBuffer buffer;
+    private final AtomicInteger refs = new AtomicInteger();
+    private LeakDetector.Track track;
+
+    PooledBuffer(BufferPool pool, int sizeClass, ByteBuffer buffer) {
+        this.pool = pool;
+        this.sizeClass = sizeClass;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Prepare for handing out
+     * @param capacity Requested capacity, becomes the limit
+     */
+    PooledBuffer init(int capacity) {
+        buffer.clear().limit(capacity);
+        refs.set(1);
+        track = LeakDetector.track(this);
+        return this;
+    }
+
+    /**
+     * Get the backing buffer, position 0 and limit at the requested capacity when freshly allocated
+     * @return Buffer
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Get a independent view of the buffer between its current position and limit, shares content but not position and limit
+     * @return Read only view
+     */
+    public ByteBuffer view() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Add a reference
+     * @return this
+     */
+    public PooledBuffer retain() {
+        int r;
+        do {
+            r = refs.get();
+            if (r <= 0) throw new IllegalStateException("Buffer already released.");
+        } while (!refs.compareAndSet(r, r + 1));
+        return this;
+    }
+
+    /**
+     * Drop a reference, returning the buffer to its pool on the last one
+     * @return If this was the last reference
+     */
+    public boolean release() {
+        int r = refs.decrementAndGet();
+        if (r > 0) return false;
+        if (r < 0) {
+            refs.incrementAndGet();
+            throw new IllegalStateException("Buffer already released.");
+        }
+        LeakDetector.untrack(track);
+        track = null;
+        pool.recycle(this);
+        return true;
+    }
+
+    /**
+     * Get current reference count
+     * @return References
+     */
+    public int refCnt() {
+        return refs.get();
+    }
+
+    int getSizeClass() {
+        return sizeClass;
+    }
+
+    boolean isDirect() {
+        return buffer.isDirect();
+    }
+}
@@ -0,0 +1,127 @@
+package LWJG.net.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds
+ * <br>Values are counted in log-linear buckets, 8 per power of two, so percentiles are exact to about 12.5%
+ * and recording never allocates
+ * <br>Histograms shared by many threads can be striped, each thread records into one of several bucket arrays
+ * and reads merge them, see {@link #LatencyHistogram(int)}
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public class LatencyHistogram {
+    private static final int LINEAR = 16; /* values below are counted exactly */
+    private static final int SUB_BITS = 3;
+    private static final int BUCKETS = LINEAR + (63 - 4) * (1 << SUB_BITS);
+    private static final int MAX = BUCKETS; /* slot of the stripe's maximum behind its buckets */
+
+    private final AtomicLongArray[] stripes;
+    private final int mask;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyHistogram() {
+        this(1);
+    }
+
+    /**
+     * Create a striped histogram for values recorded by many threads at once
+     * @param stripes Amount of bucket arrays, rounded up to a power of two, e.g. the amount of processors
+     */
+    public LatencyHistogram(int stripes) {
+        if(stripes < 1) throw new IllegalArgumentException("Stripes cannot be below 1.");
+        this.stripes = new AtomicLongArray[Integer.highestOneBit(stripes * 2 - 1)];
+        for (int i = 0; i < this.stripes.length; i++) this.stripes[i] = new AtomicLongArray(BUCKETS + 1);
+        this.mask = this.stripes.length - 1;
+    }
+
+    /**
+     * Record a duration
+     * @param nanos Duration in nanoseconds, negative values count as 0
+     */
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        AtomicLongArray s = stripes[(int) Thread.currentThread().threadId() & mask];
+        s.incrementAndGet(index(v));
+        count.increment();
+        sum.add(v);
+        long m;
+        while (v > (m = s.get(MAX)) && !s.compareAndSet(MAX, m, v));
+    }
+
+    private static int index(long v) {
+        if (v < LINEAR) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return LINEAR + ((exp - 4) << SUB_BITS) + sub;
+    }
+
+    private static long lowerBound(int index) {
+        if (index < LINEAR) return index;
+        int exp = ((index - LINEAR) >>> SUB_BITS) + 4;
+        int sub = (index - LINEAR) & ((1 << SUB_BITS) - 1);
+        return (long) ((1 << SUB_BITS) + sub) << (exp - SUB_BITS);
+    }
+
+    /**
+     * Get a percentile
+     * @param p Percentile 0-100, e.g. 99.9
+     * @return Upper bound of the bucket holding the percentile in nanoseconds, 0 if nothing was recorded
+     */
+    public long percentile(double p) {
+        if(p < 0 || p > 100) throw new IllegalArgumentException("Percentile must be 0-100.");
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (AtomicLongArray s : stripes) {
+            for (int i = 0; i < BUCKETS; i++) counts[i] += s.get(i);
+        }
+        for (long c : counts) total += c; /* from the same snapshot as the buckets */
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * p / 100));
+        long max = getMax(), seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(i + 1 < BUCKETS ? lowerBound(i + 1) - 1 : Long.MAX_VALUE, max);
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        long max = 0;
+        for (AtomicLongArray s : stripes) max = Math.max(max, s.get(MAX));
+        return max;
+    }
+
+    /**
+     * Get the mean duration
+     * @return Mean in nanoseconds
+     */
+    public double getMean() {
+        long c = count.sum();
+        return c == 0 ? 0 : (double) sum.sum() / c;
+    }
+
+    /**
+     * Forget all recorded values, not atomic with concurrent recording
+     */
+    public void reset() {
+        for (AtomicLongArray s : stripes) {
+            for (int i = 0; i <= MAX; i++) s.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms", getCount(), getMean() / 1e6,
+                percentile(50) / 1e6, percentile(90) / 1e6, percentile(99) / 1e6, getMax() / 1e6);
+    }
+}
@@ -0,0 +1,413 @@
+package LWJG.net.util.metrics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Network instrumentation: traffic and listener time per opcode, frames per read, outbound queue depth and connection counts
+ * <br>Recording never allocates, except once for the first message of a opcode. Every opcode costs a entry and a MBean,
+ * so connections only record opcodes they handle and count everything else as {@link #UNKNOWN}. Figures are pulled with the getters
+ * or through JMX after {@link #register(String)}, the default instance is registered as <code>LWJG:type=NetMetrics,name=default</code>
+ * <br>Per opcode figures are kept in pages of 256 opcodes like the {@link LWJG.net.DispatchTable}, so lookups are plain array indexing
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public class NetMetrics implements NetMetricsMBean {
+    /**
+     * Opcode of the bucket for traffic of opcodes without listeners, handlers or reservation
+     */
+    public static final int UNKNOWN = -1;
+
+    private static final VarHandle PAGES = MethodHandles.arrayElementVarHandle(OpcodeMetrics[][].class);
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(OpcodeMetrics[].class);
+    private static final int STRIPES = Runtime.getRuntime().availableProcessors(); /* for histograms every connection records into */
+    private static NetMetrics defaultMetrics;
+
+    private final OpcodeMetrics[][] pages = new OpcodeMetrics[256][];
+    private final OpcodeMetrics unknown = new OpcodeMetrics(UNKNOWN);
+    private final LongAdder reads = new LongAdder();
+    private final LatencyHistogram framesPerRead = new LatencyHistogram(STRIPES); /* frame counts, not ns */
+    private final LatencyHistogram inline = new LatencyHistogram(STRIPES);
+    private final LatencyHistogram heavy = new LatencyHistogram(STRIPES);
+    private final LongAdder queued = new LongAdder();
+    private final AtomicLong peakQueued = new AtomicLong();
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+    private final LongAdder handshakeFailures = new LongAdder();
+    private final LongAdder handshakeTimeouts = new LongAdder();
+    private final LatencyHistogram handshakes = new LatencyHistogram();
+    private volatile ObjectName name;
+
+    /**
+     * Get the metrics all connections record into unless given others
+     * @return Default metrics, registered with JMX
+     */
+    public static synchronized NetMetrics getDefault() {
+        if (defaultMetrics == null) {
+            defaultMetrics = new NetMetrics();
+            try {
+                defaultMetrics.register("default");
+            } catch (RuntimeException e) {
+                System.err.println("Could not register network metrics: " + e.getMessage());
+            }
+        }
+        return defaultMetrics;
+    }
+
+    /**
+     * Get the figures of a opcode
+     * @param opcode Opcode 0-65535 or {@link #UNKNOWN}
+     * @return Figures or null if the opcode saw no traffic
+     */
+    public OpcodeMetrics get(int opcode) {
+        if (opcode == UNKNOWN) return unknown;
+        OpcodeMetrics[] page = (OpcodeMetrics[]) PAGES.getAcquire(pages, (opcode >>> 8) & 0xFF);
+        return page == null ? null : (OpcodeMetrics) SLOTS.getAcquire(page, opcode & 0xFF);
+    }
+
+    private OpcodeMetrics opcode(int opcode) {
+        OpcodeMetrics m = get(opcode);
+        return m != null ? m : create(opcode & 0xFFFF);
+    }
+
+    private synchronized OpcodeMetrics create(int opcode) {
+        OpcodeMetrics[] page = pages[opcode >>> 8];
+        if (page == null) {
+            page = new OpcodeMetrics[256];
+            PAGES.setRelease(pages, opcode >>> 8, page);
+        }
+        OpcodeMetrics m = page[opcode & 0xFF];
+        if (m != null) return m;
+        m = new OpcodeMetrics(opcode);
+        SLOTS.setRelease(page, opcode & 0xFF, m);
+        ObjectName n = name;
+        if (n != null) registerOpcode(n, m);
+        return m;
+    }
+
+    /**
+     * Get the figures of all opcodes that saw traffic
+     * @return Snapshot, ordered by opcode, {@link #UNKNOWN} first
+     */
+    public List<OpcodeMetrics> getOpcodes() {
+        List<OpcodeMetrics> l = new ArrayList<>();
+        l.add(unknown);
+        for (int p = 0; p < pages.length; p++) {
+            OpcodeMetrics[] page = (OpcodeMetrics[]) PAGES.getAcquire(pages, p);
+            if (page == null) continue;
+            for (int i = 0; i < page.length; i++) {
+                OpcodeMetrics m = (OpcodeMetrics) SLOTS.getAcquire(page, i);
+                if (m != null) l.add(m);
+            }
+        }
+        return l;
+    }
+
+    /* recording */
+
+    /**
+     * A frame arrived
+     * @param opcode Opcode 0-65535, {@link #UNKNOWN} if nothing handles it; the peer picks it, so it must be known to not cost a entry
+     * @param bytes Bytes on the wire
+     */
+    public void recordIn(int opcode, int bytes) {
+        opcode(opcode).in(bytes);
+    }
+
+    /**
+     * A frame was queued for sending
+     * @param opcode Opcode 0-65535
+     * @param bytes Bytes on the wire
+     */
+    public void recordOut(int opcode, int bytes) {
+        opcode(opcode).out(bytes);
+    }
+
+    /**
+     * A read from the connection finished
+     * @param frames Complete frames it yielded
+     */
+    public void recordRead(int frames) {
+        reads.increment();
+        framesPerRead.record(frames);
+    }
+
+    /**
+     * A listener returned
+     * @param opcode Opcode 0-65535
+     * @param isHeavy If it ran on the handler executor
+     * @param nanos Run time
+     */
+    public void recordListener(int opcode, boolean isHeavy, long nanos) {
+        opcode(opcode).listener(isHeavy, nanos);
+        (isHeavy ? heavy : inline).record(nanos);
+    }
+
+    /**
+     * The outbound queue of a connection changed
+     * @param delta Bytes added or, negative, taken
+     * @param depth Bytes now queued on that connection
+     */
+    public void recordQueued(long delta, long depth) {
+        queued.add(delta);
+        long p;
+        while (depth > (p = peakQueued.get()) && !peakQueued.compareAndSet(p, depth));
+    }
+
+    public void recordConnect() {
+        connects.increment();
+    }
+
+    public void recordDisconnect() {
+        disconnects.increment();
+    }
+
+    /**
+     * A handshake finished
+     * @param nanos Time from accept to the established session
+     */
+    public void recordHandshake(long nanos) {
+        handshakes.record(nanos);
+    }
+
+    public void recordHandshakeFailure() {
+        handshakeFailures.increment();
+    }
+
+    public void recordHandshakeTimeout() {
+        handshakeTimeouts.increment();
+    }
+
+    /* pull API */
+
+    @Override
+    public long getMessagesIn() {
+        long n = 0;
+        for (OpcodeMetrics m : getOpcodes()) n += m.getMessagesIn();
+        return n;
+    }
+
+    @Override
+    public long getBytesIn() {
+        long n = 0;
+        for (OpcodeMetrics m : getOpcodes()) n += m.getBytesIn();
+        return n;
+    }
+
+    @Override
+    public long getMessagesOut() {
+        long n = 0;
+        for (OpcodeMetrics m : getOpcodes()) n += m.getMessagesOut();
+        return n;
+    }
+
+    @Override
+    public long getBytesOut() {
+        long n = 0;
+        for (OpcodeMetrics m : getOpcodes()) n += m.getBytesOut();
+        return n;
+    }
+
+    @Override
+    public long getReads() {
+        return reads.sum();
+    }
+
+    /**
+     * Get the distribution of complete frames per read
+     * @return Histogram of frame counts
+     */
+    public LatencyHistogram getFramesPerRead() {
+        return framesPerRead;
+    }
+
+    @Override
+    public double getMeanFramesPerRead() {
+        return framesPerRead.getMean();
+    }
+
+    @Override
+    public long getMaxFramesPerRead() {
+        return framesPerRead.getMax();
+    }
+
+    /**
+     * Get the run time of all inline listeners
+     * @return Histogram in ns
+     */
+    public LatencyHistogram getInline() {
+        return inline;
+    }
+
+    /**
+     * Get the run time of all heavy listeners and request handlers
+     * @return Histogram in ns
+     */
+    public LatencyHistogram getHeavy() {
+        return heavy;
+    }
+
+    @Override
+    public double getInlineP99Micros() {
+        return inline.percentile(99) / 1e3;
+    }
+
+    @Override
+    public double getHeavyP99Micros() {
+        return heavy.percentile(99) / 1e3;
+    }
+
+    /**
+     * Get the bytes waiting in the outbound queues of all connections
+     * @return Queued bytes
+     */
+    @Override
+    public long getQueuedBytes() {
+        return queued.sum();
+    }
+
+    /**
+     * Get the deepest outbound queue a single connection had
+     * @return Queued bytes
+     */
+    @Override
+    public long getPeakQueuedBytes() {
+        return peakQueued.get();
+    }
+
+    @Override
+    public long getConnects() {
+        return connects.sum();
+    }
+
+    @Override
+    public long getDisconnects() {
+        return disconnects.sum();
+    }
+
+    @Override
+    public long getHandshakes() {
+        return handshakes.getCount();
+    }
+
+    /**
+     * Get the handshake durations
+     * @return Histogram in ns
+     */
+    public LatencyHistogram getHandshakeLatency() {
+        return handshakes;
+    }
+
+    @Override
+    public long getHandshakeFailures() {
+        return handshakeFailures.sum();
+    }
+
+    @Override
+    public long getHandshakeTimeouts() {
+        return handshakeTimeouts.sum();
+    }
+
+    @Override
+    public double getHandshakeP99Millis() {
+        return handshakes.percentile(99) / 1e6;
+    }
+
+    @Override
+    public String[] getOpcodeSummary() {
+        List<OpcodeMetrics> l = getOpcodes();
+        String[] s = new String[l.size()];
+        for (int i = 0; i < s.length; i++) s[i] = l.get(i).toString();
+        return s;
+    }
+
+    /**
+     * Forget all recorded values except the queued bytes, which stay a gauge; not atomic with concurrent recording
+     */
+    @Override
+    public void reset() {
+        for (OpcodeMetrics m : getOpcodes()) m.reset();
+        reads.reset();
+        framesPerRead.reset();
+        inline.reset();
+        heavy.reset();
+        peakQueued.set(0);
+        connects.reset();
+        disconnects.reset();
+        handshakes.reset();
+        handshakeFailures.reset();
+        handshakeTimeouts.reset();
+    }
+
+    /* JMX */
+
+    /**
+     * Register with the platform MBean server as <code>LWJG:type=NetMetrics,name=&lt;name&gt;</code>,
+     * every opcode is registered as <code>LWJG:type=NetMetrics,name=&lt;name&gt;,opcode=&lt;opcode&gt;</code>
+     * @param name Name, e.g. the server
+     * @throws IllegalArgumentException If the name is taken or invalid
+     * @throws IllegalStateException If this is already registered
+     */
+    public synchronized void register(String name) {
+        if (this.name != null) throw new IllegalStateException("Metrics are already registered as " + this.name + ".");
+        try {
+            ObjectName n = new ObjectName("LWJG:type=NetMetrics,name=" + name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, n);
+            this.name = n;
+            for (OpcodeMetrics m : getOpcodes()) registerOpcode(n, m);
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalArgumentException("Metrics " + name + " are already registered.");
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Cannot register metrics " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static void registerOpcode(ObjectName parent, OpcodeMetrics m) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(m, opcodeName(parent, m.getOpcode()));
+        } catch (JMException e) {
+            System.err.println("Cannot register metrics of opcode " + m.getOpcode() + ": " + e.getMessage());
+        }
+    }
+
+    private static ObjectName opcodeName(ObjectName parent, int opcode) throws JMException {
+        return new ObjectName(parent.getCanonicalName() + ",opcode=" + opcode);
+    }
+
+    /**
+     * Remove this and all opcode MBeans from the platform MBean server
+     */
+    public synchronized void unregister() {
+        ObjectName n = name;
+        if (n == null) return;
+        name = null;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (OpcodeMetrics m : getOpcodes()) {
+                ObjectName o = opcodeName(n, m.getOpcode());
+                if (server.isRegistered(o)) server.unregisterMBean(o);
+            }
+            server.unregisterMBean(n);
+        } catch (JMException e) {
+            System.err.println("Cannot unregister metrics " + n + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the JMX name
+     * @return Name or null if not registered
+     */
+    public ObjectName getObjectName() {
+        return name;
+    }
+}
@@ -0,0 +1,50 @@
+package LWJG.net.util.metrics;
+
+/**
+ * JMX view of {@link NetMetrics}, per opcode figures are registered as {@link OpcodeMetricsMBean}s next to it
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public interface NetMetricsMBean {
+    long getMessagesIn();
+
+    long getBytesIn();
+
+    long getMessagesOut();
+
+    long getBytesOut();
+
+    long getReads();
+
+    double getMeanFramesPerRead();
+
+    long getMaxFramesPerRead();
+
+    long getQueuedBytes();
+
+    long getPeakQueuedBytes();
+
+    long getConnects();
+
+    long getDisconnects();
+
+    long getHandshakes();
+
+    long getHandshakeFailures();
+
+    long getHandshakeTimeouts();
+
+    double getHandshakeP99Millis();
+
+    double getInlineP99Micros();
+
+    double getHeavyP99Micros();
+
+    /**
+     * One line per opcode that saw traffic
+     * @return Summary
+     */
+    String[] getOpcodeSummary();
+
+    void reset();
+}
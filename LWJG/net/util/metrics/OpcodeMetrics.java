@@ -0,0 +1,133 @@
+package LWJG.net.util.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Traffic and listener time of a single opcode, see {@link NetMetrics}
+ * <br>Bytes are counted on the wire, frame header included
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public class OpcodeMetrics implements OpcodeMetricsMBean {
+    private final int opcode;
+    private final LongAdder messagesIn = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder messagesOut = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LatencyHistogram inline = new LatencyHistogram();
+    private final LatencyHistogram heavy = new LatencyHistogram();
+
+    OpcodeMetrics(int opcode) {
+        this.opcode = opcode;
+    }
+
+    void in(int bytes) {
+        messagesIn.increment();
+        bytesIn.add(bytes);
+    }
+
+    void out(int bytes) {
+        messagesOut.increment();
+        bytesOut.add(bytes);
+    }
+
+    void listener(boolean isHeavy, long nanos) {
+        (isHeavy ? heavy : inline).record(nanos);
+    }
+
+    void reset() {
+        messagesIn.reset();
+        bytesIn.reset();
+        messagesOut.reset();
+        bytesOut.reset();
+        inline.reset();
+        heavy.reset();
+    }
+
+    @Override
+    public int getOpcode() {
+        return opcode;
+    }
+
+    @Override
+    public long getMessagesIn() {
+        return messagesIn.sum();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getMessagesOut() {
+        return messagesOut.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * Get the run time of inline listeners, measured on the receiving thread
+     * @return Histogram in ns
+     */
+    public LatencyHistogram getInline() {
+        return inline;
+    }
+
+    /**
+     * Get the run time of heavy listeners and request handlers, measured on the {@link LWJG.net.HandlerExecutor}
+     * @return Histogram in ns
+     */
+    public LatencyHistogram getHeavy() {
+        return heavy;
+    }
+
+    @Override
+    public long getInlineCount() {
+        return inline.getCount();
+    }
+
+    @Override
+    public double getInlineMeanMicros() {
+        return inline.getMean() / 1e3;
+    }
+
+    @Override
+    public double getInlineP99Micros() {
+        return inline.percentile(99) / 1e3;
+    }
+
+    @Override
+    public double getInlineMaxMicros() {
+        return inline.getMax() / 1e3;
+    }
+
+    @Override
+    public long getHeavyCount() {
+        return heavy.getCount();
+    }
+
+    @Override
+    public double getHeavyMeanMicros() {
+        return heavy.getMean() / 1e3;
+    }
+
+    @Override
+    public double getHeavyP99Micros() {
+        return heavy.percentile(99) / 1e3;
+    }
+
+    @Override
+    public double getHeavyMaxMicros() {
+        return heavy.getMax() / 1e3;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s in=%d/%dB out=%d/%dB inline[%s] heavy[%s]", opcode == NetMetrics.UNKNOWN ? "unknown" : String.format("0x%04x", opcode), getMessagesIn(), getBytesIn(),
+                getMessagesOut(), getBytesOut(), inline, heavy);
+    }
+}
@@ -0,0 +1,34 @@
+package LWJG.net.util.metrics;
+
+/**
+ * JMX view of {@link OpcodeMetrics}
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public interface OpcodeMetricsMBean {
+    int getOpcode();
+
+    long getMessagesIn();
+
+    long getBytesIn();
+
+    long getMessagesOut();
+
+    long getBytesOut();
+
+    long getInlineCount();
+
+    double getInlineMeanMicros();
+
+    double getInlineP99Micros();
+
+    double getInlineMaxMicros();
+
+    long getHeavyCount();
+
+    double getHeavyMeanMicros();
+
+    double getHeavyP99Micros();
+
+    double getHeavyMaxMicros();
+}
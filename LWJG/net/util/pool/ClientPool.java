@@ -1,19 +1,178 @@
 package LWJG.net.util.pool;
 
+import java.nio.ByteBuffer;
+
+import LWJG.net.Dispatcher;
+import LWJG.net.IOEventListener;
+import LWJG.net.util.Opcodes;
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
+
 /**
  * Utility Class for syncing with a syncronized byte server pool across the network
+ * <br>The pool is synced once the first snapshot from the {@link ServerPool} is complete, see {@link #isSynced()}.
+ * Deltas must follow each other without gap, on a gap the pool asks for a new snapshot and ignores deltas until it starts.
+ * Local writes are applied at once and sent to the server, which passes them on to all Clients
+ * <br>The listeners move along when the connection is replaced with {@link LWJG.net.RemoteServer#reconnect()},
+ * the server then sends a new snapshot
  * @author Marius Baumgartner
- * @version 2025-05-03T1:28
+ * @version 2026-10-18T23:00
  * @side Client
  */
 public class ClientPool extends Pool {
-    public ClientPool(int size) {
-        super(size);
+    private volatile Dispatcher server;
+    private boolean syncing;
+    private volatile boolean synced;
+    private boolean resyncRequested;
+    private long resyncs;
+
+    private final IOEventListener deltas = new IOEventListener() {
+        @Override
+        public void onEvent(Dispatcher server, byte[] payload) {
+            onEvent(server, ByteBuffer.wrap(payload));
+        }
+
+        @Override
+        public void onEvent(Dispatcher server, ByteBuffer payload) {
+            ClientPool.this.server = server;
+            onRemoteWrite(payload);
+        }
+
+        @Override
+        public boolean isHeavyTask() {
+            return false;
+        }
+    };
+
+    private final IOEventListener snapshots = new IOEventListener() {
+        @Override
+        public void onEvent(Dispatcher server, byte[] payload) {
+            onEvent(server, ByteBuffer.wrap(payload));
+        }
+
+        @Override
+        public void onEvent(Dispatcher server, ByteBuffer payload) {
+            ClientPool.this.server = server;
+            onSnapshot(payload);
+        }
+
+        @Override
+        public boolean isHeavyTask() {
+            return false;
+        }
+    };
+
+    /**
+     * Create a pool synced with the ServerPool of the same size
+     * @param size Size, must match the server
+     * @param server Connection to the server, should not be running yet so no chunk is missed
+     */
+    public ClientPool(int size, Dispatcher server) {
+        this(new HeapStore(size), server);
+    }
+
+    /**
+     * Create a pool synced with the ServerPool of the same size
+     * @param store Store, its size must match the server
+     * @param server Connection to the server, should not be running yet so no chunk is missed
+     */
+    public ClientPool(PoolStore store, Dispatcher server) {
+        super(store);
+        this.server = server;
+        server.addEventListener(Opcodes.POOL.getOpcode(), deltas);
+        server.addEventListener(Opcodes.POOL_SNAPSHOT.getOpcode(), snapshots);
     }
 
     @Override
-    protected void send(byte opcode, byte[] b) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'send'");
+    protected void onRemoteWrite(ByteBuffer b) {
+        synchronized (this) {
+            if (!synced && !syncing) return; /* waiting for a snapshot */
+            long v = versionOf(b);
+            if (v <= getVersion()) return; /* already part of the snapshot */
+            if (v != getVersion() + 1) {
+                requestResync();
+                return;
+            }
+            applyDelta(b, false);
+            setVersion(v);
+        }
+        invokeListeners();
+    }
+
+    /**
+     * Apply a snapshot chunk, <code>[int64 version][int32 size][int32 offset][data]</code>
+     * @param b Chunk in read mode
+     */
+    protected void onSnapshot(ByteBuffer b) {
+        boolean complete;
+        synchronized (this) {
+            int pos = b.position();
+            if (b.remaining() < ServerPool.CHUNK_HEADER) throw new IllegalArgumentException("Malformed pool snapshot.");
+            long v = b.getLong(pos);
+            int size = b.getInt(pos + 8), offset = b.getInt(pos + 12);
+            if (size != size()) throw new IllegalArgumentException("Pool size " + size() + " does not match the server pool size " + size + ".");
+            if (offset == 0) { /* a new snapshot, replaces whatever came before */
+                syncing = true;
+                synced = false;
+                resyncRequested = false;
+            } else if (!syncing) {
+                return;
+            } else if (v != getVersion()) {
+                requestResync();
+                return;
+            }
+            setVersion(v);
+            ByteBuffer data = b.slice(pos + ServerPool.CHUNK_HEADER, b.remaining() - ServerPool.CHUNK_HEADER);
+            writeBytes(data, offset);
+            complete = offset + data.remaining() == size;
+            if (complete) {
+                syncing = false;
+                synced = true;
+            }
+        }
+        if (complete) invokeListeners();
+    }
+
+    /**
+     * Ask the server for a new snapshot, once until it starts
+     */
+    private void requestResync() {
+        syncing = false;
+        synced = false;
+        if (resyncRequested) return;
+        resyncRequested = true;
+        resyncs++;
+        PooledBuffer b = BufferPool.getDefault().heap(8);
+        b.buffer().putLong(getVersion()).flip();
+        server.enqueue(Opcodes.POOL_RESYNC.getOpcode(), b);
+    }
+
+    /**
+     * Deltas carry the last server version this Client has seen
+     */
+    @Override
+    protected long nextVersion() {
+        return getVersion();
+    }
+
+    @Override
+    protected void send(int opcode, PooledBuffer b) {
+        server.enqueue(opcode, b);
+    }
+
+    /**
+     * Is the first snapshot complete and no resync pending
+     * @return Synced
+     */
+    public boolean isSynced() {
+        return synced;
+    }
+
+    /**
+     * Get the amount of resyncs requested after a missed delta
+     * @return Resyncs
+     */
+    public synchronized long getResyncs() {
+        return resyncs;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+package LWJG.net.util.pool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Off-heap store, a direct buffer the garbage collector neither scans nor copies
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:00
+ */
+public class DirectStore implements PoolStore {
+    private final ByteBuffer buffer;
+
+    public DirectStore(int size) {
+        if(size < 1) throw new IllegalArgumentException("Size cannot be below 1.");
+        this.buffer = ByteBuffer.allocateDirect(size);
+    }
+
+    @Override
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+}
@@ -0,0 +1,124 @@
+package LWJG.net.util.pool;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of dirty byte ranges of a {@link Pool}
+ * Overlapping and adjacent ranges are merged, so do ranges separated by less than {@link #MERGE_GAP} bytes
+ * as resending the gap is cheaper than the header of another range.
+ * Beyond {@link #MAX_RANGES} the two closest ranges are merged
+ * <br>Not thread safe, guarded by the Pool
+ * @author Marius Baumgartner
+ * @version 2026-10-18T22:00
+ */
+final class DirtyRanges {
+    /**
+     * Gaps up to this are merged, about the size of a range header in a delta
+     */
+    static final int MERGE_GAP = 8;
+
+    static final int MAX_RANGES = 4096;
+
+    private int[] starts = new int[8];
+    private int[] ends = new int[8]; /* exclusive */
+    private int count;
+    private int last = -1; /* range of the last add, hot regions hit it again */
+
+    /**
+     * Mark a range dirty
+     * @param offset First byte
+     * @param length Length
+     */
+    void add(int offset, int length) {
+        if (length <= 0) return;
+        int end = offset + length;
+        if (last >= 0 && offset >= starts[last] && end <= ends[last]) return;
+
+        int i = search(offset); /* first range ending at or after offset - gap */
+        if (i == count || starts[i] > end + MERGE_GAP) {
+            insert(i, offset, end);
+            last = i;
+            if (count > MAX_RANGES) mergeClosest();
+            return;
+        }
+        starts[i] = Math.min(starts[i], offset);
+        ends[i] = Math.max(ends[i], end);
+        int j = i + 1;
+        while (j < count && starts[j] <= ends[i] + MERGE_GAP) {
+            ends[i] = Math.max(ends[i], ends[j]);
+            j++;
+        }
+        remove(i + 1, j - i - 1);
+        last = i;
+    }
+
+    private int search(int offset) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] + MERGE_GAP < offset) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private void insert(int i, int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        System.arraycopy(starts, i, starts, i + 1, count - i);
+        System.arraycopy(ends, i, ends, i + 1, count - i);
+        starts[i] = start;
+        ends[i] = end;
+        count++;
+    }
+
+    private void remove(int i, int n) {
+        if (n == 0) return;
+        System.arraycopy(starts, i + n, starts, i, count - i - n);
+        System.arraycopy(ends, i + n, ends, i, count - i - n);
+        count -= n;
+    }
+
+    private void mergeClosest() {
+        int best = 0;
+        for (int i = 1; i < count - 1; i++) {
+            if (starts[i + 1] - ends[i] < starts[best + 1] - ends[best]) best = i;
+        }
+        ends[best] = ends[best + 1];
+        remove(best + 1, 1);
+        last = -1;
+    }
+
+    int size() {
+        return count;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    int start(int i) {
+        return starts[i];
+    }
+
+    int length(int i) {
+        return ends[i] - starts[i];
+    }
+
+    /**
+     * Sum of all range lengths
+     * @return Bytes
+     */
+    int bytes() {
+        int b = 0;
+        for (int i = 0; i < count; i++) b += ends[i] - starts[i];
+        return b;
+    }
+
+    void clear() {
+        count = 0;
+        last = -1;
+    }
+}
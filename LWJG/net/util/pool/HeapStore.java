@@ -0,0 +1,22 @@
+package LWJG.net.util.pool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * On-heap store, a plain byte array
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:00
+ */
+public class HeapStore implements PoolStore {
+    private final ByteBuffer buffer;
+
+    public HeapStore(int size) {
+        if(size < 1) throw new IllegalArgumentException("Size cannot be below 1.");
+        this.buffer = ByteBuffer.allocate(size);
+    }
+
+    @Override
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+}
@@ -0,0 +1,49 @@
+package LWJG.net.util.pool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Off-heap store mapped from a file
+ * The content survives restarts and is visible to other local processes mapping the same file.
+ * The operating system writes changes back lazily, {@link #force()} writes them at once.
+ * Other processes are not synchronized with the pool, they should only read
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:00
+ */
+public class MappedStore implements PoolStore {
+    private final Path file;
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Map a file, it is created or grown to the size
+     * @param file File
+     * @param size Size in bytes
+     * @throws IOException If the file cannot be opened or mapped
+     */
+    public MappedStore(Path file, int size) throws IOException {
+        if(size < 1) throw new IllegalArgumentException("Size cannot be below 1.");
+        this.file = file;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            this.buffer = ch.map(FileChannel.MapMode.READ_WRITE, 0, size); /* stays valid after the channel is closed */
+        }
+    }
+
+    @Override
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    @Override
+    public void force() {
+        buffer.force();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
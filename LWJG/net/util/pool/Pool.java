@@ -1,28 +1,99 @@
 package LWJG.net.util.pool;
 
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import LWJG.net.util.Opcodes;
-
-import java.util.ArrayList;
-import static LWJG.net.util.bin.ByteWizard.toBytes;
-import static LWJG.net.util.bin.ByteWizard.toInteger;
+import LWJG.net.util.bin.ByteCursor;
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
 
 /**
  * Utility Class for syncing a byte pool across the network
- * {@link #pool} Byte pool that is synced
+ * {@link #store} Byte pool that is synced, on-heap, direct or mapped from a file, see {@link PoolStore}
  * {@link #listeners} Listeners that are invoked when pool is updated
+ * <br>Local writes only mark their bytes dirty, once per tick all dirty ranges are sent as one delta message.
+ * Many small writes to a hot region collapse into a single range, see {@link DirtyRanges}.
+ * With a tick of 0 the owner calls {@link #flush()} itself, e.g. at the end of each game loop iteration
+ * <br>Every delta of the server carries the next version, so clients can tell when they missed one.
+ * See {@link ServerPool} and {@link ClientPool} for the snapshot and resync protocol
+ * <br>Typed accessors read and write big-endian values in place without allocating
+ * <br>Safe to use from any thread: writers lock only the stripes they touch, readers never lock
+ * and retry if a writer got in their way, see {@link StripedSeqLock}. Every single write is seen either completely or not at all.
+ * The pool monitor only orders outgoing deltas and snapshot chunks
  * @author Marius Baumgartner
- * @version 2025-05-03T3:12
+ * @version 2026-10-18T23:30
  */
 public abstract class Pool {
-    private byte[] pool;
+    /**
+     * Default flush interval, 20 deltas per second
+     */
+    public static final long DEFAULT_TICK = 50;
+
+    /**
+     * Longest range header in a delta, offset + length as varints
+     */
+    static final int MAX_RANGE_HEADER = 2 * ByteCursor.MAX_VARINT_BYTES;
+
+    /**
+     * Longest delta header, version + range count as varint
+     */
+    static final int MAX_DELTA_HEADER = Long.BYTES + ByteCursor.MAX_VARINT_BYTES;
+
+    /**
+     * Stripe size as power of two, 4 KiB
+     */
+    static final int STRIPE_SHIFT = 12;
+
+    /**
+     * Optimistic attempts of a read before it locks the writers out
+     */
+    private static final int OPTIMISTIC_READS = 8;
+
+    private static final ScheduledThreadPoolExecutor ticks = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "lwjg-pool-ticks");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        ticks.setRemoveOnCancelPolicy(true);
+    }
 
-    private final List<PoolEventListener> listeners = new ArrayList<>();
+    private final PoolStore store;
+    private final ByteBuffer data; /* absolute access only */
+    private final StripedSeqLock locks;
+
+    private final List<PoolEventListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Object dirtyLock = new Object(); /* guards dirty, tick, ticker and closed */
+    private DirtyRanges dirty = new DirtyRanges();
+    private DirtyRanges spare = new DirtyRanges(); /* swapped in by flush */
+    private long tick = DEFAULT_TICK;
+    private ScheduledFuture<?> ticker; /* started by the first write */
+    private boolean closed;
+    private long version; /* guarded by this */
+    private final ByteCursor out = new ByteCursor(); /* guarded by this */
 
     public Pool(int size) {
-        if(size < 1) throw new IllegalArgumentException("Size cannot be below 1.");
-        this.pool = new byte[size];
+        this(new HeapStore(size));
+    }
+
+    /**
+     * Create a pool on a backing store
+     * @param store Store, its current content is the initial pool content
+     */
+    public Pool(PoolStore store) {
+        if(store == null) throw new IllegalArgumentException("Store cannot be null.");
+        this.store = store;
+        this.data = store.buffer();
+        this.locks = new StripedSeqLock(data.capacity(), STRIPE_SHIFT);
     }
 
     /**
@@ -43,13 +114,14 @@ public abstract class Pool {
 
     /**
      * Overwrite old data with new in the Pool
+     * The bytes are sent with the next flush
      * @param bytes Byte Data
      * @param offset The Offset of where to write the Byte Data
      */
     public final void write(byte[] bytes, int offset) {
         writeBytes(bytes, offset);
+        markDirty(offset, bytes.length);
         invokeListeners();
-        onLocalWrite(bytes, offset);
     }
 
     /**
@@ -58,9 +130,183 @@ public abstract class Pool {
      * @param offset The Offset of where to write the Byte Data
      */
     protected void writeBytes(byte[] bytes, int offset) {
-        if(bytes.length+offset>pool.length) throw new IllegalArgumentException("Out Of Range.");
-        for(; offset < bytes.length; offset++) {
-            pool[offset] = bytes[offset];
+        writeBytes(ByteBuffer.wrap(bytes), offset);
+    }
+
+    /**
+     * Write Bytes to pool, readers see either none or all of them
+     * @param bytes Byte Data in read mode, position is not changed
+     * @param offset The Offset of where to write the Byte Data
+     */
+    protected void writeBytes(ByteBuffer bytes, int offset) {
+        int length = bytes.remaining();
+        check(offset, length);
+        if (length == 0) return;
+        locks.lock(offset, length);
+        try {
+            data.put(offset, bytes, bytes.position(), length);
+        } finally {
+            locks.unlock(offset, length);
+        }
+    }
+
+    private void check(int offset, int length) {
+        if(offset < 0 || length < 0 || offset > data.capacity() - length) throw new IllegalArgumentException("Out Of Range.");
+    }
+
+    /**
+     * Read bytes from the pool, never torn by a concurrent write
+     * @param offset Offset in the pool
+     * @param dst Destination
+     * @param dstOffset Offset in the destination
+     * @param length Length
+     */
+    public void read(int offset, byte[] dst, int dstOffset, int length) {
+        check(offset, length);
+        if (length == 0) return;
+        for (int tries = 0; tries < OPTIMISTIC_READS; tries++) {
+            long stamp = locks.beginRead(offset, length);
+            data.get(offset, dst, dstOffset, length);
+            if (locks.validate(offset, length, stamp)) return;
+        }
+        locks.lock(offset, length); /* keeps being overwritten, lock it out */
+        try {
+            data.get(offset, dst, dstOffset, length);
+        } finally {
+            locks.unlock(offset, length);
+        }
+    }
+
+    /**
+     * Read bytes from the pool, never torn by a concurrent write
+     * @param offset Offset in the pool
+     * @param dst Destination, filled from its position to its limit, the position is not changed
+     */
+    public void read(int offset, ByteBuffer dst) {
+        int length = dst.remaining();
+        check(offset, length);
+        if (length == 0) return;
+        for (int tries = 0; tries < OPTIMISTIC_READS; tries++) {
+            long stamp = locks.beginRead(offset, length);
+            dst.put(dst.position(), data, offset, length);
+            if (locks.validate(offset, length, stamp)) return;
+        }
+        locks.lock(offset, length);
+        try {
+            dst.put(dst.position(), data, offset, length);
+        } finally {
+            locks.unlock(offset, length);
+        }
+    }
+
+    public int getInt(int offset) {
+        check(offset, 4);
+        for (int tries = 0; tries < OPTIMISTIC_READS; tries++) {
+            long stamp = locks.beginRead(offset, 4);
+            int v = data.getInt(offset);
+            if (locks.validate(offset, 4, stamp)) return v;
+        }
+        locks.lock(offset, 4);
+        try {
+            return data.getInt(offset);
+        } finally {
+            locks.unlock(offset, 4);
+        }
+    }
+
+    public long getLong(int offset) {
+        check(offset, 8);
+        for (int tries = 0; tries < OPTIMISTIC_READS; tries++) {
+            long stamp = locks.beginRead(offset, 8);
+            long v = data.getLong(offset);
+            if (locks.validate(offset, 8, stamp)) return v;
+        }
+        locks.lock(offset, 8);
+        try {
+            return data.getLong(offset);
+        } finally {
+            locks.unlock(offset, 8);
+        }
+    }
+
+    public float getFloat(int offset) {
+        return Float.intBitsToFloat(getInt(offset));
+    }
+
+    public double getDouble(int offset) {
+        return Double.longBitsToDouble(getLong(offset));
+    }
+
+    /**
+     * Write a int in place, sent with the next flush
+     * @param offset Offset
+     * @param value Value
+     */
+    public final void putInt(int offset, int value) {
+        check(offset, 4);
+        locks.lock(offset, 4);
+        try {
+            data.putInt(offset, value);
+        } finally {
+            locks.unlock(offset, 4);
+        }
+        markDirty(offset, 4);
+        invokeListeners();
+    }
+
+    /**
+     * Write a long in place, sent with the next flush
+     * @param offset Offset
+     * @param value Value
+     */
+    public final void putLong(int offset, long value) {
+        check(offset, 8);
+        locks.lock(offset, 8);
+        try {
+            data.putLong(offset, value);
+        } finally {
+            locks.unlock(offset, 8);
+        }
+        markDirty(offset, 8);
+        invokeListeners();
+    }
+
+    /**
+     * Write a float in place, sent with the next flush
+     * @param offset Offset
+     * @param value Value
+     */
+    public final void putFloat(int offset, float value) {
+        putInt(offset, Float.floatToRawIntBits(value));
+    }
+
+    /**
+     * Write a double in place, sent with the next flush
+     * @param offset Offset
+     * @param value Value
+     */
+    public final void putDouble(int offset, double value) {
+        putLong(offset, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Mark a range to be sent with the next flush, starts the tick if needed
+     * Must be called after the bytes are written, so a flush never clears a range before it has the new bytes
+     * @param offset First byte
+     * @param length Length
+     */
+    protected void markDirty(int offset, int length) {
+        synchronized (dirtyLock) {
+            dirty.add(offset, length);
+            if (ticker == null && tick > 0 && !closed) ticker = ticks.scheduleAtFixedRate(this::tick, tick, tick, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void tick() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            e.printStackTrace(); /* keep ticking */
         }
     }
 
@@ -68,47 +314,192 @@ public abstract class Pool {
      * Invoke all attached Listeners
      */
     protected void invokeListeners() {
-        for(PoolEventListener l : listeners) l.onEvent(pool);
+        for(PoolEventListener l : listeners) l.onEvent(this);
     }
 
     /**
-     * Sync byte pool update to all participants
-     * @param bytes Byte Data
-     * @param offset The Offset of where to write the Byte Data
+     * Send all dirty ranges as one delta to all participants
+     * Message layout is <code>[int64 version][varint count]([varint offset][varint length][data])*</code>
+     * <br>Writers only wait for the swap of the dirty set, not for the delta to be encoded
+     * @return If a delta was sent
      */
-    protected void onLocalWrite(byte[] bytes, int offset) {
-        byte[] offsetBytes = toBytes(offset);
-        byte[] b = new byte[bytes.length+4];
-        for(int i = 0; i < bytes.length; i++) b[i] = bytes[i];
-        for(int i = 0; i < 4; i++) b[bytes.length+i] = offsetBytes[i];
-        send(Opcodes.POOL.getOpcode(), b);
+    public synchronized boolean flush() {
+        DirtyRanges ranges;
+        synchronized (dirtyLock) {
+            if (dirty.isEmpty()) return false;
+            ranges = dirty;
+            dirty = spare;
+            spare = ranges;
+        }
+        try {
+            PooledBuffer b = BufferPool.getDefault().heap(MAX_DELTA_HEADER + ranges.size() * MAX_RANGE_HEADER + ranges.bytes());
+            ByteBuffer buf = b.buffer();
+            out.wrap(buf).putLong(nextVersion()).putVarInt(ranges.size());
+            for (int i = 0; i < ranges.size(); i++) {
+                int offset = ranges.start(i), length = ranges.length(i);
+                out.putVarInt(offset).putVarInt(length);
+                read(offset, buf.slice(buf.position(), length));
+                out.skip(length);
+            }
+            buf.flip();
+            send(Opcodes.POOL.getOpcode(), b); /* under the lock, so deltas and snapshot chunks are queued in version order */
+        } finally {
+            ranges.clear();
+        }
+        return true;
+    }
+
+    /**
+     * Get the version of a outgoing delta, called with the pool locked
+     * @return Version, by default the next one
+     */
+    protected long nextVersion() {
+        return ++version;
     }
 
     /**
      * Update byte pool after recieving from other participants
-     * @param bytes Byte Data
-     * @param offset The Offset of where to write the Byte Data
+     * @param b Message in read mode, see {@link #flush()}
      */
-    protected void onRemoteWrite(byte[] b) {
-        byte[] tmp = new byte[4];
-        byte[] bytes = new byte[b.length-4];
-        for(int i = 0; i < 4; i++) tmp[i] = b[i];
-        for(int i = 0; i < bytes.length; i++) bytes[i] = b[4+i];
-        int offset = toInteger(tmp);
-        writeBytes(bytes, offset);
+    protected void onRemoteWrite(ByteBuffer b) {
+        applyDelta(b, false);
+        invokeListeners();
     }
 
     /**
-     * Send raw bytes
-     * @param b Bytes
+     * Write all ranges of a delta to the pool
+     * Every range is written atomically, readers may see some ranges of the delta before others
+     * @param b Delta in read mode, see {@link #flush()}
+     * @param markDirty Mark the ranges dirty, to pass them on with the next flush
+     * @throws IllegalArgumentException If the delta is malformed or out of range, nothing is written then
      */
-    protected abstract void send(byte opcode, byte[] b);
+    protected void applyDelta(ByteBuffer b, boolean markDirty) {
+        ByteCursor in = new ByteCursor(b.duplicate());
+        try {
+            in.skip(Long.BYTES);
+            int count = in.getVarInt(), ranges = in.position();
+            if (count < 0) throw new IllegalArgumentException("Malformed pool delta.");
+            for (int i = 0; i < count; i++) { /* validate first, so a bad delta writes nothing */
+                int offset = in.getVarInt(), length = in.getVarInt();
+                if (length < 0) throw new IllegalArgumentException("Malformed pool delta.");
+                check(offset, length);
+                in.skip(length);
+            }
+            in.position(ranges);
+            for (int i = 0; i < count; i++) {
+                int offset = in.getVarInt(), length = in.getVarInt();
+                writeBytes(in.slice(length), offset);
+                if (markDirty) markDirty(offset, length);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Malformed pool delta.");
+        }
+    }
+
+    /**
+     * Get the version of a delta
+     * @param b Delta in read mode
+     * @return Version
+     */
+    protected static long versionOf(ByteBuffer b) {
+        if (b.remaining() < Long.BYTES) throw new IllegalArgumentException("Malformed pool delta.");
+        return b.getLong(b.position());
+    }
+
+    /**
+     * Send a pooled message, called with the pool locked so it must not block
+     * @param opcode Opcode 0-65535
+     * @param b Message in read mode, ownership of the reference is passed on
+     */
+    protected abstract void send(int opcode, PooledBuffer b);
+
+    /**
+     * Get the current version, the amount of deltas sent by the server
+     * @return Version
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Set the current version, used by clients to follow the server
+     * @param version Version
+     */
+    protected synchronized void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Set the flush interval, takes effect with the next write
+     * @param millis Interval in milliseconds, 0 to only flush on {@link #flush()}
+     */
+    public void setTick(long millis) {
+        if(millis < 0) throw new IllegalArgumentException("Tick cannot be below 0.");
+        synchronized (dirtyLock) {
+            this.tick = millis;
+            stopTicker();
+        }
+    }
+
+    public long getTick() {
+        synchronized (dirtyLock) {
+            return tick;
+        }
+    }
+
+    private void stopTicker() {
+        if (ticker != null) ticker.cancel(false);
+        ticker = null;
+    }
+
+    /**
+     * Send what is still dirty, stop ticking and force the store, later writes have to be flushed manually
+     */
+    public void close() {
+        synchronized (dirtyLock) {
+            closed = true;
+            stopTicker();
+        }
+        flush();
+        try {
+            store.force();
+        } catch (IOException e) {
+            System.err.println("Error forcing pool store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get amount of dirty ranges waiting for the next flush
+     * @return Ranges
+     */
+    public int getDirtyRanges() {
+        synchronized (dirtyLock) {
+            return dirty.size();
+        }
+    }
 
     /**
      * Get Byte Pool
-     * @return Byte Pool
+     * @return The backing array of heap stores, a copy for off-heap stores.
+     * Reading the backing array directly may see torn writes, use {@link #read(int, byte[], int, int)} for consistent reads
      */
     public byte[] getPool() {
-        return pool;
+        byte[] a = store.array();
+        if (a != null) return a;
+        byte[] copy = new byte[data.capacity()];
+        read(0, copy, 0, copy.length);
+        return copy;
+    }
+
+    /**
+     * Get the pool size
+     * @return Size in bytes
+     */
+    public int size() {
+        return data.capacity();
+    }
+
+    public PoolStore getStore() {
+        return store;
     }
-}
\ No newline at end of file
+}
@@ -3,7 +3,7 @@ package LWJG.net.util.pool;
 /**
  * Event that is invoked when Pool data updates
  * @author Marius Baumgartner
- * @version 2025-05-03T1:30
+ * @version 2026-10-18T23:00
  */
 public interface PoolEventListener {
     /**
@@ -11,4 +11,13 @@ public interface PoolEventListener {
      * @param newPoolData New Pool Data
      */
     void onEvent(byte[] newPoolData);
+
+    /**
+     * Event that is invoked by the Pool Manager
+     * Override to read only what is needed, for off-heap pools {@link Pool#getPool()} copies the whole pool
+     * @param pool Pool
+     */
+    default void onEvent(Pool pool) {
+        onEvent(pool.getPool());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package LWJG.net.util.pool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Backing memory of a {@link Pool}
+ * <br>All values are big-endian, like {@link LWJG.net.util.bin.ByteWizard}
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:00
+ */
+public interface PoolStore {
+    /**
+     * Get the memory of the store, only accessed with absolute gets and puts
+     * @return Buffer, position 0 and limit at the size
+     */
+    ByteBuffer buffer();
+
+    /**
+     * Get the size
+     * @return Size in bytes
+     */
+    default int size() {
+        return buffer().capacity();
+    }
+
+    /**
+     * Write changes through to persistent storage, if there is any
+     * @throws IOException If writing fails
+     */
+    default void force() throws IOException {}
+
+    /**
+     * Get the backing array
+     * @return Array or null if the store is off-heap
+     */
+    default byte[] array() {
+        ByteBuffer b = buffer();
+        return b.hasArray() && b.arrayOffset() == 0 ? b.array() : null;
+    }
+}
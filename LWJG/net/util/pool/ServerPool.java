@@ -1,55 +1,175 @@
 package LWJG.net.util.pool;
 
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import LWJG.net.Client;
 import LWJG.net.ClientConnectedListener;
 import LWJG.net.ClientManager;
+import LWJG.net.ClientPermission;
 import LWJG.net.Dispatcher;
 import LWJG.net.IOEventListener;
 import LWJG.net.util.Opcodes;
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
 
 /**
  * Utility Class for sharing a syncronized byte pool across the network with multiple clients
+ * <br>Every Client first gets a snapshot, streamed in chunks of <code>[int64 version][int32 size][int32 offset][data]</code>.
+ * Chunks and deltas are queued in version order, so a Client applying everything in order ends up with the current pool
+ * even though the pool changes during the transfer. A Client that misses a delta, e.g. because its backpressure policy dropped it,
+ * asks for a new snapshot with {@link Opcodes#POOL_RESYNC}
+ * <br>Writes of Clients with {@link ClientPermission#WRITE} are applied and passed on to all Clients with the next delta
  * @author Marius Baumgartner
- * @version 2025-05-03T1:28
+ * @version 2026-10-18T23:59
  * @side Server
  */
-public class ServerPool extends Pool {
+public final class ServerPool extends Pool {
+    public static final int DEFAULT_CHUNK_SIZE = 16 << 10;
+
+    /**
+     * Length of the snapshot chunk header, version + size + offset
+     */
+    static final int CHUNK_HEADER = 16;
+
     private ClientManager mn;
+    private final Map<Client, SnapshotTransfer> transfers = new ConcurrentHashMap<>();
+    private volatile int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private final IOEventListener listener = new IOEventListener() {
+        @Override
+        public void onEvent(Dispatcher client, byte[] payload) {
+            onEvent(client, ByteBuffer.wrap(payload));
+        }
+
+        @Override
+        public void onEvent(Dispatcher client, ByteBuffer payload) {
+            if (!canWrite(((Client) client).getPermission())) return;
+            applyDelta(payload, true);
+            invokeListeners();
+        }
+
+        @Override
+        public boolean isHeavyTask() {
+            return false;
+        }
+    };
+
+    private final IOEventListener resync = new IOEventListener() {
+        @Override
+        public void onEvent(Dispatcher client, byte[] payload) {
+            snapshot((Client) client);
+        }
+
+        @Override
+        public void onEvent(Dispatcher client, ByteBuffer payload) {
+            snapshot((Client) client);
+        }
+
+        @Override
+        public boolean isHeavyTask() {
+            return false;
+        }
+    };
 
     public ServerPool(int size, ClientManager mn) {
-        super(size);
-        this.mn = mn;
-        for(Client c : mn.getClients()) c.addEventListener(Opcodes.POOL.getOpcode(), new IOEventListener() {
-            @Override
-            public void onEvent(Dispatcher client, byte[] payload) {
-                onRemoteWrite(payload);
-            }
+        this(new HeapStore(size), mn);
+    }
 
-            @Override
-            public boolean isHeavyTask() {
-                return false;
-            }
-        });
+    /**
+     * Share a pool on a backing store
+     * @param store Store, e.g. a {@link MappedStore} to keep the pool across restarts
+     * @param mn Client manager
+     */
+    public ServerPool(PoolStore store, ClientManager mn) {
+        super(store);
+        this.mn = mn;
         mn.addClientConnectedListener(new ClientConnectedListener() {
             @Override
             public void onClientConnected(Client newClient) {
-                newClient.addEventListener(Opcodes.POOL.getOpcode(), new IOEventListener() {
-                    @Override
-                    public void onEvent(Dispatcher client, byte[] payload) {
-                        onRemoteWrite(payload);
-                    }
-
-                    @Override
-                    public boolean isHeavyTask() {
-                        return false;
-                    }
-                });
+                attach(newClient);
+            }
+        });
+        for(Client c : mn.getClients()) attach(c);
+    }
+
+    private void attach(Client c) {
+        c.addEventListener(Opcodes.POOL.getOpcode(), listener);
+        c.addEventListener(Opcodes.POOL_RESYNC.getOpcode(), resync);
+        snapshot(c);
+    }
+
+    private static boolean canWrite(ClientPermission p) {
+        return p == ClientPermission.WRITE || p == ClientPermission.READWRITE;
+    }
+
+    /**
+     * Start a snapshot transfer to a Client, replacing a running one
+     * @param c Client
+     */
+    public void snapshot(Client c) {
+        SnapshotTransfer t = new SnapshotTransfer(this, c);
+        SnapshotTransfer old = transfers.put(c, t);
+        if (old != null) old.finish();
+        t.start();
+    }
+
+    /**
+     * Queue chunks while the Client is writable
+     * @param t Transfer
+     */
+    void pump(SnapshotTransfer t) {
+        synchronized (this) {
+            int size = size();
+            while (!t.isDone() && t.offset < size && t.client.isWritable() && !t.client.isClosed()) {
+                int len = Math.min(chunkSize, size - t.offset);
+                PooledBuffer b = BufferPool.getDefault().heap(CHUNK_HEADER + len);
+                ByteBuffer buf = b.buffer().putLong(getVersion()).putInt(size).putInt(t.offset);
+                read(t.offset, buf); /* fills up to the limit */
+                buf.position(0);
+                t.client.enqueue(Opcodes.POOL_SNAPSHOT.getOpcode(), b);
+                t.offset += len;
             }
+            if (t.offset < size && !t.client.isClosed()) return;
+        }
+        t.finish();
+        transfers.remove(t.client, t);
+    }
+
+    @Override
+    public boolean flush() {
+        transfers.values().removeIf(t -> {
+            if (!t.client.isClosed()) return false;
+            t.finish();
+            return true;
         });
+        return super.flush();
     }
 
     @Override
-    protected void send(byte opcode, byte[] b) {
+    protected void send(int opcode, PooledBuffer b) {
         mn.broadcast(opcode, b);
     }
-}
\ No newline at end of file
+
+    /**
+     * Set the size of snapshot chunks
+     * @param chunkSize Chunk size in bytes
+     */
+    public void setChunkSize(int chunkSize) {
+        if(chunkSize < 1) throw new IllegalArgumentException("Chunk size cannot be below 1.");
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Get the amount of running snapshot transfers
+     * @return Transfers
+     */
+    public int getTransfers() {
+        return transfers.size();
+    }
+}
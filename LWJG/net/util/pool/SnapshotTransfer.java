@@ -0,0 +1,47 @@
+package LWJG.net.util.pool;
+
+import LWJG.net.Client;
+import LWJG.net.Dispatcher;
+import LWJG.net.WritabilityListener;
+
+/**
+ * A running snapshot transfer of a {@link ServerPool} to one Client
+ * Chunks are queued while the Client is writable, the transfer pauses at the high watermark
+ * and resumes from the writability callback, so a large pool never blocks the sender or floods the queue
+ * @author Marius Baumgartner
+ * @version 2026-10-18T22:30
+ * @side Server
+ */
+final class SnapshotTransfer implements WritabilityListener {
+    final Client client;
+    private final ServerPool pool;
+    int offset; /* guarded by the pool */
+    private volatile boolean done;
+
+    SnapshotTransfer(ServerPool pool, Client client) {
+        this.pool = pool;
+        this.client = client;
+    }
+
+    void start() {
+        client.addWritabilityListener(this);
+        pool.pump(this);
+    }
+
+    @Override
+    public void onWritabilityChanged(Dispatcher dispatcher, boolean writable) {
+        if (writable && !done) pool.pump(this);
+    }
+
+    /**
+     * Stop the transfer, called by the pool once it is complete, replaced or the Client is gone
+     */
+    void finish() {
+        done = true;
+        client.removeWritabilityListener(this);
+    }
+
+    boolean isDone() {
+        return done;
+    }
+}
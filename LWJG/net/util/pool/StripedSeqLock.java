@@ -0,0 +1,90 @@
+package LWJG.net.util.pool;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Sequence locks over fixed size stripes of a {@link Pool}
+ * <br>A writer makes the sequence of every stripe it touches odd, in ascending order so writers never deadlock,
+ * and even again once done. Readers never lock: they note the sequences, read and check that none changed.
+ * As sequences only grow, their sum changing is enough to detect a write, so readers need no per-stripe state
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:30
+ */
+final class StripedSeqLock {
+    private static final VarHandle SEQ = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int SPINS = 64;
+
+    private final int shift;
+    private final long[] seqs;
+
+    /**
+     * @param size Size of the guarded memory in bytes
+     * @param shift Stripe size as power of two
+     */
+    StripedSeqLock(int size, int shift) {
+        this.shift = shift;
+        this.seqs = new long[(int) (((long) size + (1L << shift) - 1) >>> shift)];
+    }
+
+    /**
+     * Start a optimistic read, waits for writers already inside the range
+     * @param offset First byte
+     * @param length Length, at least 1
+     * @return Stamp for {@link #validate(int, int, long)}
+     */
+    long beginRead(int offset, int length) {
+        long sum = 0;
+        for (int i = offset >>> shift, last = (offset + length - 1) >>> shift; i <= last; i++) {
+            long s;
+            for (int spins = 0; ((s = (long) SEQ.getAcquire(seqs, i)) & 1) != 0; spins++) backoff(spins);
+            sum += s;
+        }
+        return sum;
+    }
+
+    /**
+     * Check that no writer touched the range since {@link #beginRead(int, int)}
+     * @param offset First byte
+     * @param length Length, at least 1
+     * @param stamp Stamp
+     * @return If what was read is consistent
+     */
+    boolean validate(int offset, int length, long stamp) {
+        VarHandle.acquireFence(); /* the reads before must not move past the check */
+        long sum = 0;
+        for (int i = offset >>> shift, last = (offset + length - 1) >>> shift; i <= last; i++) sum += (long) SEQ.getOpaque(seqs, i);
+        return sum == stamp;
+    }
+
+    /**
+     * Lock all stripes of a range for writing
+     * @param offset First byte
+     * @param length Length, at least 1
+     */
+    void lock(int offset, int length) {
+        for (int i = offset >>> shift, last = (offset + length - 1) >>> shift; i <= last; i++) {
+            for (int spins = 0; ; spins++) {
+                long s = (long) SEQ.getOpaque(seqs, i);
+                if ((s & 1) == 0 && SEQ.compareAndSet(seqs, i, s, s + 1)) break;
+                backoff(spins);
+            }
+        }
+    }
+
+    /**
+     * Unlock all stripes of a range, publishing what was written
+     * @param offset First byte
+     * @param length Length, at least 1
+     */
+    void unlock(int offset, int length) {
+        for (int i = offset >>> shift, last = (offset + length - 1) >>> shift; i <= last; i++) {
+            SEQ.setRelease(seqs, i, (long) SEQ.getOpaque(seqs, i) + 1);
+        }
+    }
+
+    private static void backoff(int spins) {
+        if (spins < SPINS) Thread.onSpinWait();
+        else Thread.yield(); /* the writer may be descheduled, or a virtual thread waiting for a carrier */
+    }
+}
@@ -0,0 +1,142 @@
+package LWJG.net.util.replication;
+
+import LWJG.core.Base;
+import LWJG.core.CFrame;
+import LWJG.net.util.bin.BitReader;
+import LWJG.net.util.bin.BitWriter;
+import LWJG.net.util.bin.Quantizer;
+import LWJG.net.util.bin.TransformQuantizer;
+
+/**
+ * Replicated fields of a {@link Base}, each one a bit of the field mask of a update
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:58
+ */
+final class EntityState {
+    static final int X = 0, Y = 1, ANGLE = 2, VEL_X = 3, VEL_Y = 4, ANGULAR_VEL = 5, ACCEL_X = 6, ACCEL_Y = 7, ANGULAR_ACCEL = 8;
+
+    static final int FIELDS = 9;
+
+    static final int ALL = (1 << FIELDS) - 1;
+
+    /**
+     * Mask bit of a update that spawns the entity, all fields follow
+     */
+    static final int SPAWN = 0x8000;
+
+    private EntityState() {
+    }
+
+    /**
+     * Copy the replicated fields of a Base
+     * @param b Base
+     * @param dst Destination of {@link #FIELDS} values
+     */
+    static void capture(Base b, double[] dst) {
+        CFrame c = b.getCFrame();
+        dst[X] = c.getX();
+        dst[Y] = c.getY();
+        dst[ANGLE] = c.getRadians();
+        dst[VEL_X] = b.getVelocity().x;
+        dst[VEL_Y] = b.getVelocity().y;
+        dst[ANGULAR_VEL] = b.getAngularVelocity();
+        dst[ACCEL_X] = b.getAcceleration().x;
+        dst[ACCEL_Y] = b.getAcceleration().y;
+        dst[ANGULAR_ACCEL] = b.getAngularAcceleration();
+    }
+
+    /**
+     * Set one replicated field of a Base
+     * @param b Base
+     * @param field Field
+     * @param v Value
+     */
+    static void apply(Base b, int field, double v) {
+        switch (field) {
+            case X: b.getCFrame().setX(v); break;
+            case Y: b.getCFrame().setY(v); break;
+            case ANGLE: b.getCFrame().setRadians(v); break;
+            case VEL_X: b.getVelocity().x = v; break;
+            case VEL_Y: b.getVelocity().y = v; break;
+            case ANGULAR_VEL: b.setAngularVelocity(v); break;
+            case ACCEL_X: b.getAcceleration().x = v; break;
+            case ACCEL_Y: b.getAcceleration().y = v; break;
+            case ANGULAR_ACCEL: b.setAngularAcceleration(v); break;
+            default: throw new IllegalArgumentException("Unknown field " + field + ".");
+        }
+    }
+
+    /**
+     * Get the quantizer of a field
+     * @param q Transform quantizer, null for raw doubles
+     * @param field Field
+     * @return Quantizer, null for raw doubles
+     */
+    private static Quantizer quantizer(TransformQuantizer q, int field) {
+        if (q == null) return null;
+        switch (field) {
+            case X: return q.getX();
+            case Y: return q.getY();
+            case ANGLE: return q.getAngle();
+            case VEL_X: case VEL_Y: return q.getVelocity();
+            case ANGULAR_VEL: return q.getAngularVelocity();
+            default: return null;
+        }
+    }
+
+    /**
+     * Get the encoded size of fields
+     * @param q Transform quantizer, null for raw doubles
+     * @param mask Field mask
+     * @return Bits
+     */
+    static int bits(TransformQuantizer q, int mask) {
+        int bits = 0;
+        for (int f = 0; f < FIELDS; f++) {
+            if ((mask & 1 << f) == 0) continue;
+            Quantizer fq = quantizer(q, f);
+            bits += fq != null ? fq.getBits() : 64;
+        }
+        return bits;
+    }
+
+    static void write(BitWriter w, TransformQuantizer q, int field, double v) {
+        Quantizer fq = quantizer(q, field);
+        if (fq != null) fq.write(w, v);
+        else w.writeBits(Double.doubleToRawLongBits(v), 64);
+    }
+
+    static double read(BitReader r, TransformQuantizer q, int field) {
+        Quantizer fq = quantizer(q, field);
+        return fq != null ? fq.read(r) : Double.longBitsToDouble(r.readBits(64));
+    }
+
+    /**
+     * Round captured values to what a Client receives, so changes below the precision are not sent
+     * @param q Transform quantizer, null for raw doubles
+     * @param state Values
+     */
+    static void snap(TransformQuantizer q, double[] state) {
+        if (q == null) return;
+        for (int f = 0; f < FIELDS; f++) {
+            Quantizer fq = quantizer(q, f);
+            if (fq != null) state[f] = fq.snap(state[f]);
+        }
+    }
+
+    /**
+     * Get the fields that differ by more than epsilon
+     * @param cur Current values
+     * @param ref Reference values, null if the peer has none
+     * @param epsilon Tolerance
+     * @return Field mask
+     */
+    static int diff(double[] cur, double[] ref, double epsilon) {
+        if (ref == null) return ALL;
+        int mask = 0;
+        for (int i = 0; i < FIELDS; i++) {
+            if (!(Math.abs(cur[i] - ref[i]) <= epsilon)) mask |= 1 << i; /* NaN counts as changed */
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,165 @@
+package LWJG.net.util.replication;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntFunction;
+
+import LWJG.core.Base;
+import LWJG.core.CFrame;
+import LWJG.core.Vector2;
+import LWJG.net.Dispatcher;
+import LWJG.net.IOEventListener;
+import LWJG.net.util.Opcodes;
+import LWJG.net.util.bin.BitReader;
+import LWJG.net.util.bin.ByteCursor;
+import LWJG.net.util.bin.TransformQuantizer;
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
+
+/**
+ * Mirror of the entities a {@link ReplicationServer} replicates to this Client
+ * <br>Updates are applied in place to the mirrored {@link Base} entities and acknowledged right away
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:58
+ * @side Client
+ */
+public class ReplicationClient {
+    private final Map<Integer, Base> entities = new ConcurrentHashMap<>();
+    private final List<ReplicationListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile IntFunction<Base> factory = id -> new Base(new CFrame(Vector2.zero(), 0), null, 0, null, 0, null);
+    private volatile TransformQuantizer quantizer;
+    private long tick = -1;
+    private final BitReader bits = new BitReader(); /* guarded by this */
+
+    private final IOEventListener updates = new IOEventListener() {
+        @Override
+        public void onEvent(Dispatcher server, byte[] payload) {
+            onEvent(server, ByteBuffer.wrap(payload));
+        }
+
+        @Override
+        public void onEvent(Dispatcher server, ByteBuffer payload) {
+            onUpdate(server, payload);
+        }
+
+        @Override
+        public boolean isHeavyTask() {
+            return false;
+        }
+    };
+
+    /**
+     * Mirror the entities replicated over a connection
+     * @param server Connection to the server
+     */
+    public ReplicationClient(Dispatcher server) {
+        server.addEventListener(Opcodes.REPLICATION.getOpcode(), updates);
+    }
+
+    /**
+     * Apply a update, see {@link ReplicationServer}
+     * @param server Connection to acknowledge on
+     * @param payload Update in read mode
+     */
+    protected void onUpdate(Dispatcher server, ByteBuffer payload) {
+        long t;
+        synchronized (this) {
+            ByteCursor in = new ByteCursor(payload.duplicate());
+            TransformQuantizer q = quantizer;
+            try {
+                t = in.getLong();
+                if (t <= tick) return;
+                tick = t;
+                for (int i = 0, n = in.getVarInt(); i < n; i++) {
+                    int id = in.getVarInt();
+                    Base b = entities.remove(id);
+                    if (b != null) for (ReplicationListener l : listeners) l.onDespawn(id, b);
+                }
+                for (int i = 0, n = in.getInt(); i < n; i++) {
+                    int id = in.getVarInt(), mask = in.getUnsignedShort();
+                    Base b = entities.get(id);
+                    boolean spawn = b == null && (mask & EntityState.SPAWN) != 0;
+                    if (spawn) b = factory.apply(id);
+                    bits.wrap(in.buffer());
+                    for (int f = 0; f < EntityState.FIELDS; f++) {
+                        if ((mask & 1 << f) == 0) continue;
+                        double v = EntityState.read(bits, q, f);
+                        if (b != null) EntityState.apply(b, f, v); /* unknown entities are skipped */
+                    }
+                    bits.align();
+                    if (b == null) continue;
+                    if (spawn) {
+                        entities.put(id, b);
+                        for (ReplicationListener l : listeners) l.onSpawn(id, b);
+                    } else {
+                        for (ReplicationListener l : listeners) l.onUpdate(id, b);
+                    }
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IllegalArgumentException("Malformed replication update.");
+            }
+        }
+        PooledBuffer ack = BufferPool.getDefault().heap(Long.BYTES);
+        ack.buffer().putLong(t).flip();
+        server.enqueue(Opcodes.REPLICATION_ACK.getOpcode(), ack);
+    }
+
+    /**
+     * Set how mirrored entities are created, e.g. to attach them to the scene
+     * @param factory Creates a entity for a id, its fields are set afterwards
+     */
+    public void setFactory(IntFunction<Base> factory) {
+        if(factory == null) throw new IllegalArgumentException("Factory cannot be null.");
+        this.factory = factory;
+    }
+
+    /**
+     * Decode quantized updates, must match the settings of the ReplicationServer
+     * @param quantizer Quantizer, null for raw doubles
+     */
+    public void setQuantizer(TransformQuantizer quantizer) {
+        this.quantizer = quantizer;
+    }
+
+    public TransformQuantizer getQuantizer() {
+        return quantizer;
+    }
+
+    /**
+     * Get a mirrored entity
+     * @param id Entity id
+     * @return Entity or null if it is not in the area of interest
+     */
+    public Base getEntity(int id) {
+        return entities.get(id);
+    }
+
+    /**
+     * Get all mirrored entities
+     * @return Unmodifiable view by id
+     */
+    public Map<Integer, Base> getEntities() {
+        return Collections.unmodifiableMap(entities);
+    }
+
+    /**
+     * Get the tick of the last applied update
+     * @return Tick, -1 before the first
+     */
+    public synchronized long getTick() {
+        return tick;
+    }
+
+    public void addListener(ReplicationListener l) {
+        listeners.add(l);
+    }
+
+    public void removeListener(ReplicationListener l) {
+        listeners.remove(l);
+    }
+}
@@ -0,0 +1,36 @@
+package LWJG.net.util.replication;
+
+import LWJG.core.Base;
+
+/**
+ * Listener for entities replicated to a {@link ReplicationClient}
+ * <br>Invoked on the connection's thread while the update is applied, hand the entity to the game loop if it is not thread safe
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:55
+ * @side Client
+ */
+public interface ReplicationListener {
+    /**
+     * A entity entered the area of interest, all fields are set
+     * @param id Entity id
+     * @param entity Entity
+     */
+    default void onSpawn(int id, Base entity) {
+    }
+
+    /**
+     * Fields of a entity changed
+     * @param id Entity id
+     * @param entity Entity
+     */
+    default void onUpdate(int id, Base entity) {
+    }
+
+    /**
+     * A entity left the area of interest or was removed on the server
+     * @param id Entity id
+     * @param entity Entity, no longer updated
+     */
+    default void onDespawn(int id, Base entity) {
+    }
+}
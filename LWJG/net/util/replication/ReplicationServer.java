@@ -0,0 +1,438 @@
+package LWJG.net.util.replication;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import LWJG.core.Base;
+import LWJG.core.CFrame;
+import LWJG.net.Client;
+import LWJG.net.Dispatcher;
+import LWJG.net.IOEventListener;
+import LWJG.net.util.Opcodes;
+import LWJG.net.util.bin.BitWriter;
+import LWJG.net.util.bin.ByteCursor;
+import LWJG.net.util.bin.TransformQuantizer;
+import LWJG.net.util.buffer.BufferPool;
+import LWJG.net.util.buffer.PooledBuffer;
+
+/**
+ * Replicates {@link Base} entities to the Clients that can see them
+ * <br>Every {@link #tick()} the entities are sorted into a {@link SpatialGrid}, so each Client only looks at the cells
+ * around its viewport instead of the whole world. For every entity in its area of interest a Client gets only the fields
+ * that differ from the state it last acknowledged, ordered by priority until its byte budget for the tick is spent.
+ * Entities that did not fit keep their priority and rise until they are sent
+ * <br>Update layout is <code>[int64 tick][varint despawns]([varint id])*[int32 updates]([varint id][uint16 mask][fields])*</code>,
+ * the mask has a bit per field in {@link EntityState} order and {@link EntityState#SPAWN} for entities new to the Client.
+ * Fields are bit packed and padded to a byte, as raw doubles or quantized with a {@link #setQuantizer(TransformQuantizer) TransformQuantizer}.
+ * Clients acknowledge with <code>[int64 tick]</code>. Unacknowledged fields are resent once they changed again
+ * or after {@link #setResendTicks(int)} ticks
+ * <br>Call {@link #tick()} from the game loop between simulation steps, entities are read without locking
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ * @side Server
+ */
+public class ReplicationServer {
+    public static final int DEFAULT_BUDGET = 8 << 10;
+    public static final int DEFAULT_RESEND_TICKS = 30;
+
+    /**
+     * Longest update of a single entity
+     */
+    static final int MAX_UPDATE = ByteCursor.MAX_VARINT_BYTES + 2 + EntityState.FIELDS * Double.BYTES;
+
+    private static final int HEADER = Long.BYTES + ByteCursor.MAX_VARINT_BYTES + Integer.BYTES;
+
+    private static final class Entity {
+        final int id;
+        final int slot;
+        final Base base;
+        final double[] state = new double[EntityState.FIELDS]; /* captured once per tick */
+        double priority;
+        boolean removed;
+
+        Entity(int id, int slot, Base base, double priority) {
+            this.id = id;
+            this.slot = slot;
+            this.base = base;
+            this.priority = priority;
+        }
+    }
+
+    private static final class Replica {
+        final Entity entity;
+        double[] acked; /* null until the spawn is acknowledged */
+        final double[] sent = new double[EntityState.FIELDS];
+        long sentTick = -1;
+        long seen;
+        double priority;
+        int mask;
+        boolean inFlight;
+        boolean dead;
+
+        Replica(Entity entity) {
+            this.entity = entity;
+        }
+    }
+
+    private static final class Viewer {
+        final Client client;
+        volatile CFrame viewport;
+        volatile double radius;
+        final Map<Integer, Replica> replicas = new HashMap<>();
+        final ArrayList<Replica> inFlight = new ArrayList<>();
+        Replica[] candidates = new Replica[64];
+        int[] despawns = new int[16];
+        long acked = -1;
+
+        Viewer(Client client) {
+            this.client = client;
+        }
+    }
+
+    private static final Comparator<Replica> BY_PRIORITY = (a, b) -> Double.compare(b.priority, a.priority);
+
+    private final SpatialGrid grid;
+    private Entity[] entities = new Entity[64]; /* by slot */
+    private int slots;
+    private int[] free = new int[16];
+    private int freeCount;
+    private int nextId;
+    private final Map<Integer, Entity> byId = new HashMap<>();
+
+    private final Map<Client, Viewer> viewers = new ConcurrentHashMap<>();
+    private final ByteCursor out = new ByteCursor(); /* guarded by this */
+    private final BitWriter bits = new BitWriter(); /* guarded by this */
+    private long tick;
+
+    private volatile int budget = DEFAULT_BUDGET;
+    private volatile int resendTicks = DEFAULT_RESEND_TICKS;
+    private volatile double epsilon;
+    private volatile TransformQuantizer quantizer;
+
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+
+    private final IOEventListener acks = new IOEventListener() {
+        @Override
+        public void onEvent(Dispatcher client, byte[] payload) {
+            onEvent(client, ByteBuffer.wrap(payload));
+        }
+
+        @Override
+        public void onEvent(Dispatcher client, ByteBuffer payload) {
+            Viewer v = viewers.get(client);
+            if (v == null || payload.remaining() < Long.BYTES) return;
+            ack(v, payload.getLong(payload.position()));
+        }
+
+        @Override
+        public boolean isHeavyTask() {
+            return false;
+        }
+    };
+
+    /**
+     * Create a replication server
+     * @param cellSize Size of a grid cell in world units, about the typical viewport radius
+     */
+    public ReplicationServer(double cellSize) {
+        if(!(cellSize > 0)) throw new IllegalArgumentException("Cell size must be above 0.");
+        this.grid = new SpatialGrid(cellSize);
+    }
+
+    /**
+     * Start replicating a entity
+     * @param base Entity
+     * @return Entity id, never reused
+     */
+    public int add(Base base) {
+        return add(base, 1);
+    }
+
+    /**
+     * Start replicating a entity
+     * @param base Entity
+     * @param priority Priority relative to other entities, e.g. higher for players than for debris
+     * @return Entity id, never reused
+     */
+    public synchronized int add(Base base, double priority) {
+        if(base == null) throw new IllegalArgumentException("Entity cannot be null.");
+        if(!(priority > 0)) throw new IllegalArgumentException("Priority must be above 0.");
+        int slot;
+        if (freeCount > 0) slot = free[--freeCount];
+        else {
+            if (slots == entities.length) entities = Arrays.copyOf(entities, slots * 2);
+            slot = slots++;
+        }
+        Entity e = new Entity(nextId++, slot, base, priority);
+        entities[slot] = e;
+        byId.put(e.id, e);
+        return e.id;
+    }
+
+    /**
+     * Stop replicating a entity, Clients get a despawn with the next tick
+     * @param id Entity id
+     * @return If the entity was replicated
+     */
+    public synchronized boolean remove(int id) {
+        Entity e = byId.remove(id);
+        if (e == null) return false;
+        e.removed = true;
+        entities[e.slot] = null;
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+        free[freeCount++] = e.slot;
+        return true;
+    }
+
+    /**
+     * Set the priority of a entity
+     * @param id Entity id
+     * @param priority Priority above 0
+     */
+    public synchronized void setPriority(int id, double priority) {
+        if(!(priority > 0)) throw new IllegalArgumentException("Priority must be above 0.");
+        Entity e = byId.get(id);
+        if (e != null) e.priority = priority;
+    }
+
+    /**
+     * Replicate to a Client what it can see
+     * @param c Client
+     * @param viewport Center of the area of interest, usually the player's CFrame, read every tick
+     * @param radius Radius of the area of interest, finite
+     */
+    public void setViewport(Client c, CFrame viewport, double radius) {
+        if(viewport == null) throw new IllegalArgumentException("Viewport cannot be null.");
+        if(!(radius > 0) || Double.isInfinite(radius)) throw new IllegalArgumentException("Radius must be finite and above 0.");
+        Viewer v = viewers.computeIfAbsent(c, k -> {
+            k.addEventListener(Opcodes.REPLICATION_ACK.getOpcode(), acks);
+            return new Viewer(k);
+        });
+        v.radius = radius;
+        v.viewport = viewport;
+    }
+
+    /**
+     * Stop replicating to a Client, closed Clients are dropped with the next tick
+     * @param c Client
+     */
+    public void removeViewer(Client c) {
+        if (viewers.remove(c) != null) c.removeEventListener(Opcodes.REPLICATION_ACK.getOpcode(), acks);
+    }
+
+    /**
+     * Send one round of updates to all Clients
+     */
+    public synchronized void tick() {
+        long t = ++tick;
+        TransformQuantizer q = quantizer;
+        grid.clear();
+        for (int i = 0; i < slots; i++) {
+            Entity e = entities[i];
+            if (e == null) continue;
+            EntityState.capture(e.base, e.state);
+            EntityState.snap(q, e.state);
+            grid.add(i, grid.cellOf(e.state[EntityState.X]), grid.cellOf(e.state[EntityState.Y]));
+        }
+        for (Iterator<Viewer> it = viewers.values().iterator(); it.hasNext();) {
+            Viewer v = it.next();
+            if (v.client.isClosed()) {
+                it.remove();
+                continue;
+            }
+            synchronized (v) {
+                replicate(v, t, q);
+            }
+        }
+    }
+
+    private void replicate(Viewer v, long t, TransformQuantizer q) {
+        CFrame vp = v.viewport;
+        double r = v.radius, vx = vp.getX(), vy = vp.getY(), r2 = r * r;
+        double eps = epsilon;
+        int resend = resendTicks;
+        int n = 0;
+        /* the cells in range clamped to the occupied bounds, or all occupied cells if those are fewer */
+        long cx0 = Math.max(grid.cellOf(vx - r), grid.getMinX()), cx1 = Math.min(grid.cellOf(vx + r), grid.getMaxX());
+        long cy0 = Math.max(grid.cellOf(vy - r), grid.getMinY()), cy1 = Math.min(grid.cellOf(vy + r), grid.getMaxY());
+        long w = Math.max(0, cx1 - cx0 + 1), h = Math.max(0, cy1 - cy0 + 1);
+        int occupied = grid.getOccupied();
+        boolean inRange = w == 0 || h == 0 || w <= occupied && h <= occupied && w * h <= occupied; /* sides first, the product may overflow */
+        int cells = inRange ? (int) (w * h) : grid.getSlots();
+        for (int c = 0; c < cells; c++) {
+            SpatialGrid.Cell cell = inRange ? grid.get((int) (cx0 + c / h), (int) (cy0 + c % h)) : grid.slot(c);
+            if (cell == null) continue;
+            for (int k = 0; k < cell.count; k++) {
+                Entity e = entities[cell.ids[k]];
+                double dx = e.state[EntityState.X] - vx, dy = e.state[EntityState.Y] - vy, d2 = dx * dx + dy * dy;
+                if (d2 > r2) continue;
+                Replica rep = v.replicas.get(e.id);
+                if (rep == null) v.replicas.put(e.id, rep = new Replica(e));
+                rep.seen = t;
+                int mask = rep.acked == null ? EntityState.ALL | EntityState.SPAWN : EntityState.diff(e.state, rep.acked, eps);
+                if (mask == 0) continue;
+                if (rep.sentTick >= 0 && t - rep.sentTick < resend && EntityState.diff(e.state, rep.sent, 0) == 0) continue; /* in flight */
+                rep.mask = mask;
+                rep.priority += e.priority / (1 + Math.sqrt(d2) / grid.getCellSize());
+                if (n == v.candidates.length) v.candidates = Arrays.copyOf(v.candidates, n * 2);
+                v.candidates[n++] = rep;
+            }
+        }
+
+        int despawns = 0;
+        for (Iterator<Replica> it = v.replicas.values().iterator(); it.hasNext();) {
+            Replica rep = it.next();
+            if (rep.seen == t && !rep.entity.removed) continue;
+            if (rep.sentTick >= 0) { /* the Client never heard of it otherwise */
+                if (despawns == v.despawns.length) v.despawns = Arrays.copyOf(v.despawns, despawns * 2);
+                v.despawns[despawns++] = rep.entity.id;
+            }
+            rep.dead = true;
+            it.remove();
+        }
+        if (n == 0 && despawns == 0) return;
+
+        Arrays.sort(v.candidates, 0, n, BY_PRIORITY);
+        int budget = this.budget;
+        PooledBuffer b = BufferPool.getDefault().heap(HEADER + despawns * ByteCursor.MAX_VARINT_BYTES + budget + MAX_UPDATE);
+        ByteBuffer buf = b.buffer();
+        out.wrap(buf).putLong(t).putVarInt(despawns);
+        for (int i = 0; i < despawns; i++) out.putVarInt(v.despawns[i]);
+        int countAt = out.position(), updates = 0, written = 0;
+        out.putInt(0);
+        for (int i = 0; i < n; i++) {
+            Replica rep = v.candidates[i];
+            v.candidates[i] = null;
+            Entity e = rep.entity;
+            int size = ByteCursor.varIntSize(e.id) + 2 + (EntityState.bits(q, rep.mask) + 7) / 8;
+            if (written > 0 && written + size > budget) {
+                deferred.incrementAndGet();
+                continue;
+            }
+            out.putVarInt(e.id).putShort(rep.mask);
+            bits.wrap(buf);
+            for (int f = 0; f < EntityState.FIELDS; f++) {
+                if ((rep.mask & 1 << f) != 0) EntityState.write(bits, q, f, e.state[f]);
+            }
+            bits.flush();
+            System.arraycopy(e.state, 0, rep.sent, 0, EntityState.FIELDS);
+            rep.sentTick = t;
+            rep.priority = 0;
+            if (!rep.inFlight) {
+                rep.inFlight = true;
+                v.inFlight.add(rep);
+            }
+            written += size;
+            updates++;
+        }
+        buf.putInt(countAt, updates).flip();
+        sentBytes.addAndGet(buf.remaining());
+        v.client.enqueue(Opcodes.REPLICATION.getOpcode(), b); /* never blocks the game loop */
+    }
+
+    private void ack(Viewer v, long t) {
+        synchronized (v) {
+            if (t <= v.acked) return;
+            v.acked = t;
+            ArrayList<Replica> list = v.inFlight;
+            for (int i = list.size() - 1; i >= 0; i--) {
+                Replica rep = list.get(i);
+                if (!rep.dead && rep.sentTick > t) continue;
+                if (!rep.dead) {
+                    if (rep.acked == null) rep.acked = new double[EntityState.FIELDS];
+                    System.arraycopy(rep.sent, 0, rep.acked, 0, EntityState.FIELDS);
+                }
+                rep.inFlight = false;
+                list.set(i, list.get(list.size() - 1)); /* order does not matter */
+                list.remove(list.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Set the bytes of entity updates a Client gets per tick, at least one update is always sent
+     * @param bytes Budget in bytes
+     */
+    public void setBudget(int bytes) {
+        if(bytes < 1) throw new IllegalArgumentException("Budget cannot be below 1.");
+        this.budget = bytes;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * Set after how many ticks unacknowledged fields are sent again, for transports that may lose updates
+     * @param ticks Ticks
+     */
+    public void setResendTicks(int ticks) {
+        if(ticks < 1) throw new IllegalArgumentException("Resend ticks cannot be below 1.");
+        this.resendTicks = ticks;
+    }
+
+    public int getResendTicks() {
+        return resendTicks;
+    }
+
+    /**
+     * Set how much a field may differ from the acknowledged state before it is sent
+     * @param epsilon Tolerance in world units and radians, 0 to send every change
+     */
+    public void setEpsilon(double epsilon) {
+        if(!(epsilon >= 0)) throw new IllegalArgumentException("Epsilon cannot be below 0.");
+        this.epsilon = epsilon;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Quantize positions, rotations and velocities, the ReplicationClients need the same settings
+     * @param quantizer Quantizer, null for raw doubles
+     */
+    public void setQuantizer(TransformQuantizer quantizer) {
+        this.quantizer = quantizer;
+    }
+
+    public TransformQuantizer getQuantizer() {
+        return quantizer;
+    }
+
+    /**
+     * Get the amount of replicated entities
+     * @return Entities
+     */
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    public synchronized long getTick() {
+        return tick;
+    }
+
+    /**
+     * Get the bytes of all updates sent
+     * @return Bytes
+     */
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    /**
+     * Get how often a entity update was pushed to a later tick by the budget
+     * @return Deferred updates
+     */
+    public long getDeferred() {
+        return deferred.get();
+    }
+}
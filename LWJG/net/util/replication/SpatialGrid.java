@@ -0,0 +1,154 @@
+package LWJG.net.util.replication;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid of entity ids, rebuilt every tick
+ * <br>Cells live in a open addressing table keyed by their coordinates and are kept across rebuilds,
+ * so a steady world rebuilds without allocating. A slot is free while it has no cell, every key is a valid coordinate pair.
+ * Not thread safe
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+final class SpatialGrid {
+    static final class Cell {
+        int[] ids = new int[8];
+        int count;
+
+        void add(int id) {
+            if (count == ids.length) ids = Arrays.copyOf(ids, count * 2);
+            ids[count++] = id;
+        }
+    }
+
+    private final double cellSize;
+    private long[] keys = new long[64];
+    private Cell[] cells = new Cell[64];
+    private int used;
+    private int occupied; /* cells with ids since the last clear */
+    private int minX, maxX, minY, maxY; /* bounds of those cells */
+
+    SpatialGrid(double cellSize) {
+        this.cellSize = cellSize;
+        clear();
+    }
+
+    double getCellSize() {
+        return cellSize;
+    }
+
+    int cellOf(double v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    /**
+     * Empty all cells, the table is shrunk if most of it stayed empty
+     */
+    void clear() {
+        if (used > 1024 && occupied * 4 < used) {
+            keys = new long[Integer.highestOneBit(Math.max(64, occupied * 4 - 1)) << 1];
+            cells = new Cell[keys.length];
+            used = 0;
+        } else {
+            for (Cell c : cells) if (c != null) c.count = 0;
+        }
+        occupied = 0;
+        minX = minY = Integer.MAX_VALUE;
+        maxX = maxY = Integer.MIN_VALUE;
+    }
+
+    void add(int id, int cx, int cy) {
+        Cell c = cell(cx, cy, true);
+        if (c.count == 0) occupied++;
+        c.add(id);
+        minX = Math.min(minX, cx);
+        maxX = Math.max(maxX, cx);
+        minY = Math.min(minY, cy);
+        maxY = Math.max(maxY, cy);
+    }
+
+    int getOccupied() {
+        return occupied;
+    }
+
+    int getMinX() {
+        return minX;
+    }
+
+    int getMaxX() {
+        return maxX;
+    }
+
+    int getMinY() {
+        return minY;
+    }
+
+    int getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Get the amount of table slots, for scans over all cells with {@link #slot(int)}
+     * @return Slots
+     */
+    int getSlots() {
+        return cells.length;
+    }
+
+    /**
+     * Get the cell of a table slot
+     * @param i Slot
+     * @return Cell, possibly empty, or null
+     */
+    Cell slot(int i) {
+        return cells[i];
+    }
+
+    /**
+     * Get a cell
+     * @param cx Cell x
+     * @param cy Cell y
+     * @return Cell or null if it never had ids since the table was built
+     */
+    Cell get(int cx, int cy) {
+        return cell(cx, cy, false);
+    }
+
+    private Cell cell(int cx, int cy, boolean create) {
+        long key = (long) cx << 32 | (cy & 0xFFFFFFFFL);
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (cells[i] == null) {
+                if (!create) return null;
+                if ((used + 1) * 2 > keys.length) {
+                    grow();
+                    return cell(cx, cy, true);
+                }
+                keys[i] = key;
+                used++;
+                return cells[i] = new Cell();
+            }
+            if (keys[i] == key) return cells[i];
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Cell[] oldCells = cells;
+        keys = new long[oldKeys.length * 2];
+        cells = new Cell[keys.length];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldCells[j] == null) continue;
+            int i = hash(oldKeys[j]) & mask;
+            while (cells[i] != null) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            cells[i] = oldCells[j];
+        }
+    }
+
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ key >>> 32);
+    }
+}
@@ -0,0 +1,50 @@
+package LWJG.net.util.timer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handle of a task scheduled on a {@link TimerWheel}
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public final class Timeout {
+    private static final int PENDING = 0, CANCELLED = 1, EXPIRED = 2;
+
+    private final TimerWheel wheel;
+    final Runnable task;
+    final long deadline; /* ns since the wheel started */
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    /* wheel thread only */
+    long rounds;
+    int bucket = -1;
+    Timeout prev, next;
+
+    Timeout(TimerWheel wheel, Runnable task, long deadline) {
+        this.wheel = wheel;
+        this.task = task;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Cancel the task if it did not run yet
+     * @return False if it already ran or was cancelled before
+     */
+    public boolean cancel() {
+        if (!state.compareAndSet(PENDING, CANCELLED)) return false;
+        wheel.cancelled(this);
+        return true;
+    }
+
+    boolean expire() {
+        return state.compareAndSet(PENDING, EXPIRED);
+    }
+
+    public boolean isCancelled() {
+        return state.get() == CANCELLED;
+    }
+
+    public boolean isExpired() {
+        return state.get() == EXPIRED;
+    }
+}
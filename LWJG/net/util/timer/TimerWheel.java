@@ -0,0 +1,190 @@
+package LWJG.net.util.timer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel, one thread serves any amount of timeouts at a fixed tick resolution
+ * <br>Scheduling and cancelling are O(1) and lock free, they only enqueue; the wheel thread moves timeouts into their bucket
+ * and unlinks cancelled ones on the next tick, so a cancelled timeout does not linger until its deadline.
+ * Deadlines further away than one revolution wait in their bucket for the remaining rounds
+ * <br>Tasks run on the wheel thread and must be short, anything heavy should be handed to a executor
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+public final class TimerWheel {
+    public static final long DEFAULT_TICK_MILLIS = 10;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static TimerWheel defaultWheel;
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final String name;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long start = System.nanoTime();
+    private long tick; /* wheel thread only */
+    private volatile Thread worker;
+    private volatile boolean stopped;
+
+    /**
+     * Timer with {@link #DEFAULT_TICK_MILLIS} resolution
+     * @param name Thread name
+     */
+    public TimerWheel(String name) {
+        this(name, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @param name Thread name
+     * @param tick Resolution, deadlines are rounded up to the next tick
+     * @param unit Unit of tick
+     * @param wheelSize Buckets per revolution, rounded up to a power of two
+     */
+    public TimerWheel(String name, long tick, TimeUnit unit, int wheelSize) {
+        if(tick < 1) throw new IllegalArgumentException("Tick cannot be below 1.");
+        if(wheelSize < 1 || wheelSize > 1 << 20) throw new IllegalArgumentException("Wheel size must be 1-" + (1 << 20) + ".");
+        int size = 1;
+        while (size < wheelSize) size <<= 1;
+        this.name = name;
+        this.tickNanos = Math.max(unit.toNanos(tick), TimeUnit.MILLISECONDS.toNanos(1));
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Get the shared timer used by connections for request deadlines, heartbeats and idle timeouts
+     * @return Default timer
+     */
+    public static synchronized TimerWheel getDefault() {
+        if (defaultWheel == null) defaultWheel = new TimerWheel("lwjg-timer");
+        return defaultWheel;
+    }
+
+    /**
+     * Run a task once after a delay
+     * @param task Task, runs on the wheel thread
+     * @param delay Delay
+     * @param unit Unit of delay
+     * @return Handle to cancel the task
+     * @throws IllegalStateException If the timer is stopped
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if(task == null) throw new IllegalArgumentException("Task cannot be null.");
+        if (stopped) throw new IllegalStateException("Timer " + name + " is stopped.");
+        Timeout t = new Timeout(this, task, System.nanoTime() - start + Math.max(0, unit.toNanos(delay)));
+        pending.incrementAndGet();
+        added.add(t);
+        if (worker == null) startWorker();
+        return t;
+    }
+
+    private synchronized void startWorker() {
+        if (worker != null) return;
+        Thread t = new Thread(this::run, name);
+        t.setDaemon(true);
+        worker = t;
+        t.start();
+    }
+
+    void cancelled(Timeout t) {
+        pending.decrementAndGet();
+        cancelled.add(t);
+    }
+
+    private void run() {
+        while (!stopped) {
+            long deadline = (tick + 1) * tickNanos;
+            long now;
+            while ((now = System.nanoTime() - start) < deadline && !stopped) LockSupport.parkNanos(deadline - now);
+            unlinkCancelled();
+            transferAdded();
+            expire();
+            tick++;
+        }
+        unlinkCancelled();
+        transferAdded();
+    }
+
+    private void unlinkCancelled() {
+        Timeout t;
+        while ((t = cancelled.poll()) != null) {
+            if (t.bucket >= 0) unlink(t);
+        }
+    }
+
+    private void transferAdded() {
+        for (int i = 0; i < 100_000; i++) { /* bounded, so a flood of new timeouts cannot stall the wheel */
+            Timeout t = added.poll();
+            if (t == null) return;
+            if (t.isCancelled()) continue;
+            long ticks = Math.max((t.deadline + tickNanos - 1) / tickNanos, tick); /* never into a already passed bucket */
+            t.rounds = (ticks - tick) / buckets.length;
+            t.bucket = (int) (ticks & mask);
+            Timeout head = buckets[t.bucket];
+            t.next = head;
+            if (head != null) head.prev = t;
+            buckets[t.bucket] = t;
+        }
+    }
+
+    private void expire() {
+        Timeout t = buckets[(int) (tick & mask)];
+        while (t != null) {
+            Timeout next = t.next;
+            if (t.rounds <= 0) {
+                unlink(t);
+                if (t.expire()) {
+                    pending.decrementAndGet();
+                    try {
+                        t.task.run();
+                    } catch (Throwable e) {
+                        e.printStackTrace(); /* one failing task must not stop the timer */
+                    }
+                }
+            } else {
+                t.rounds--;
+            }
+            t = next;
+        }
+    }
+
+    private void unlink(Timeout t) {
+        if (t.prev != null) t.prev.next = t.next;
+        else if (buckets[t.bucket] == t) buckets[t.bucket] = t.next;
+        if (t.next != null) t.next.prev = t.prev;
+        t.prev = t.next = null;
+        t.bucket = -1;
+    }
+
+    /**
+     * Stop the timer, pending timeouts never run
+     */
+    public void stop() {
+        stopped = true;
+        Thread w = worker;
+        if (w != null) LockSupport.unpark(w);
+    }
+
+    /**
+     * Get the timeouts waiting to expire
+     * @return Pending timeouts
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Get the resolution
+     * @return Tick in ms
+     */
+    public long getTickMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+    }
+}
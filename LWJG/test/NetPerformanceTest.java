@@ -27,7 +27,6 @@ public class NetPerformanceTest {
     private static final byte OP_PING = 1;
     private static final byte OP_PONG = 2;
     private static final byte OP_HEAVY_REQ = 3;
-    private static final byte OP_HEAVY_RESP = 4;
 
     // --- Data Collection ---
     private static final AtomicLong serverMessagesReceived = new AtomicLong(0);
@@ -68,17 +67,12 @@ public class NetPerformanceTest {
                 }
                 @Override public boolean isHeavyTask() { return false; }
             });
-            // Listener for HEAVY_REQ from client
-            client.addEventListener(OP_HEAVY_REQ, new IOEventListener() {
-                @Override
-                public void onEvent(Dispatcher dispatcher, byte[] payload) {
-                    serverMessagesReceived.incrementAndGet();
-                    // Simulate work
-                    try { Thread.sleep(HEAVY_TASK_SLEEP_MS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
-                    // Send response
-                    dispatcher.send(OP_HEAVY_RESP, payload); // Echo back payload (e.g., request ID)
-                }
-                @Override public boolean isHeavyTask() { return true; } // Mark as heavy
+            // Request handler for HEAVY_REQ from client, runs on the client's lane as it is heavy by default
+            client.setRequestHandler(OP_HEAVY_REQ, (dispatcher, payload) -> {
+                serverMessagesReceived.incrementAndGet();
+                // Simulate work
+                try { Thread.sleep(HEAVY_TASK_SLEEP_MS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                return null; // Empty response, matched to the request by its correlation id
             });
         });
         serverHandler.start(); // Start acceptor thread
@@ -112,14 +106,6 @@ public class NetPerformanceTest {
                         }
                         @Override public boolean isHeavyTask() { return false; }
                     });
-                     client.addEventListener(OP_HEAVY_RESP, new IOEventListener() {
-                        @Override
-                        public void onEvent(Dispatcher dispatcher, byte[] payload) {
-                            clientHeavyResponsesReceived.incrementAndGet();
-                            // Potentially check payload matches request ID
-                        }
-                        @Override public boolean isHeavyTask() { return false; }
-                    });
 
                     // Start the client's read loop in a separate VT
                     Thread readerThread = Thread.startVirtualThread(client);
@@ -224,8 +210,7 @@ public class NetPerformanceTest {
                     try {
                         // Send a mix of messages
                         if (msgCounter % 5 == 0) { // Send heavy request periodically
-                            byte[] reqId = longToBytes(System.nanoTime()); // Use timestamp as simple ID
-                            client.send(OP_HEAVY_REQ, reqId);
+                            client.request(OP_HEAVY_REQ, new byte[0]).thenRun(clientHeavyResponsesReceived::incrementAndGet);
                         } else { // Send ping
                             byte[] timestamp = longToBytes(System.nanoTime());
                             client.send(OP_PING, timestamp);
@@ -280,6 +265,9 @@ public class NetPerformanceTest {
         System.out.printf("Total Messages Received (Server): %d (%.2f/s)\n", totalReceivedServer, totalReceivedServer / durationSec);
         System.out.printf("Client PONGs Received: %d\n", totalPongs);
         System.out.printf("Client HEAVY_RESP Received: %d\n", totalHeavy);
+        HandlerExecutor handlers = HandlerExecutor.getDefault();
+        System.out.printf("Heavy Tasks Completed: %d, Rejected: %d, Failed: %d, Peak Queued: %d\n",
+                handlers.getCompleted(), handlers.getRejected(), handlers.getFailed(), handlers.getPeakQueued());
 
 
         // Latency Analysis
@@ -0,0 +1,97 @@
+package LWJG.test;
+
+import LWJG.core.Base;
+import LWJG.core.CFrame;
+import LWJG.core.Vector2;
+import LWJG.net.*;
+import LWJG.net.nio.SelectorPool;
+import LWJG.net.util.bin.Quantizer;
+import LWJG.net.util.bin.TransformQuantizer;
+import LWJG.net.util.replication.ReplicationClient;
+import LWJG.net.util.replication.ReplicationServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replicates the same moving world once with raw doubles and once with a {@link TransformQuantizer}
+ * and compares how many updates did not fit into the per tick budget
+ */
+public class ReplicationBudgetTest {
+
+    // --- Configuration ---
+    private static final int TEST_PORT = 12346;
+    private static final int ENTITIES = 2000;
+    private static final int VIEWERS = 3;
+    private static final double VIEW_RADIUS = 120;
+    private static final int BUDGET = 600; // Bytes of updates per viewer and tick
+    private static final int TICKS = 200;
+    private static final long SEED = 1;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("javax.net.ssl.keyStore", "server.keystore"); // Make sure these exist
+        System.setProperty("javax.net.ssl.keyStorePassword", "server.password");
+        System.setProperty("javax.net.ssl.trustStore", "server.keystore");
+        System.setProperty("javax.net.ssl.trustStorePassword", "server.password");
+
+        TransformQuantizer q = new TransformQuantizer(-1000, -1000, 3000, 3000, 1.0 / 16, 12, Quantizer.ofPrecision(-2, 2, 0.01), null);
+        long[] raw = run(TEST_PORT, null);
+        long[] quantized = run(TEST_PORT + 1, q);
+
+        System.out.println("\n--- Test Results ---");
+        System.out.printf("Raw:       sent %,d bytes, deferred %,d updates\n", raw[0], raw[1]);
+        System.out.printf("Quantized: sent %,d bytes, deferred %,d updates\n", quantized[0], quantized[1]);
+        System.out.printf("Deferred updates reduced %.1fx\n", raw[1] / (double) Math.max(1, quantized[1]));
+        System.exit(0);
+    }
+
+    /**
+     * Replicate the world to the viewers
+     * @param port Server port
+     * @param q Quantizer of both sides, null for raw doubles
+     * @return Sent bytes and deferred updates
+     */
+    private static long[] run(int port, TransformQuantizer q) throws Exception {
+        SelectorPool selectors = new SelectorPool(1);
+        ServerHandler serverHandler = new ServerHandler(port, 100, ClientPermission.READWRITE, selectors);
+        serverHandler.start();
+        Thread.sleep(300);
+
+        ReplicationServer replication = new ReplicationServer(50);
+        replication.setQuantizer(q);
+        replication.setBudget(BUDGET);
+        List<Base> world = new ArrayList<>();
+        Random random = new Random(SEED);
+        for (int i = 0; i < ENTITIES; i++) {
+            Vector2 position = new Vector2(random.nextDouble() * 1000, random.nextDouble() * 1000);
+            Vector2 velocity = new Vector2(random.nextDouble() - .5, random.nextDouble() - .5);
+            Base b = new Base(new CFrame(position, 0), velocity, 0, null, 0, null);
+            world.add(b);
+            replication.add(b);
+        }
+
+        List<RemoteServer> servers = new ArrayList<>();
+        for (int i = 0; i < VIEWERS; i++) {
+            RemoteServer server = new RemoteServer("localhost", port, selectors);
+            new ReplicationClient(server).setQuantizer(q);
+            server.run();
+            servers.add(server);
+        }
+        while (serverHandler.getClientManager().getClients().size() < VIEWERS) Thread.sleep(10);
+        int i = 0;
+        for (Client c : serverHandler.getClientManager().getClients())
+            replication.setViewport(c, new CFrame(new Vector2(200 + 300 * i++, 500), 0), VIEW_RADIUS);
+
+        for (int t = 0; t < TICKS; t++) {
+            for (Base b : world) b.update(1);
+            replication.tick();
+            Thread.sleep(5);
+        }
+
+        for (RemoteServer server : servers) server.close();
+        serverHandler.close();
+        selectors.close();
+        return new long[] { replication.getSentBytes(), replication.getDeferred() };
+    }
+}
@@ -0,0 +1,396 @@
+package LWJG.net.codec.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import LWJG.net.codec.Message;
+import LWJG.net.codec.MessageField;
+
+/**
+ * Generates a {@link LWJG.net.codec.MessageCodec} for every {@link Message}
+ * <br>The generated code reads and writes the fields directly through a {@link LWJG.net.util.bin.ByteCursor},
+ * so messages need no reflection at runtime and decoding into a existing instance does not allocate
+ * besides strings and arrays that changed length.
+ * Fields are written in groups of the same {@link MessageField#since()}, each group carries the presence bits of its own optional fields,
+ * and the body is length prefixed, so a older reader stops after the groups it knows and skips the rest.
+ * <br>Kept in its own source root together with its <code>META-INF/services</code> registration, so compiling the library never runs it.
+ * Build it against the library into a jar and put that jar on the processor path of code that declares messages
+ * @author Marius Baumgartner
+ * @version 2026-10-18T23:59
+ */
+@SupportedAnnotationTypes({ "LWJG.net.codec.Message", "LWJG.net.codec.MessageField",
+        "javax.annotation.processing.Generated" /* on the codecs of the previous round */ })
+public class MessageProcessor extends AbstractProcessor {
+    private static final String VECTOR2 = "LWJG.core.Vector2";
+    private static final String CFRAME = "LWJG.core.CFrame";
+    private static final String BASE = "LWJG.core.Base";
+
+    private enum Kind {
+        BOOLEAN(1), BYTE(1), SHORT(2), CHAR(2), INT(5), LONG(10), FLOAT(4), DOUBLE(8),
+        STRING(-1), BYTES(-1), VECTOR2(16), CFRAME(24), VECTOR2S(-1), CFRAMES(-1), BASE(-1), ENUM(5), MESSAGE(-1);
+
+        final int size; /* fixed upper bound, -1 if it depends on the value */
+
+        Kind(int size) {
+            this.size = size;
+        }
+    }
+
+    private static final class Field {
+        String name;
+        Kind kind;
+        String type; /* canonical name for enums, messages and bases */
+        String codec; /* codec of nested messages */
+        int since;
+        boolean optional;
+        boolean fixed;
+        boolean exactBase;
+        int bit = -1;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element e : round.getElementsAnnotatedWith(Message.class)) {
+            if (e.getKind() != ElementKind.CLASS) {
+                error(e, "@Message is only allowed on classes.");
+                continue;
+            }
+            TypeElement type = (TypeElement) e;
+            List<Field> fields = fields(type);
+            if (fields == null) continue;
+            try {
+                generate(type, fields);
+            } catch (IOException ex) {
+                error(type, "Could not write codec: " + ex.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collect and check the fields of a message
+     * @return Fields in declaration order, null if the message is invalid
+     */
+    private List<Field> fields(TypeElement type) {
+        Message m = type.getAnnotation(Message.class);
+        boolean ok = true;
+        if (m.version() < 1) ok = error(type, "Message version cannot be below 1.");
+        if (m.opcode() < -1 || m.opcode() > 0xFFFF) ok = error(type, "Message opcode must be 0-65535, or -1 for nested messages.");
+        if (type.getModifiers().contains(Modifier.PRIVATE) || type.getModifiers().contains(Modifier.ABSTRACT)) ok = error(type, "Message cannot be private or abstract.");
+        if (type.getNestingKind() != NestingKind.TOP_LEVEL && (type.getNestingKind() != NestingKind.MEMBER || !type.getModifiers().contains(Modifier.STATIC))) ok = error(type, "Message must be top level or a static member class.");
+        boolean constructor = false; /* the default constructor is listed as well */
+        for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE)) constructor = true;
+        }
+        if (!constructor) ok = error(type, "Message needs a non-private no-arg constructor.");
+
+        List<Field> fields = new ArrayList<>();
+        int bits = 0, since = 1;
+        for (VariableElement v : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            MessageField a = v.getAnnotation(MessageField.class);
+            if (a == null) continue;
+            Set<Modifier> mods = v.getModifiers();
+            if (mods.contains(Modifier.PRIVATE) || mods.contains(Modifier.STATIC) || mods.contains(Modifier.FINAL)) {
+                ok = error(v, "Message field cannot be private, static or final.");
+                continue;
+            }
+            Field f = new Field();
+            f.name = v.getSimpleName().toString();
+            f.since = a.since();
+            f.optional = a.optional();
+            f.fixed = a.fixed();
+            if (!kind(v.asType(), f)) {
+                ok = error(v, "Unsupported message field type " + v.asType() + ".");
+                continue;
+            }
+            if (f.since < 1 || f.since > m.version()) ok = error(v, "Field since must be 1-" + m.version() + ".");
+            if (f.since < since) ok = error(v, "Fields must be declared in order of since, append new fields at the end.");
+            if (f.since > since) {
+                if (bits > 64) ok = error(type, "Message cannot have more than 64 optional fields of one version.");
+                since = f.since;
+                bits = 0; /* every version has its own presence bits */
+            }
+            if (f.fixed && f.kind != Kind.INT && f.kind != Kind.LONG) ok = error(v, "Only int and long fields can be fixed.");
+            if (f.optional && v.asType().getKind().isPrimitive()) ok = error(v, "Primitive fields cannot be optional.");
+            if (f.optional) f.bit = bits++;
+            fields.add(f);
+        }
+        if (bits > 64) ok = error(type, "Message cannot have more than 64 optional fields of one version.");
+        return ok ? fields : null;
+    }
+
+    private boolean kind(TypeMirror t, Field f) {
+        switch (t.getKind()) {
+            case BOOLEAN: f.kind = Kind.BOOLEAN; return true;
+            case BYTE: f.kind = Kind.BYTE; return true;
+            case SHORT: f.kind = Kind.SHORT; return true;
+            case CHAR: f.kind = Kind.CHAR; return true;
+            case INT: f.kind = Kind.INT; return true;
+            case LONG: f.kind = Kind.LONG; return true;
+            case FLOAT: f.kind = Kind.FLOAT; return true;
+            case DOUBLE: f.kind = Kind.DOUBLE; return true;
+            case ARRAY:
+                TypeMirror c = ((ArrayType) t).getComponentType();
+                if (c.getKind() == TypeKind.BYTE) f.kind = Kind.BYTES;
+                else if (is(c, VECTOR2)) f.kind = Kind.VECTOR2S;
+                else if (is(c, CFRAME)) f.kind = Kind.CFRAMES;
+                return f.kind != null;
+            case DECLARED:
+                TypeElement e = (TypeElement) ((DeclaredType) t).asElement();
+                String name = e.getQualifiedName().toString();
+                f.type = name;
+                if (name.equals("java.lang.String")) f.kind = Kind.STRING;
+                else if (name.equals(VECTOR2)) f.kind = Kind.VECTOR2;
+                else if (name.equals(CFRAME)) f.kind = Kind.CFRAME;
+                else if (e.getKind() == ElementKind.ENUM) f.kind = Kind.ENUM;
+                else if (e.getAnnotation(Message.class) != null) {
+                    f.kind = Kind.MESSAGE;
+                    f.codec = codecName(e);
+                } else if (isBase(t)) {
+                    f.kind = Kind.BASE;
+                    f.exactBase = name.equals(BASE);
+                }
+                return f.kind != null;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean is(TypeMirror t, String name) {
+        return t.getKind() == TypeKind.DECLARED && ((TypeElement) ((DeclaredType) t).asElement()).getQualifiedName().contentEquals(name);
+    }
+
+    private boolean isBase(TypeMirror t) {
+        TypeElement base = processingEnv.getElementUtils().getTypeElement(BASE);
+        return base != null && processingEnv.getTypeUtils().isAssignable(t, base.asType());
+    }
+
+    /**
+     * Get the qualified name of the codec of a message, nested classes are joined by underscores
+     * @param type Message
+     * @return Codec name
+     */
+    private String codecName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element e = type.getEnclosingElement(); e.getKind().isClass() || e.getKind().isInterface(); e = e.getEnclosingElement()) {
+            name.insert(0, e.getSimpleName() + "_");
+        }
+        String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        return (pkg.isEmpty() ? "" : pkg + ".") + name + "Codec";
+    }
+
+    private void generate(TypeElement type, List<Field> fields) throws IOException {
+        Message m = type.getAnnotation(Message.class);
+        String codec = codecName(type);
+        int dot = codec.lastIndexOf('.');
+        String pkg = dot < 0 ? "" : codec.substring(0, dot), simple = codec.substring(dot + 1);
+        String msg = type.getQualifiedName().toString();
+        List<List<Field>> groups = new ArrayList<>(); /* fields of the same since, in version order */
+        for (Field f : fields) {
+            if (groups.isEmpty() || groups.get(groups.size() - 1).get(0).since != f.since) groups.add(new ArrayList<>());
+            groups.get(groups.size() - 1).add(f);
+        }
+
+        StringBuilder s = new StringBuilder();
+        if (!pkg.isEmpty()) s.append("package ").append(pkg).append(";\n\n");
+        s.append("import LWJG.net.codec.Codecs;\n");
+        s.append("import LWJG.net.codec.MessageCodec;\n");
+        s.append("import LWJG.net.util.bin.ByteCursor;\n\n");
+        s.append("/**\n * Codec of {@link ").append(msg).append("}, generated\n */\n");
+        s.append("@javax.annotation.processing.Generated(\"").append(MessageProcessor.class.getName()).append("\")\n");
+        s.append("public final class ").append(simple).append(" implements MessageCodec<").append(msg).append("> {\n");
+        s.append("    public static final ").append(simple).append(" INSTANCE = new ").append(simple).append("();\n\n");
+        s.append("    public static final int OPCODE = ").append(m.opcode()).append(";\n");
+        s.append("    public static final int VERSION = ").append(m.version()).append(";\n");
+        for (Field f : fields) {
+            if (f.kind == Kind.ENUM) s.append("    private static final ").append(f.type).append("[] ").append(values(f)).append(" = ").append(f.type).append(".values();\n");
+        }
+        s.append("\n    private ").append(simple).append("() {\n    }\n\n");
+
+        s.append("    @Override\n    public int getOpcode() {\n        return OPCODE;\n    }\n\n");
+        s.append("    @Override\n    public int getVersion() {\n        return VERSION;\n    }\n\n");
+
+        /* size */
+        int fixed = 5 + 5; /* version and body length */
+        for (List<Field> g : groups) {
+            if (optionals(g)) fixed += 10; /* presence */
+        }
+        StringBuilder variable = new StringBuilder();
+        for (Field f : fields) {
+            String v = "m." + f.name, size;
+            switch (f.kind) {
+                case INT: size = f.fixed ? "4" : "5"; break;
+                case LONG: size = f.fixed ? "8" : "10"; break;
+                case STRING: size = "Codecs.maxSize(" + v + ")"; break;
+                case BYTES: size = "5 + " + v + ".length"; break;
+                case VECTOR2S: size = "5 + " + v + ".length * ByteCursor.VECTOR2_BYTES"; break;
+                case CFRAMES: size = "5 + " + v + ".length * ByteCursor.CFRAME_BYTES"; break;
+                case BASE: size = "Codecs.KINEMATICS_BYTES"; break;
+                case MESSAGE: size = f.codec + ".INSTANCE.maxSize(" + v + ")"; break;
+                default: size = String.valueOf(f.kind.size);
+            }
+            boolean constant = size.chars().allMatch(Character::isDigit);
+            if (constant && !f.optional) fixed += Integer.parseInt(size);
+            else if (f.optional) variable.append(" + (").append(v).append(" != null ? ").append(size).append(" : 0)");
+            else variable.append(" + ").append(size);
+        }
+        s.append("    @Override\n    public int maxSize(").append(msg).append(" m) {\n");
+        s.append("        return ").append(fixed).append(variable).append(";\n    }\n\n");
+
+        /* encode */
+        s.append("    @Override\n    public void encode(").append(msg).append(" m, ByteCursor out) {\n");
+        s.append("        out.putVarInt(VERSION);\n");
+        s.append("        int width = ByteCursor.varIntSize(out.remaining()), body = out.position(); /* the body cannot outgrow the buffer */\n");
+        s.append("        out.skip(width);\n");
+        for (List<Field> g : groups) {
+            int since = g.get(0).since;
+            if (optionals(g)) {
+                s.append("        long present").append(since).append(" = 0;\n");
+                for (Field f : g) {
+                    if (f.optional) s.append("        if (m.").append(f.name).append(" != null) present").append(since).append(" |= 1L << ").append(f.bit).append(";\n");
+                }
+                s.append("        out.putVarLong(present").append(since).append(");\n");
+            }
+            for (Field f : g) {
+                String put = put(f, "m." + f.name);
+                if (f.optional) s.append("        if (m.").append(f.name).append(" != null) ").append(put).append("\n");
+                else s.append("        ").append(put).append("\n");
+            }
+        }
+        s.append("        Codecs.putLength(out, body, width);\n");
+        s.append("    }\n\n");
+
+        /* decode */
+        s.append("    @Override\n    public ").append(msg).append(" decode(ByteCursor in, ").append(msg).append(" into) {\n");
+        s.append("        int version = Codecs.version(in);\n");
+        s.append("        int end = Codecs.body(in);\n");
+        for (List<Field> g : groups) {
+            int since = g.get(0).since;
+            String indent = "        ";
+            if (since > 1) {
+                s.append(indent).append("if (version >= ").append(since).append(") {\n");
+                indent += "    ";
+            }
+            if (optionals(g)) s.append(indent).append("long present").append(since).append(" = in.getVarLong();\n");
+            for (Field f : g) {
+                if (f.optional) {
+                    s.append(indent).append("if ((present").append(since).append(" & 1L << ").append(f.bit).append(") == 0) into.").append(f.name).append(" = null;\n");
+                    s.append(indent).append("else {\n");
+                    get(s, f, indent + "    ");
+                    s.append(indent).append("}\n");
+                } else {
+                    get(s, f, indent);
+                }
+            }
+            if (since > 1) s.append("        }\n");
+        }
+        s.append("        Codecs.skipTo(in, end); /* fields of newer versions */\n");
+        s.append("        return into;\n    }\n\n");
+
+        s.append("    @Override\n    public ").append(msg).append(" decode(ByteCursor in) {\n");
+        s.append("        return decode(in, new ").append(msg).append("());\n    }\n");
+        s.append("}\n");
+
+        try (Writer w = processingEnv.getFiler().createSourceFile(codec, type).openWriter()) {
+            w.write(s.toString());
+        }
+    }
+
+    private static boolean optionals(List<Field> group) {
+        return group.stream().anyMatch(f -> f.optional);
+    }
+
+    private static String values(Field f) {
+        return f.name.toUpperCase() + "_VALUES";
+    }
+
+    private static String put(Field f, String v) {
+        switch (f.kind) {
+            case BOOLEAN: return "out.putBoolean(" + v + ");";
+            case BYTE: return "out.putByte(" + v + ");";
+            case SHORT: case CHAR: return "out.putShort(" + v + ");";
+            case INT: return f.fixed ? "out.putInt(" + v + ");" : "out.putSignedVarInt(" + v + ");";
+            case LONG: return f.fixed ? "out.putLong(" + v + ");" : "out.putSignedVarLong(" + v + ");";
+            case FLOAT: return "out.putFloat(" + v + ");";
+            case DOUBLE: return "out.putDouble(" + v + ");";
+            case STRING: return "out.putString(" + v + ");";
+            case BYTES: return "Codecs.putBytes(out, " + v + ");";
+            case VECTOR2: return "out.putVector2(" + v + ");";
+            case CFRAME: return "out.putCFrame(" + v + ");";
+            case VECTOR2S: return "Codecs.putVector2s(out, " + v + ");";
+            case CFRAMES: return "Codecs.putCFrames(out, " + v + ");";
+            case BASE: return "Codecs.putKinematics(out, " + v + ");";
+            case ENUM: return "out.putVarInt(" + v + ".ordinal());";
+            case MESSAGE: return f.codec + ".INSTANCE.encode(" + v + ", out);";
+            default: throw new IllegalStateException(f.kind.name());
+        }
+    }
+
+    private static void get(StringBuilder s, Field f, String indent) {
+        String v = "into." + f.name;
+        s.append(indent);
+        switch (f.kind) {
+            case BOOLEAN: s.append(v).append(" = in.getBoolean();"); break;
+            case BYTE: s.append(v).append(" = in.getByte();"); break;
+            case SHORT: s.append(v).append(" = in.getShort();"); break;
+            case CHAR: s.append(v).append(" = (char) in.getShort();"); break;
+            case INT: s.append(v).append(f.fixed ? " = in.getInt();" : " = in.getSignedVarInt();"); break;
+            case LONG: s.append(v).append(f.fixed ? " = in.getLong();" : " = in.getSignedVarLong();"); break;
+            case FLOAT: s.append(v).append(" = in.getFloat();"); break;
+            case DOUBLE: s.append(v).append(" = in.getDouble();"); break;
+            case STRING: s.append(v).append(" = in.getString();"); break;
+            case BYTES: s.append(v).append(" = Codecs.getBytes(in, ").append(v).append(");"); break;
+            case VECTOR2: s.append(v).append(" = ").append(v).append(" != null ? in.getVector2(").append(v).append(") : in.getVector2();"); break;
+            case CFRAME: s.append(v).append(" = ").append(v).append(" != null ? in.getCFrame(").append(v).append(") : in.getCFrame();"); break;
+            case VECTOR2S: s.append(v).append(" = Codecs.getVector2s(in, ").append(v).append(");"); break;
+            case CFRAMES: s.append(v).append(" = Codecs.getCFrames(in, ").append(v).append(");"); break;
+            case BASE:
+                if (f.exactBase) {
+                    s.append(v).append(" = Codecs.getKinematics(in, ").append(v).append(");");
+                } else {
+                    s.append("if (").append(v).append(" == null) throw new IllegalArgumentException(\"Field ").append(f.name).append(" needs a instance to decode into.\");\n");
+                    s.append(indent).append("Codecs.getKinematics(in, ").append(v).append(");");
+                }
+                break;
+            case ENUM:
+                s.append("int ").append(f.name).append("Ordinal = in.getVarInt();\n");
+                s.append(indent).append("if (").append(f.name).append("Ordinal < 0 || ").append(f.name).append("Ordinal >= ").append(values(f)).append(".length) throw new IllegalArgumentException(\"Unknown ").append(f.name).append(" \" + ").append(f.name).append("Ordinal + \".\");\n");
+                s.append(indent).append(v).append(" = ").append(values(f)).append("[").append(f.name).append("Ordinal];");
+                break;
+            case MESSAGE: s.append(v).append(" = ").append(v).append(" != null ? ").append(f.codec).append(".INSTANCE.decode(in, ").append(v).append(") : ").append(f.codec).append(".INSTANCE.decode(in);"); break;
+            default: throw new IllegalStateException(f.kind.name());
+        }
+        s.append("\n");
+    }
+
+    private boolean error(Element e, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, e);
+        return false;
+    }
+}